@@ -19,6 +19,10 @@
 
 package io.arlas.server.task;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMultimap;
 import io.arlas.server.app.ArlasServerConfiguration;
 import io.arlas.server.app.CollectionAutoDiscoverConfiguration;
@@ -32,45 +36,98 @@ import io.arlas.server.model.response.CollectionReferenceDescriptionProperty;
 import io.arlas.server.utils.MapExplorer;
 import io.dropwizard.servlets.tasks.Task;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+/**
+ * Adds a collection for each index mapping providing the preferred id, timestamp, centroid and geometry fields.
+ * The mappings are only described and checked when they are new or when they changed since the previous run.
+ */
 public class CollectionAutoDiscover extends Task implements Runnable {
 
-    private ElasticAdmin admin;
+    private Client client;
     private CollectionReferenceDao collectionDao;
     private CollectionAutoDiscoverConfiguration configuration;
 
+    // candidate collection, or null, of each index mapping, with the fingerprint of the mapping it was found from
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private long clusterStateVersion = -1;
+
+    private final Timer runs = new Timer();
+    private final Counter discovered = new Counter();
+    private volatile int checked = 0;
+    private volatile long found = 0;
+
     Logger LOGGER = LoggerFactory.getLogger(CollectionAutoDiscover.class);
 
     public CollectionAutoDiscover(Client client, ArlasServerConfiguration configuration) {
         super("collection-auto-discover");
-        this.admin = new ElasticAdmin(client);
+        this.client = client;
         this.configuration = configuration.collectionAutoDiscoverConfiguration;
         this.collectionDao = new ElasticCollectionReferenceDaoImpl(client, configuration.arlasindex, configuration.arlascachesize, configuration.arlascachetimeout);
     }
 
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(CollectionAutoDiscover.class, "runs"), runs);
+        metrics.register(MetricRegistry.name(CollectionAutoDiscover.class, "discovered"), discovered);
+        metrics.register(MetricRegistry.name(CollectionAutoDiscover.class, "checked-mappings"), (Gauge<Integer>) () -> checked);
+        metrics.register(MetricRegistry.name(CollectionAutoDiscover.class, "candidates"), (Gauge<Long>) () -> found);
+    }
+
     @Override
-    public void execute(ImmutableMultimap<String, String> arg0, PrintWriter arg1) throws Exception {
-        try {
-            List<CollectionReferenceDescription> discoveredCollections = admin.getAllIndecesAsCollections();
-            List<CollectionReferenceDescription> existingCollections = null;
+    public synchronized void execute(ImmutableMultimap<String, String> arg0, PrintWriter arg1) throws Exception {
+        try (Timer.Context ignored = runs.time()) {
+            List<String> idPaths = configuration.getPreferredIdFieldNames();
+            List<String> timestampPaths = configuration.getPreferredTimestampFieldNames();
+            List<String> centroidPaths = configuration.getPreferredCentroidFieldNames();
+            List<String> geometryPaths = configuration.getPreferredGeometryFieldNames();
+            // the mappings are part of the cluster state: nothing to check if it did not change
+            long version = client.admin().cluster().prepareState().clear().get().getState().getVersion();
+            if (version != clusterStateVersion) {
+                ClusterState state = client.admin().cluster().prepareState().clear().setMetaData(true).get().getState();
+                Map<String, Candidate> current = new ConcurrentHashMap<>();
+                List<Runnable> changed = new ArrayList<>();
+                state.getMetaData().getIndices().valuesIt().forEachRemaining(index -> index.getMappings().keysIt().forEachRemaining(type -> {
+                    String key = index.getIndex().getName() + "/" + type;
+                    String fingerprint = index.getIndexUUID() + ":" + index.getMappingVersion();
+                    Candidate candidate = candidates.get(key);
+                    if (candidate != null && candidate.fingerprint.equals(fingerprint)) {
+                        current.put(key, candidate);
+                    } else {
+                        changed.add(() -> {
+                            CollectionReferenceDescription collection = ElasticAdmin.describeIndexAsCollection(index.getIndex().getName(), type, index.mapping(type));
+                            current.put(key, new Candidate(fingerprint, checkCollectionValidity(collection, idPaths, timestampPaths, centroidPaths, geometryPaths)));
+                        });
+                    }
+                }));
+                changed.parallelStream().forEach(Runnable::run);
+                candidates.clear();
+                candidates.putAll(current);
+                checked = changed.size();
+                found = candidates.values().stream().filter(candidate -> candidate.collection != null).count();
+                clusterStateVersion = version;
+            } else {
+                checked = 0;
+            }
+            Set<String> existingCollections;
             try {
-                existingCollections = admin.describeAllCollections(collectionDao.getAllCollectionReferences());
+                existingCollections = collectionDao.getAllCollectionReferences().stream()
+                        .map(collection -> collection.params.indexName + "/" + collection.params.typeName)
+                        .collect(Collectors.toSet());
             } catch (Exception e) {
-                existingCollections = new ArrayList<>();
+                existingCollections = new HashSet<>();
             }
-            for (CollectionReferenceDescription collection : discoveredCollections) {
-                if (!existingCollections.contains(collection)) {
-                    CollectionReferenceDescription collectionToAdd = checkCollectionValidity(collection);
-                    if (collectionToAdd != null) {
-                        collectionDao.putCollectionReference(collectionToAdd);
-                    }
+            for (Map.Entry<String, Candidate> candidate : candidates.entrySet()) {
+                if (candidate.getValue().collection != null && !existingCollections.contains(candidate.getKey())) {
+                    collectionDao.putCollectionReference(candidate.getValue().collection);
+                    discovered.inc();
                 }
             }
         } catch (ArlasConfigurationException e) {
@@ -78,11 +135,8 @@ public class CollectionAutoDiscover extends Task implements Runnable {
         }
     }
 
-    private CollectionReferenceDescription checkCollectionValidity(CollectionReferenceDescription collection) throws ArlasConfigurationException {
-        List<String> idPaths = configuration.getPreferredIdFieldNames();
-        List<String> timestampPaths = configuration.getPreferredTimestampFieldNames();
-        List<String> centroidPaths = configuration.getPreferredCentroidFieldNames();
-        List<String> geometryPaths = configuration.getPreferredGeometryFieldNames();
+    private CollectionReferenceDescription checkCollectionValidity(CollectionReferenceDescription collection, List<String> idPaths, List<String> timestampPaths,
+                                                                   List<String> centroidPaths, List<String> geometryPaths) {
         for (String path : idPaths) {
             Object field = MapExplorer.getObjectFromPath(path, collection.properties);
             if (field != null && field instanceof CollectionReferenceDescriptionProperty) {
@@ -132,4 +186,13 @@ public class CollectionAutoDiscover extends Task implements Runnable {
         }
     }
 
+    private static class Candidate {
+        private final String fingerprint;
+        private final CollectionReferenceDescription collection;
+
+        private Candidate(String fingerprint, CollectionReferenceDescription collection) {
+            this.fingerprint = fingerprint;
+            this.collection = collection;
+        }
+    }
 }
@@ -22,6 +22,7 @@ package io.arlas.server.app;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.smoketurner.dropwizard.zipkin.ZipkinFactory;
 import io.arlas.server.exceptions.ArlasConfigurationException;
+import io.arlas.server.model.enumerations.PngFilterEnum;
 import io.arlas.server.utils.StringUtil;
 import io.dropwizard.Configuration;
 import io.federecio.dropwizard.swagger.SwaggerBundleConfiguration;
@@ -86,6 +87,18 @@ public class ArlasServerConfiguration extends Configuration {
     @JsonProperty("arlas-rest-cache-timeout")
     public int arlasrestcachetimeout;
 
+    @JsonProperty("arlas-geohash-cache-size")
+    public Integer arlasgeohashcachesize;
+
+    @JsonProperty("arlas-mapping-poll")
+    public Integer arlasmappingpoll;
+
+    @JsonProperty("arlas-result-cache")
+    public ResultCacheConfiguration resultCacheConfiguration;
+
+    @JsonProperty("arlas-etag-enabled")
+    public Boolean arlasetagenabled;
+
     @JsonProperty("arlas-cors-enabled")
     public Boolean arlascorsenabled;
 
@@ -110,6 +123,9 @@ public class ArlasServerConfiguration extends Configuration {
     @JsonProperty("arlas-service-raster-tiles-enabled")
     public Boolean arlasServiceRasterTileEnabled;
 
+    @JsonProperty("arlas-raster-tiles")
+    public RasterTileConfiguration rasterTileConfiguration;
+
     @JsonProperty("collection-auto-discover")
     public CollectionAutoDiscoverConfiguration collectionAutoDiscoverConfiguration;
 
@@ -163,6 +179,30 @@ public class ArlasServerConfiguration extends Configuration {
         if (arlascachetimeout < 0) {
             arlascachetimeout = 60;
         }
+        if (arlasgeohashcachesize == null || arlasgeohashcachesize < 0) {
+            arlasgeohashcachesize = 20000;
+        }
+        if (arlasmappingpoll == null || arlasmappingpoll <= 0) {
+            arlasmappingpoll = 5;
+        }
+        if (arlasetagenabled == null) {
+            arlasetagenabled = false;
+        }
+        if (resultCacheConfiguration == null) {
+            resultCacheConfiguration = new ResultCacheConfiguration();
+        }
+        if (resultCacheConfiguration.enabled == null) {
+            resultCacheConfiguration.enabled = false;
+        }
+        if (resultCacheConfiguration.maxWeight <= 0) {
+            resultCacheConfiguration.maxWeight = 64 * 1024 * 1024;
+        }
+        if (resultCacheConfiguration.timeout <= 0) {
+            resultCacheConfiguration.timeout = 60;
+        }
+        if (resultCacheConfiguration.generationPoll <= 0) {
+            resultCacheConfiguration.generationPoll = 5;
+        }
         if (arlascorsenabled == null) {
             arlascorsenabled = false;
         }
@@ -207,6 +247,36 @@ public class ArlasServerConfiguration extends Configuration {
         if(arlasServiceRasterTileEnabled==null){
             arlasServiceRasterTileEnabled=false;
         }
+        if (rasterTileConfiguration == null) {
+            rasterTileConfiguration = new RasterTileConfiguration();
+        }
+        if (rasterTileConfiguration.fetchThreads <= 0) {
+            rasterTileConfiguration.fetchThreads = 16;
+        }
+        if (rasterTileConfiguration.prefetch == null || rasterTileConfiguration.prefetch < 0) {
+            rasterTileConfiguration.prefetch = 4;
+        }
+        if (rasterTileConfiguration.connectTimeout <= 0) {
+            rasterTileConfiguration.connectTimeout = 2000;
+        }
+        if (rasterTileConfiguration.readTimeout <= 0) {
+            rasterTileConfiguration.readTimeout = 10000;
+        }
+        if (rasterTileConfiguration.cacheMaxWeight == null || rasterTileConfiguration.cacheMaxWeight < 0) {
+            rasterTileConfiguration.cacheMaxWeight = 128L * 1024 * 1024;
+        }
+        if (rasterTileConfiguration.cacheTimeout <= 0) {
+            rasterTileConfiguration.cacheTimeout = 300;
+        }
+        if (rasterTileConfiguration.cacheDirectoryMaxWeight == null || rasterTileConfiguration.cacheDirectoryMaxWeight < 0) {
+            rasterTileConfiguration.cacheDirectoryMaxWeight = 1024L * 1024 * 1024;
+        }
+        if (rasterTileConfiguration.pngCompressionLevel == null || rasterTileConfiguration.pngCompressionLevel < 0 || rasterTileConfiguration.pngCompressionLevel > 9) {
+            rasterTileConfiguration.pngCompressionLevel = 1;
+        }
+        if (rasterTileConfiguration.pngFilter == null) {
+            rasterTileConfiguration.pngFilter = PngFilterEnum.up;
+        }
         if(collectionAutoDiscoverConfiguration == null) {
             collectionAutoDiscoverConfiguration = new CollectionAutoDiscoverConfiguration();
             collectionAutoDiscoverConfiguration.schedule = 0;
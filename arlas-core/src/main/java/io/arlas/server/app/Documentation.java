@@ -23,9 +23,13 @@ public class Documentation {
 
     public static final String GEOSEARCH_OPERATION = "Search and return the elements found in the collection(s) as features, given the filters"; // TODO: different?
     public static final String TILED_GEOSEARCH_OPERATION = "Search and return the elements found in the collection(s) and localized in the given tile(x,y,z) as features, given the filters";
+    public static final String VECTOR_TILED_GEOSEARCH_OPERATION = "Search and return the elements found in the collection(s) and localized in the given tile(x,y,z) as a Mapbox Vector Tile, given the filters";
+    public static final String EXPORT_OPERATION = "Export all the elements found in the collection, given the filters, as a stream of newline delimited JSON hits (ndjson) or of GeoJSON features (geojsonseq, RFC 8142)";
     public static final String SEARCH_OPERATION = "Search and return the elements found in the collection, given the filters";
     public static final String TAG_OPERATION=   "Search and tag the elements found in the collection, given the filters";
     public static final String UNTAG_OPERATION=   "Search and untag the elements found in the collection, given the filters";
+    public static final String TAG_TASK_OPERATION = "Get the status of an asynchronous tag or untag of the collection";
+    public static final String TAG_ASYNC = "If true, the elements are updated in the background and the response, sent at once, contains the id of the task to poll";
     public static final String OPENSEARCH_OPERATION = "Access to the OpenSearch Description document for the given collection";
     public static final String OPENSEARCH_CSW_OPERATION = "Access to the OpenSearch CSW Description document";
     public static final String PROJECTION_PARAM_INCLUDE = "List the name patterns of the field to be included in the result. Seperate patterns with a comma.";
@@ -203,6 +207,7 @@ public class Documentation {
 
     public static final String GEOAGGREGATION_OPERATION = "Aggregate the elements in the collection(s) as features, given the filters and the aggregation parameters.";
     public static final String GEOHASH_GEOAGGREGATION_OPERATION = "Aggregate the elements in the collection(s) and localized in the given geohash as features, given the filters and the aggregation parameters.";
+    public static final String VECTOR_TILED_GEOAGGREGATION_OPERATION = "Aggregate the elements in the collection(s) and localized in the given tile(x,y,z) as a Mapbox Vector Tile, given the filters and the aggregation parameters. Without aggregation, the elements are aggregated in geohash cells of a precision adapted to the zoom level.";
     public static final String GEOAGGREGATION_PARAM_AGG = "- The agg parameter should be given in the following formats:  " +
             "\n \n" +
             "       {type}:{field}:interval-{interval}:format-{format}:collect_field-{collect_field}:collect_fct-{function}:order-{order}:on-{on}:size-{size}:fetcbGeometry-{fetchGeometry values}" +
@@ -301,10 +306,17 @@ public class Documentation {
             "For more details, check https://github.com/gisaia/ARLAS-server/blob/master/docs/arlas-api-exploration.md ";
 
     public static final String FORM_PRETTY = "Pretty print";
+    public static final String EXPORT_FORMAT = "The format of the export: `ndjson` (one hit per line) or `geojsonseq` (a GeoJSON text sequence of features)";
     public static final String FORM_FLAT = "Flats the property map: only key/value on one level";
 
     public static final String RANGE_OPERATION = "Calculates the min and max values of a field in the collection, given the filters";
     public static final String RANGE_FIELD = "The field whose range is calculated";
 
+    public static final String STATS_OPERATION = "Calculates the min, max, average and cardinality of several fields in the collection, given the filters, with a single query";
+    public static final String STATS_FIELD = "The fields whose statistics are calculated. Several fields can be separated by commas or given as several `field` parameters";
+
+    public static final String BATCH_OPERATION = "Executes several count, aggregate, search and range requests, on one or several collections, with a single query. " +
+            "The responses are returned in the order of the requests; the failure of a request is reported in its response and does not fail the others.";
+
     public static final String COUNT_DISTINCT_FIELD = "The field which values are distinctly counted";
 }
@@ -0,0 +1,63 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.app;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.arlas.server.model.enumerations.PngFilterEnum;
+
+public class RasterTileConfiguration {
+
+    @JsonProperty("fetch-threads")
+    public int fetchThreads;
+
+    @JsonProperty("prefetch")
+    public Integer prefetch;
+
+    @JsonProperty("connect-timeout")
+    public int connectTimeout;
+
+    @JsonProperty("read-timeout")
+    public int readTimeout;
+
+    @JsonProperty("cache-max-weight")
+    public Long cacheMaxWeight;
+
+    @JsonProperty("cache-timeout")
+    public int cacheTimeout;
+
+    @JsonProperty("cache-directory")
+    public String cacheDirectory;
+
+    @JsonProperty("cache-directory-max-weight")
+    public Long cacheDirectoryMaxWeight;
+
+    @JsonProperty("png-compression-level")
+    public Integer pngCompressionLevel;
+
+    @JsonProperty("png-filter")
+    public PngFilterEnum pngFilter;
+
+    @Override
+    public String toString() {
+        return "RasterTileConfiguration [fetchThreads=" + fetchThreads + ", prefetch=" + prefetch + ", connectTimeout=" + connectTimeout + ", readTimeout=" + readTimeout
+                + ", cacheMaxWeight=" + cacheMaxWeight + ", cacheTimeout=" + cacheTimeout + ", cacheDirectory=" + cacheDirectory + ", cacheDirectoryMaxWeight=" + cacheDirectoryMaxWeight
+                + ", pngCompressionLevel=" + pngCompressionLevel + ", pngFilter=" + pngFilter + "]";
+    }
+}
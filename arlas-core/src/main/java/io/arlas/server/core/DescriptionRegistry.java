@@ -0,0 +1,227 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.response.CollectionReferenceDescription;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.regex.Regex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Descriptions of the collections, built from the mappings of the indices behind their index name. A background task
+ * watches the version of the cluster state: when it changes, the mapping versions of the indices are compared with
+ * the ones the descriptions were built from, and the descriptions of the modified collections are rebuilt.
+ */
+public class DescriptionRegistry {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(DescriptionRegistry.class);
+
+    private static final int DEFAULT_SIZE = 1000;
+    private static final int DEFAULT_POLL = 5;
+
+    private static Client client = null;
+    private static Cache<Key, Description> descriptions = null;
+    private static long clusterStateVersion = -1;
+    private static final AtomicLong rebuilds = new AtomicLong();
+    private static final AtomicLong generation = new AtomicLong();
+    private static final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("description-registry-poll-%d").setDaemon(true).build());
+
+    public static synchronized void configure(Client esClient, int size, int pollInterval) {
+        client = esClient;
+        if (descriptions == null) {
+            descriptions = CacheBuilder.newBuilder()
+                    .maximumSize(size)
+                    .recordStats()
+                    .build();
+            poller.scheduleWithFixedDelay(DescriptionRegistry::poll, pollInterval, pollInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    public static CollectionReferenceDescription getDescription(Client esClient, CollectionReference collectionReference) {
+        if (descriptions == null) {
+            configure(esClient, DEFAULT_SIZE, DEFAULT_POLL);
+        }
+        Key key = new Key(collectionReference);
+        Description description = descriptions.getIfPresent(key);
+        if (description == null) {
+            // the first description of a collection is built from its own indices, which must exist
+            MetaData metaData = client.admin().cluster().prepareState().clear().setMetaData(true)
+                    .setIndices(collectionReference.params.indexName).setIndicesOptions(IndicesOptions.strictExpandOpen())
+                    .get().getState().getMetaData();
+            List<IndexMetaData> indices = new ArrayList<>();
+            metaData.getIndices().valuesIt().forEachRemaining(indices::add);
+            description = describe(collectionReference, indices);
+            descriptions.put(key, description);
+        }
+        // the parameters which are not part of the key may differ from the ones of the cached description
+        CollectionReferenceDescription collectionReferenceDescription = new CollectionReferenceDescription();
+        collectionReferenceDescription.collectionName = collectionReference.collectionName;
+        collectionReferenceDescription.params = collectionReference.params;
+        collectionReferenceDescription.properties = description.description.properties;
+        return collectionReferenceDescription;
+    }
+
+    /**
+     * Changes whenever cached descriptions are rebuilt or dropped because the mappings of their indices changed.
+     */
+    public static long getGeneration() {
+        return generation.get();
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(DescriptionRegistry.class, "hits"), (Gauge<Long>) () -> descriptions.stats().hitCount());
+        metrics.register(MetricRegistry.name(DescriptionRegistry.class, "misses"), (Gauge<Long>) () -> descriptions.stats().missCount());
+        metrics.register(MetricRegistry.name(DescriptionRegistry.class, "rebuilds"), (Gauge<Long>) rebuilds::get);
+        metrics.register(MetricRegistry.name(DescriptionRegistry.class, "entries"), (Gauge<Long>) () -> descriptions.size());
+    }
+
+    static void poll() {
+        try {
+            if (descriptions.size() == 0) {
+                return;
+            }
+            long version = client.admin().cluster().prepareState().clear().get().getState().getVersion();
+            if (version == clusterStateVersion) {
+                return;
+            }
+            Map<Key, Description> current = new HashMap<>(descriptions.asMap());
+            String[] indexNames = current.keySet().stream().map(key -> key.collectionReference.params.indexName).distinct().toArray(String[]::new);
+            MetaData metaData = client.admin().cluster().prepareState().clear().setMetaData(true)
+                    .setIndices(indexNames).setIndicesOptions(IndicesOptions.lenientExpandOpen())
+                    .get().getState().getMetaData();
+            for (Map.Entry<Key, Description> entry : current.entrySet()) {
+                List<IndexMetaData> indices = resolve(metaData, entry.getKey().collectionReference.params.indexName);
+                if (indices == null) {
+                    // missing index or unsupported expression: described again on next request
+                    descriptions.invalidate(entry.getKey());
+                    generation.incrementAndGet();
+                } else if (!getMappingVersions(indices).equals(entry.getValue().mappingVersions)) {
+                    descriptions.put(entry.getKey(), describe(entry.getKey().collectionReference, indices));
+                    rebuilds.incrementAndGet();
+                    generation.incrementAndGet();
+                }
+            }
+            clusterStateVersion = version;
+        } catch (Exception e) {
+            LOGGER.warn("Unable to check the mappings of the collections", e);
+        }
+    }
+
+    /**
+     * Resolves the comma separated index names, aliases and wildcard expressions to the open indices they target,
+     * as Elasticsearch does. Returns null if a name does not exist or if an expression is not supported.
+     */
+    static List<IndexMetaData> resolve(MetaData metaData, String indexName) {
+        Map<String, IndexMetaData> indices = new TreeMap<>();
+        for (String expression : indexName.split(",")) {
+            if (expression.startsWith("-") || expression.startsWith("<")) {
+                return null;
+            } else if (expression.equals("_all") || Regex.isSimpleMatchPattern(expression)) {
+                String pattern = expression.equals("_all") ? "*" : expression;
+                metaData.getAliasAndIndexLookup().forEach((name, aliasOrIndex) -> {
+                    if (Regex.simpleMatch(pattern, name)) {
+                        aliasOrIndex.getIndices().stream()
+                                .filter(index -> index.getState() == IndexMetaData.State.OPEN)
+                                .forEach(index -> indices.put(index.getIndex().getName(), index));
+                    }
+                });
+            } else {
+                AliasOrIndex aliasOrIndex = metaData.getAliasAndIndexLookup().get(expression);
+                if (aliasOrIndex == null) {
+                    return null;
+                }
+                aliasOrIndex.getIndices().forEach(index -> indices.put(index.getIndex().getName(), index));
+            }
+        }
+        return new ArrayList<>(indices.values());
+    }
+
+    private static Description describe(CollectionReference collectionReference, List<IndexMetaData> indices) {
+        List<MappingMetaData> mappings = new ArrayList<>();
+        for (IndexMetaData index : indices) {
+            MappingMetaData mapping = index.mapping(collectionReference.params.typeName);
+            if (mapping != null) {
+                mappings.add(mapping);
+            }
+        }
+        return new Description(ElasticAdmin.describeCollection(collectionReference, mappings), getMappingVersions(indices));
+    }
+
+    private static Map<String, Long> getMappingVersions(List<IndexMetaData> indices) {
+        Map<String, Long> versions = new HashMap<>();
+        indices.forEach(index -> versions.put(index.getIndex().getName(), index.getMappingVersion()));
+        return versions;
+    }
+
+    private static class Description {
+        private final CollectionReferenceDescription description;
+        private final Map<String, Long> mappingVersions;
+
+        private Description(CollectionReferenceDescription description, Map<String, Long> mappingVersions) {
+            this.description = description;
+            this.mappingVersions = mappingVersions;
+        }
+    }
+
+    /**
+     * The parameters a description depends on.
+     */
+    private static class Key {
+        private final CollectionReference collectionReference;
+        private final List<String> values;
+
+        private Key(CollectionReference collectionReference) {
+            this.collectionReference = collectionReference;
+            this.values = Arrays.asList(collectionReference.collectionName, collectionReference.params.indexName, collectionReference.params.typeName,
+                    collectionReference.params.excludeFields, collectionReference.params.taggableFields);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return values.equals(((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode();
+        }
+    }
+}
@@ -27,7 +27,6 @@ import io.arlas.server.model.response.CollectionReferenceDescriptionProperty;
 import io.arlas.server.model.response.ElasticType;
 import org.apache.logging.log4j.util.Strings;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
@@ -48,8 +47,15 @@ public class ElasticAdmin {
         this.client = client;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    /**
+     * Describes the collection from the mappings of its indices, which are kept in memory and rebuilt when they change.
+     */
     public CollectionReferenceDescription describeCollection(CollectionReference collectionReference) throws IOException {
+        return DescriptionRegistry.getDescription(client, collectionReference);
+    }
+
+    @SuppressWarnings({"rawtypes"})
+    static CollectionReferenceDescription describeCollection(CollectionReference collectionReference, List<MappingMetaData> mappings) {
         ArrayList<Pattern> excludeFields = new ArrayList<>();
         if (collectionReference.params.excludeFields != null) {
             Arrays.asList(collectionReference.params.excludeFields.split(",")).forEach(field -> {
@@ -59,24 +65,20 @@ public class ElasticAdmin {
         CollectionReferenceDescription collectionReferenceDescription = new CollectionReferenceDescription();
         collectionReferenceDescription.params = collectionReference.params;
         collectionReferenceDescription.collectionName = collectionReference.collectionName;
-        GetMappingsResponse response;
-        response = client.admin().indices()
-                .prepareGetMappings(collectionReferenceDescription.params.indexName).setTypes(collectionReferenceDescription.params.typeName).get();
-        Iterator<String> indeces = response.getMappings().keysIt();
 
         Map<String, CollectionReferenceDescriptionProperty> properties = new HashMap<>();
-        while(indeces.hasNext()) {
-            String index = indeces.next();
-            LinkedHashMap fields = (LinkedHashMap) response.getMappings()
-                    .get(index).get(collectionReferenceDescription.params.typeName).sourceAsMap().get("properties");
-            properties = union(properties, getFromSource(collectionReference, fields, new Stack<>(), excludeFields));
+        for (MappingMetaData mapping : mappings) {
+            if (mapping.sourceAsMap().get("properties") instanceof Map) {
+                Map fields = (Map) mapping.sourceAsMap().get("properties");
+                properties = union(properties, getFromSource(collectionReference, fields, new Stack<>(), excludeFields));
+            }
         }
 
         collectionReferenceDescription.properties = properties;
         return collectionReferenceDescription;
     }
 
-    private Map<String, CollectionReferenceDescriptionProperty> union(Map<String, CollectionReferenceDescriptionProperty> source, Map<String, CollectionReferenceDescriptionProperty> update) {
+    private static Map<String, CollectionReferenceDescriptionProperty> union(Map<String, CollectionReferenceDescriptionProperty> source, Map<String, CollectionReferenceDescriptionProperty> update) {
         Map<String, CollectionReferenceDescriptionProperty> ret = new HashMap<>(source);
         for (String key : update.keySet()) {
             if(!ret.containsKey(key)) {
@@ -90,7 +92,8 @@ public class ElasticAdmin {
         return ret;
     }
 
-    private Map<String, CollectionReferenceDescriptionProperty> getFromSource(CollectionReference collectionReference,Map source, Stack<String> namespace, ArrayList<Pattern> excludeFields) {
+    @SuppressWarnings({"rawtypes"})
+    private static Map<String, CollectionReferenceDescriptionProperty> getFromSource(CollectionReference collectionReference,Map source, Stack<String> namespace, ArrayList<Pattern> excludeFields) {
         Map<String, CollectionReferenceDescriptionProperty> ret = new HashMap<>();
         for (Object key : source.keySet()) {
             namespace.push(key.toString());
@@ -142,14 +145,18 @@ public class ElasticAdmin {
             ImmutableOpenMap<String, MappingMetaData> mappings = indices.get(indexName);
             for (Iterator<String> mappingNames = mappings.keysIt(); mappingNames.hasNext(); ) {
                 String mappingName = mappingNames.next();
-                CollectionReference collection = new CollectionReference();
-                collection.collectionName = indexName + "-" + mappingName;
-                collection.params = new CollectionReferenceParameters();
-                collection.params.indexName = indexName;
-                collection.params.typeName = mappingName;
-                collections.add(describeCollection(collection));
+                collections.add(describeIndexAsCollection(indexName, mappingName, mappings.get(mappingName)));
             }
         }
         return collections;
     }
+
+    public static CollectionReferenceDescription describeIndexAsCollection(String indexName, String typeName, MappingMetaData mapping) {
+        CollectionReference collection = new CollectionReference();
+        collection.collectionName = indexName + "-" + typeName;
+        collection.params = new CollectionReferenceParameters();
+        collection.params.indexName = indexName;
+        collection.params.typeName = typeName;
+        return describeCollection(collection, Collections.singletonList(mapping));
+    }
 }
@@ -0,0 +1,236 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.InternalServerErrorException;
+import io.arlas.server.exceptions.NotFoundException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.response.ElasticType;
+import org.apache.logging.log4j.util.Strings;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolved field types (type, date format, geo kind) of the collections, built once per collection reference
+ * from the mappings of all the indices behind its alias and refreshed in the background.
+ */
+public class FieldTypeRegistry {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(FieldTypeRegistry.class);
+
+    private static final int DEFAULT_SIZE = 1000;
+    private static final int DEFAULT_REFRESH_TIMEOUT = 60;
+
+    private static Client client = null;
+    private static LoadingCache<Key, CollectionFieldTypes> fieldTypes = null;
+    private static final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("field-type-registry-refresh-%d").setDaemon(true).build());
+
+    public static synchronized void configure(Client esClient, int size, int refreshTimeout) {
+        client = esClient;
+        if (fieldTypes == null) {
+            fieldTypes = CacheBuilder.newBuilder()
+                    .maximumSize(size)
+                    .refreshAfterWrite(refreshTimeout, TimeUnit.SECONDS)
+                    .build(CacheLoader.asyncReloading(new CacheLoader<Key, CollectionFieldTypes>() {
+                        public CollectionFieldTypes load(Key key) throws ArlasException {
+                            return loadFieldTypes(client, key);
+                        }
+                    }, refreshExecutor));
+        }
+    }
+
+    public static CollectionFieldTypes getFieldTypes(Client esClient, CollectionReference collectionReference) throws ArlasException {
+        if (fieldTypes == null) {
+            configure(esClient, DEFAULT_SIZE, DEFAULT_REFRESH_TIMEOUT);
+        }
+        try {
+            return fieldTypes.get(new Key(collectionReference));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof ArlasException) {
+                throw (ArlasException) e.getCause();
+            }
+            throw new InternalServerErrorException("Unable to resolve the field types of " + collectionReference.collectionName, e.getCause());
+        }
+    }
+
+    public static void invalidate(String collectionName) {
+        if (fieldTypes != null) {
+            fieldTypes.asMap().keySet().removeIf(key -> collectionName.equals(key.collectionName));
+            fieldTypes.cleanUp();
+        }
+    }
+
+    private static CollectionFieldTypes loadFieldTypes(Client client, Key key) throws ArlasException {
+        GetMappingsResponse response;
+        try {
+            response = client.admin().indices().prepareGetMappings(key.indexName).setTypes(key.typeName).get();
+        } catch (IndexNotFoundException e) {
+            throw new NotFoundException("Index " + key.indexName + " does not exist.");
+        }
+        List<MappingMetaData> mappings = new ArrayList<>();
+        Iterator<String> indices = response.getMappings().keysIt();
+        while (indices.hasNext()) {
+            MappingMetaData mapping = response.getMappings().get(indices.next()).get(key.typeName);
+            if (mapping != null) {
+                mappings.add(mapping);
+            }
+        }
+        return fromMappings(mappings);
+    }
+
+    /**
+     * Merges the field types of the mappings of the indices behind a collection.
+     */
+    static CollectionFieldTypes fromMappings(List<MappingMetaData> mappings) {
+        Map<String, FieldType> fields = new HashMap<>();
+        for (MappingMetaData mapping : mappings) {
+            if (mapping.sourceAsMap().get("properties") instanceof Map) {
+                addFromSource(fields, (Map) mapping.sourceAsMap().get("properties"), new Stack<>());
+            }
+        }
+        return new CollectionFieldTypes(fields);
+    }
+
+    private static void addFromSource(Map<String, FieldType> fields, Map source, Stack<String> namespace) {
+        for (Object key : source.keySet()) {
+            if (source.get(key) instanceof Map) {
+                namespace.push(key.toString());
+                Map property = (Map) source.get(key);
+                ElasticType type = property.containsKey("type") ? ElasticType.getType(property.get("type")) : ElasticType.OBJECT;
+                String format = property.containsKey("format") ? property.get("format").toString() : null;
+                if (format == null && type == ElasticType.DATE) {
+                    format = CollectionReference.DEFAULT_TIMESTAMP_FORMAT;
+                }
+                add(fields, Strings.join(namespace, '.'), new FieldType(type, format));
+                if (property.get("properties") instanceof Map) {
+                    addFromSource(fields, (Map) property.get("properties"), namespace);
+                }
+                // multi-fields, such as keyword sub-fields of text fields
+                if (property.get("fields") instanceof Map) {
+                    addFromSource(fields, (Map) property.get("fields"), namespace);
+                }
+                namespace.pop();
+            }
+        }
+    }
+
+    private static void add(Map<String, FieldType> fields, String path, FieldType fieldType) {
+        FieldType existing = fields.get(path);
+        if (existing == null) {
+            fields.put(path, fieldType);
+        } else if (existing.type != fieldType.type) {
+            LOGGER.warn("Type mismatch between indices' mappings for field [path=" + path + "]: " + existing.type + " and " + fieldType.type);
+            // a field is considered as a date as soon as one of the indices maps it as a date
+            if (fieldType.type == ElasticType.DATE) {
+                fields.put(path, fieldType);
+            }
+        }
+    }
+
+    public static class FieldType {
+        public final ElasticType type;
+        public final String format;
+
+        public FieldType(ElasticType type, String format) {
+            this.type = type;
+            this.format = format;
+        }
+
+        public boolean isGeo() {
+            return type == ElasticType.GEO_POINT || type == ElasticType.GEO_SHAPE;
+        }
+    }
+
+    public static class CollectionFieldTypes {
+        private final Map<String, FieldType> fields;
+
+        public CollectionFieldTypes(Map<String, FieldType> fields) {
+            this.fields = Collections.unmodifiableMap(fields);
+        }
+
+        public FieldType getFieldType(String path) {
+            return fields.get(path);
+        }
+
+        public ElasticType getType(String path) {
+            return Optional.ofNullable(fields.get(path)).map(f -> f.type).orElse(null);
+        }
+
+        public String getFormat(String path) {
+            return Optional.ofNullable(fields.get(path)).map(f -> f.format).orElse(null);
+        }
+
+        public boolean isDateField(String path) {
+            return getType(path) == ElasticType.DATE;
+        }
+
+        public boolean isGeoField(String path) {
+            return Optional.ofNullable(fields.get(path)).map(FieldType::isGeo).orElse(false);
+        }
+
+        public Set<String> getPaths() {
+            return fields.keySet();
+        }
+    }
+
+    private static class Key {
+        private final String collectionName;
+        private final String indexName;
+        private final String typeName;
+
+        private Key(CollectionReference collectionReference) {
+            this.collectionName = collectionReference.collectionName;
+            this.indexName = collectionReference.params.indexName;
+            this.typeName = collectionReference.params.typeName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(collectionName, key.collectionName) &&
+                    Objects.equals(indexName, key.indexName) &&
+                    Objects.equals(typeName, key.typeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(collectionName, indexName, typeName);
+        }
+    }
+}
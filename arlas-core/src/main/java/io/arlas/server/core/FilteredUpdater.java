@@ -26,8 +26,10 @@ import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.enumerations.Action;
 import io.arlas.server.model.request.Tag;
 import io.arlas.server.model.response.UpdateResponse;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
 import org.elasticsearch.index.reindex.BulkByScrollResponse;
 import org.elasticsearch.index.reindex.UpdateByQueryAction;
 import org.elasticsearch.index.reindex.UpdateByQueryRequestBuilder;
@@ -36,16 +38,65 @@ import org.elasticsearch.script.ScriptType;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class FilteredUpdater extends FluidSearch{
 
+    // the sources are fixed, the tag path and value are passed as parameters: Elasticsearch compiles each script once
+    private static final String FIND_PARENT = "def parent = ctx._source;\n" +
+            "for (int i = 0; i < params.path.size() - 1 && parent != null; i++) {\n" +
+            "\tparent = parent[params.path[i]];\n" +
+            "}\n" +
+            "String key = params.path[params.path.size() - 1];\n";
+    private static final String ADD_TAG_SCRIPT = "def parent = ctx._source;\n" +
+            "for (int i = 0; i < params.path.size() - 1; i++) {\n" +
+            "\tif (parent[params.path[i]] == null) {\n" +
+            "\t\tparent[params.path[i]] = new HashMap();\n" +
+            "\t}\n" +
+            "\tparent = parent[params.path[i]];\n" +
+            "}\n" +
+            "String key = params.path[params.path.size() - 1];\n" +
+            "if (parent[key] == null) {\n" +
+            "\tparent[key] = new ArrayList();\n" +
+            "}\n" +
+            "if (!(parent[key] instanceof List)) {\n" +
+            "\tObject o = parent[key];\n" +
+            "\tparent[key] = new ArrayList();\n" +
+            "\tparent[key].add(o);\n" +
+            "}\n" +
+            "parent[key].add(params.value);\n";
+    private static final String REMOVE_TAG_SCRIPT = FIND_PARENT +
+            "if (parent != null && parent[key] instanceof List) {\n" +
+            "\tparent[key].removeAll(Collections.singleton(params.value));\n" +
+            "}\n";
+    private static final String REMOVE_ALL_TAGS_SCRIPT = FIND_PARENT +
+            "if (parent != null) {\n" +
+            "\tparent[key] = null;\n" +
+            "}\n";
+
     public FilteredUpdater(Client client) {
         super(client);
     }
 
     public UpdateResponse doAction(Action action, CollectionReference collectionReference, Tag tag, int max_updates) throws IOException, ArlasException {
+        return getUpdateResponse(action, prepareAction(action, collectionReference, tag, max_updates).get());
+    }
+
+    /**
+     * Starts the update without waiting for it: when the number of updates is not bounded, the documents are updated by
+     * slices, in parallel. A bounded update is not sliced, as its size would be split between the slices.
+     */
+    public void doActionAsync(Action action, CollectionReference collectionReference, Tag tag, int max_updates, ActionListener<UpdateResponse> listener) throws IOException, ArlasException {
+        UpdateByQueryRequestBuilder updateByQuery = prepareAction(action, collectionReference, tag, max_updates);
+        if (updateByQuery.request().getSize() == AbstractBulkByScrollRequest.SIZE_ALL_MATCHES) {
+            updateByQuery.setSlices(AbstractBulkByScrollRequest.AUTO_SLICES);
+        }
+        updateByQuery.execute(ActionListener.wrap(response -> listener.onResponse(getUpdateResponse(action, response)), listener::onFailure));
+    }
+
+    private UpdateByQueryRequestBuilder prepareAction(Action action, CollectionReference collectionReference, Tag tag, int max_updates) throws IOException, ArlasException {
         if(Strings.isNullOrEmpty(tag.path)){
             throw new io.arlas.server.exceptions.BadRequestException("The tag path must be provided and must not be empty");
         }
@@ -58,9 +109,15 @@ public class FilteredUpdater extends FluidSearch{
         updateByQuery
                 .source(collectionReference.params.indexName)
                 .filter(this.getBoolQueryBuilder())
-                .size(Math.min(collectionReference.params.update_max_hits,max_updates))
                 .script(this.getTagScript(tag, action));
-        BulkByScrollResponse response = updateByQuery.get();
+        int size = Math.min(collectionReference.params.update_max_hits,max_updates);
+        if (size < Integer.MAX_VALUE) {
+            updateByQuery.size(size);
+        }
+        return updateByQuery;
+    }
+
+    private UpdateResponse getUpdateResponse(Action action, BulkByScrollResponse response) {
         UpdateResponse updateResponse = new UpdateResponse();
         updateResponse.failures.addAll(response.getSearchFailures()
                 .stream().map(f->new UpdateResponse.Failure(f.getIndex(),f.getReason().getMessage(),"SearchFailure")).collect(Collectors.toList()));
@@ -75,44 +132,32 @@ public class FilteredUpdater extends FluidSearch{
 
     public Script getTagScript(Tag tag, Action action) throws BadRequestException, NotImplementedException {
         String script="";
+        Map<String, Object> params = new HashMap<>();
+        params.put("path", Arrays.asList(tag.path.split("\\.")));
         if(action.equals(Action.ADD)){
-            script+="if (ctx._source."+tag.path+" == null) {\n" +
-                    "\tctx._source."+tag.path+" = new ArrayList(); \n" +
-                    "}\n";
-            script+="if (!(ctx._source."+tag.path+" instanceof List)) {\n" +
-                    "\tObject o = ctx._source."+tag.path+"; \n"+
-                    "\tctx._source."+tag.path+" = new ArrayList(); \n" +
-                    "\tctx._source."+tag.path+".add(o)\n"+
-                    "}\n";
-            if(tag.value==null && Strings.isNullOrEmpty(tag.value.toString())){
+            if(tag.value==null || Strings.isNullOrEmpty(tag.value.toString())){
                 throw new io.arlas.server.exceptions.BadRequestException("The tag value must be provided and must not be empty");
             }
-            if(tag.value instanceof Number){
-                script+="ctx._source."+tag.path+".add("+tag.value+")\n";
-            }else{
-                script+="ctx._source."+tag.path+".add('"+tag.value.toString()+"')\n";
-            }
+            script=ADD_TAG_SCRIPT;
+            params.put("value", tag.value instanceof Number ? tag.value : tag.value.toString());
         }
         if(action.equals(Action.REMOVE)){
             if(tag.value==null){
                 throw new io.arlas.server.exceptions.BadRequestException("The tag value must be provided and must not be empty");
             }
-            script+="if (ctx._source."+tag.path+" != null) {\n";
-
             if(tag.value instanceof Number){
                 throw new io.arlas.server.exceptions.NotImplementedException("Removal of a number tag is not yet supported");
-                //script+="\tctx._source."+tag.path+".remove("+tag.value+")\n";
             }else{
                 if(Strings.isNullOrEmpty(tag.value.toString())){
                     throw new io.arlas.server.exceptions.BadRequestException("The tag value must be provided and must not be empty");
                 }
-                script+="ctx._source."+tag.path+".removeAll(Collections.singleton(\""+tag.value.toString()+"\"))\n";
+                script=REMOVE_TAG_SCRIPT;
+                params.put("value", tag.value.toString());
             }
-            script+="}\n";
         }
         if(action.equals(Action.REMOVEALL)){
-            script+="ctx._source."+tag.path+" = null";
+            script=REMOVE_ALL_TAGS_SCRIPT;
         }
-        return new Script(ScriptType.INLINE,"painless", script, Collections.emptyMap());
+        return new Script(ScriptType.INLINE,"painless", script, params);
     }
 }
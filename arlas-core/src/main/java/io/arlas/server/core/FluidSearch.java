@@ -53,8 +53,10 @@ import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInter
 import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.IncludeExclude;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
 import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -69,6 +71,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -116,6 +119,8 @@ public class FluidSearch {
 
     public static final String FIELD_MIN_VALUE = "field_min_value";
     public static final String FIELD_MAX_VALUE = "field_max_value";
+    public static final String FIELD_STATS = "field_stats_";
+    public static final String FIELD_CARDINALITY = "field_cardinality_";
 
     public static final String RANDOM_GEOMETRY = "random_geometry";
     public static final String FIRST_GEOMETRY = "first_geometry";
@@ -143,6 +148,28 @@ public class FluidSearch {
     }
 
     public SearchResponse exec() throws ArlasException {
+        getRequest();
+        //Get Elasticsearch response
+        LOGGER.debug("QUERY : " + searchRequestBuilder.toString());
+        SearchResponse result = null;
+        result = RequestCoalescer.get(searchRequestBuilder);
+        return result;
+    }
+
+    /**
+     * Same as {@link #exec()} but the request is sent without blocking the calling thread: the returned future is completed
+     * by the Elasticsearch client when the response (or the failure) comes back.
+     */
+    public CompletableFuture<SearchResponse> execAsync() throws ArlasException {
+        getRequest();
+        LOGGER.debug("QUERY : " + searchRequestBuilder.toString());
+        return RequestCoalescer.execute(searchRequestBuilder);
+    }
+
+    /**
+     * @return the request sent by {@link #exec()}, for callers that send it themselves (e.g. within a multi search)
+     */
+    public SearchRequestBuilder getRequest() throws ArlasException {
         searchRequestBuilder.setQuery(boolQueryBuilder);
 
         if (collectionReference.params.excludeFields != null && !collectionReference.params.excludeFields.isEmpty()) {
@@ -181,15 +208,40 @@ public class FluidSearch {
             excludeFields = null;
         }
         searchRequestBuilder = searchRequestBuilder.setFetchSource(includeFields, excludeFields);
+        return searchRequestBuilder;
+    }
+
+    /**
+     * Executes the request without fetching any hit (size 0, no _source): only the total number of hits and the aggregations
+     * are returned. It is meant for the services that never read the hits (count, aggregations, range...) and makes these
+     * requests eligible for the shard request cache.
+     */
+    public SearchResponse execWithoutHits() throws ArlasException {
+        getRequestWithoutHits();
 
         //Get Elasticsearch response
         LOGGER.debug("QUERY : " + searchRequestBuilder.toString());
-        SearchResponse result = null;
-        result = searchRequestBuilder.get();
-        return result;
+        return RequestCoalescer.get(searchRequestBuilder);
     }
 
-    public String getCountDistinctKey(String field) {
+    /**
+     * Same as {@link #execWithoutHits()} but the request is sent without blocking the calling thread.
+     */
+    public CompletableFuture<SearchResponse> execWithoutHitsAsync() throws ArlasException {
+        getRequestWithoutHits();
+        LOGGER.debug("QUERY : " + searchRequestBuilder.toString());
+        return RequestCoalescer.execute(searchRequestBuilder);
+    }
+
+    /**
+     * @return the request sent by {@link #execWithoutHits()}, for callers that send it themselves (e.g. within a multi search)
+     */
+    public SearchRequestBuilder getRequestWithoutHits() {
+        searchRequestBuilder = searchRequestBuilder.setQuery(boolQueryBuilder).setSize(0).setFetchSource(false);
+        return searchRequestBuilder;
+    }
+
+    public static String getCountDistinctKey(String field) {
         return "distinct-" + field + "-values";
     }
 
@@ -548,6 +600,29 @@ public class FluidSearch {
         return this;
     }
 
+    /**
+     * Same as {@link #getFieldRange(String)} for several fields at once : the stats (count, min, max, avg) and the cardinality
+     * of each field are computed by the same request. The aggregations of the i-th field are named with {@link #getFieldStatsKey(int)}
+     * and {@link #getFieldCardinalityKey(int)}.
+     */
+    public FluidSearch getFieldsStats(List<String> fields) {
+        for (int i = 0; i < fields.size(); i++) {
+            StatsAggregationBuilder statsAggregationBuilder = AggregationBuilders.stats(getFieldStatsKey(i)).field(fields.get(i));
+            CardinalityAggregationBuilder cardinalityAggregationBuilder = AggregationBuilders.cardinality(getFieldCardinalityKey(i)).field(fields.get(i));
+            searchRequestBuilder = searchRequestBuilder.addAggregation(statsAggregationBuilder).addAggregation(cardinalityAggregationBuilder);
+        }
+        searchRequestBuilder = searchRequestBuilder.setSize(0);
+        return this;
+    }
+
+    public String getFieldStatsKey(int fieldIndex) {
+        return FIELD_STATS + fieldIndex;
+    }
+
+    public String getFieldCardinalityKey(int fieldIndex) {
+        return FIELD_CARDINALITY + fieldIndex;
+    }
+
     private DateHistogramAggregationBuilder buildDateHistogramAggregation(Aggregation aggregationModel) throws ArlasException {
         if (Strings.isNullOrEmpty(aggregationModel.field)) {
             aggregationModel.field = collectionReference.params.timestampPath;
@@ -944,7 +1019,7 @@ public class FluidSearch {
     }
 
     public boolean isDateField(String field) throws ArlasException {
-        return ElasticTool.isDateField(field, client, collectionReference.params.indexName, collectionReference.params.typeName);
+        return FieldTypeRegistry.getFieldTypes(client, collectionReference).isDateField(field);
     }
 
     public void setCollectionReference(CollectionReference collectionReference) {
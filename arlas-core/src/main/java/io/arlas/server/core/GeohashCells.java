@@ -0,0 +1,92 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.lucene.geo.Rectangle;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.geojson.LngLatAlt;
+import org.geojson.Point;
+import org.geojson.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Centre, centroid and extent of the geohash cells returned by the geohash aggregations, whatever their precision,
+ * shared by all the requests: the same cells are requested over and over while the maps are panned.
+ * The geometries are shared between the responses and must not be modified.
+ */
+public class GeohashCells {
+
+    private static final int DEFAULT_SIZE = 20000;
+
+    private static int size = DEFAULT_SIZE;
+    private static LoadingCache<String, Cell> cells = build(DEFAULT_SIZE);
+
+    public static synchronized void configure(int cacheSize) {
+        if (cacheSize != size) {
+            size = cacheSize;
+            cells = build(cacheSize);
+        }
+    }
+
+    public static Cell get(String geohash) {
+        return cells.getUnchecked(geohash);
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(GeohashCells.class, "hits"), (Gauge<Long>) () -> cells.stats().hitCount());
+        metrics.register(MetricRegistry.name(GeohashCells.class, "misses"), (Gauge<Long>) () -> cells.stats().missCount());
+        metrics.register(MetricRegistry.name(GeohashCells.class, "hit-ratio"), (Gauge<Double>) () -> cells.stats().hitRate());
+        metrics.register(MetricRegistry.name(GeohashCells.class, "entries"), (Gauge<Long>) () -> cells.size());
+    }
+
+    private static LoadingCache<String, Cell> build(int size) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .recordStats()
+                .build(CacheLoader.from(Cell::new));
+    }
+
+    public static class Cell {
+        public final GeoPoint centre;
+        public final Point centroid;
+        public final Polygon extent;
+
+        private Cell(String geohash) {
+            Rectangle bbox = GeoHashUtils.bbox(geohash);
+            centre = new GeoPoint((bbox.maxLat + bbox.minLat) / 2, (bbox.maxLon + bbox.minLon) / 2);
+            centroid = new Point(centre.getLon(), centre.getLat());
+            extent = new Polygon();
+            List<LngLatAlt> bounds = new ArrayList<>(4);
+            bounds.add(new LngLatAlt(bbox.minLon, bbox.maxLat));
+            bounds.add(new LngLatAlt(bbox.maxLon, bbox.maxLat));
+            bounds.add(new LngLatAlt(bbox.maxLon, bbox.minLat));
+            bounds.add(new LngLatAlt(bbox.minLon, bbox.minLat));
+            extent.add(bounds);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.client.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the changes of the documents of the indices behind the collections.
+ * <p>
+ * The documents and indexing statistics of each index that has been asked for are polled periodically. Their signature
+ * identifies the state of the documents of the index in the cluster, and a local generation is bumped whenever it changes
+ * or when the index is explicitly invalidated. The listeners are notified of each new generation.
+ */
+public class IndexGenerations {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(IndexGenerations.class);
+
+    private final Client client;
+    private final Map<String, IndexGeneration> generations = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public IndexGenerations(Client client, int poll) {
+        this.client = client;
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("index-generations-%d").setDaemon(true).build());
+        poller.scheduleWithFixedDelay(this::poll, poll, poll, TimeUnit.SECONDS);
+    }
+
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    public long getGeneration(String indexName) {
+        return get(indexName).generation.get();
+    }
+
+    /**
+     * @return the signature of the documents of the index, fetched right away if it is not known yet; null if the
+     * statistics of the index can not be fetched
+     */
+    public String getSignature(String indexName) {
+        IndexGeneration generation = get(indexName);
+        String signature = generation.signature;
+        if (signature == null) {
+            signature = fetchSignature(indexName);
+            generation.signature = signature;
+        }
+        return signature;
+    }
+
+    /**
+     * Starts a new generation for the index; its signature is fetched again on its next use.
+     */
+    public void invalidate(String indexName) {
+        IndexGeneration generation = get(indexName);
+        generation.signature = null;
+        generation.generation.incrementAndGet();
+        listeners.forEach(listener -> listener.accept(indexName));
+    }
+
+    private IndexGeneration get(String indexName) {
+        return generations.computeIfAbsent(indexName, name -> new IndexGeneration());
+    }
+
+    private void poll() {
+        for (Map.Entry<String, IndexGeneration> entry : generations.entrySet()) {
+            String indexName = entry.getKey();
+            IndexGeneration generation = entry.getValue();
+            String signature = fetchSignature(indexName);
+            if (signature == null || !signature.equals(generation.signature)) {
+                if (generation.signature != null) {
+                    LOGGER.debug("Index " + indexName + " changed");
+                }
+                invalidate(indexName);
+                generation.signature = signature;
+            }
+        }
+    }
+
+    private String fetchSignature(String indexName) {
+        if (client == null) {
+            return null;
+        }
+        try {
+            IndicesStatsResponse stats = client.admin().indices().prepareStats(indexName).clear().setDocs(true).setIndexing(true).get();
+            CommonStats primaries = stats.getPrimaries();
+            return primaries.getDocs().getCount() + ":" + primaries.getDocs().getDeleted() + ":"
+                    + primaries.getIndexing().getTotal().getIndexCount() + ":" + primaries.getIndexing().getTotal().getDeleteCount();
+        } catch (Exception e) {
+            LOGGER.warn("Unable to get the statistics of " + indexName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static class IndexGeneration {
+        private final AtomicLong generation = new AtomicLong();
+        private volatile String signature = null;
+    }
+}
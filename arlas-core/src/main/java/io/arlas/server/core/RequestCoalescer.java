@@ -0,0 +1,159 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.search.Scroll;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Coalesces the identical search requests (same indices, types, search source and request options) that are in flight
+ * at the same time: the later callers get the pending response of the first one instead of sending a new request.
+ * As the response is shared, the callers must not modify it, nor the sources of its hits.
+ * A request is forgotten as soon as its response arrives, so the responses are never older than the callers.
+ * The responses are completed on a pool of the application rather than on the network threads of the Elasticsearch
+ * client, which must not run the callers' stages.
+ */
+public class RequestCoalescer {
+
+    private static final Map<Key, CompletableFuture<SearchResponse>> inFlight = new ConcurrentHashMap<>();
+    private static final Counter requests = new Counter();
+    private static final Counter coalescedRequests = new Counter();
+    private static final ExecutorService completionExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("search-response-%d").setDaemon(true).build());
+
+    public static CompletableFuture<SearchResponse> execute(SearchRequestBuilder searchRequestBuilder) {
+        Key key = new Key(searchRequestBuilder.request());
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        CompletableFuture<SearchResponse> pending = inFlight.putIfAbsent(key, future);
+        requests.inc();
+        if (pending != null) {
+            coalescedRequests.inc();
+            return pending;
+        }
+        searchRequestBuilder.execute(new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+                inFlight.remove(key, future);
+                completionExecutor.execute(() -> future.complete(searchResponse));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                inFlight.remove(key, future);
+                // unwrap the transport exceptions as the blocking get() does
+                completionExecutor.execute(() -> future.completeExceptionally(ExceptionsHelper.unwrapCause(e)));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Blocking version of {@link #execute(SearchRequestBuilder)}, failing like {@link SearchRequestBuilder#get()}.
+     */
+    public static SearchResponse get(SearchRequestBuilder searchRequestBuilder) {
+        try {
+            return execute(searchRequestBuilder).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ElasticsearchException(e.getCause());
+        }
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(RequestCoalescer.class, "requests"), requests);
+        metrics.register(MetricRegistry.name(RequestCoalescer.class, "coalesced"), coalescedRequests);
+        metrics.register(MetricRegistry.name(RequestCoalescer.class, "coalescing-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(coalescedRequests.getCount(), requests.getCount());
+            }
+        });
+    }
+
+    private static class Key {
+        private final String indices;
+        private final String types;
+        private final String source;
+        private final String preference;
+        private final String routing;
+        private final Boolean requestCache;
+        private final SearchType searchType;
+        private final Scroll scroll;
+        private final IndicesOptions indicesOptions;
+        private final Boolean allowPartialSearchResults;
+
+        private Key(SearchRequest request) {
+            this.indices = Arrays.toString(request.indices());
+            this.types = Arrays.toString(request.types());
+            this.source = String.valueOf(request.source());
+            this.preference = request.preference();
+            this.routing = request.routing();
+            this.requestCache = request.requestCache();
+            this.searchType = request.searchType();
+            this.scroll = request.scroll();
+            this.indicesOptions = request.indicesOptions();
+            this.allowPartialSearchResults = request.allowPartialSearchResults();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(indices, key.indices) &&
+                    Objects.equals(types, key.types) &&
+                    Objects.equals(source, key.source) &&
+                    Objects.equals(preference, key.preference) &&
+                    Objects.equals(routing, key.routing) &&
+                    Objects.equals(requestCache, key.requestCache) &&
+                    searchType == key.searchType &&
+                    Objects.equals(scroll, key.scroll) &&
+                    Objects.equals(indicesOptions, key.indicesOptions) &&
+                    Objects.equals(allowPartialSearchResults, key.allowPartialSearchResults);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(indices, types, source, preference, routing, requestCache, searchType, scroll, indicesOptions, allowPartialSearchResults);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.arlas.server.app.ResultCacheConfiguration;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.request.MixedRequest;
+import io.arlas.server.model.request.Request;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of the Elasticsearch responses of the explore requests that do not return hits (count, aggregations,
+ * range, stats).
+ * <p>
+ * Entries are keyed by the collection, the operation and a canonical form of the request (basic request without its output
+ * form, partition filter and collection filter). They are weighted by an estimate of their size, from the number of
+ * aggregation buckets they hold, and expire after the configured timeout.
+ * The entries of an index are dropped, and never served again, as soon as a new generation of the index starts.
+ */
+public class ResultCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ResultCache.class);
+
+    // estimated sizes, in bytes, of a response and of each of its aggregations and buckets
+    static final int RESPONSE_WEIGHT = 1024;
+    static final int AGGREGATION_WEIGHT = 256;
+    static final int BUCKET_WEIGHT = 256;
+
+    private static final ObjectMapper canonicalMapper = new ObjectMapper()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            // the output form (pretty, flat) does not change the Elasticsearch response
+            .addMixIn(Request.class, WithoutForm.class);
+
+    private final IndexGenerations generations;
+    private final boolean enabled;
+    private final Cache<Key, SearchResponse> responses;
+
+    public ResultCache(IndexGenerations generations, ResultCacheConfiguration configuration) {
+        this.generations = generations;
+        this.enabled = Boolean.TRUE.equals(configuration.enabled);
+        this.responses = CacheBuilder.newBuilder()
+                .maximumWeight(configuration.maxWeight)
+                .weigher((Key key, SearchResponse response) -> key.canonicalRequest.length() + weigh(response))
+                .expireAfterWrite(configuration.timeout, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        generations.addListener(indexName -> responses.asMap().keySet().removeIf(key -> key.indexName.equals(indexName)));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the key of the given request, or null if the cache is disabled or if the request can not be serialized
+     */
+    public Key key(String operation, MixedRequest request, CollectionReference collectionReference) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            String canonicalRequest = canonicalMapper.writeValueAsString(Arrays.asList(
+                    operation,
+                    collectionReference.params.filter,
+                    request.basicRequest,
+                    request.headerRequest != null ? request.headerRequest.filter : null));
+            String indexName = collectionReference.params.indexName;
+            return new Key(collectionReference.collectionName, indexName, generations.getGeneration(indexName), canonicalRequest);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Unable to build the result cache key of a " + operation + " request", e);
+            return null;
+        }
+    }
+
+    public SearchResponse get(Key key) {
+        return key != null ? responses.getIfPresent(key) : null;
+    }
+
+    public void put(Key key, SearchResponse response) {
+        // a response computed while the index changed belongs to an old generation: it is not kept
+        if (key != null && key.generation == generations.getGeneration(key.indexName)) {
+            responses.put(key, response);
+        }
+    }
+
+    /**
+     * Starts a new generation for the index: its cached results, as well as the results of the requests being executed, are
+     * never served again.
+     */
+    public void invalidate(String indexName) {
+        generations.invalidate(indexName);
+    }
+
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(ResultCache.class, "hits"), (Gauge<Long>) () -> responses.stats().hitCount());
+        metrics.register(MetricRegistry.name(ResultCache.class, "misses"), (Gauge<Long>) () -> responses.stats().missCount());
+        metrics.register(MetricRegistry.name(ResultCache.class, "evictions"), (Gauge<Long>) () -> responses.stats().evictionCount());
+        metrics.register(MetricRegistry.name(ResultCache.class, "hit-ratio"), (Gauge<Double>) () -> responses.stats().hitRate());
+        metrics.register(MetricRegistry.name(ResultCache.class, "entries"), (Gauge<Long>) responses::size);
+    }
+
+    /**
+     * Estimates the size of a hitless response by walking its aggregations, which is much cheaper than serializing it.
+     */
+    static int weigh(SearchResponse response) {
+        return RESPONSE_WEIGHT + weigh(response.getAggregations());
+    }
+
+    private static int weigh(Aggregations aggregations) {
+        int weight = 0;
+        if (aggregations != null) {
+            for (Aggregation aggregation : aggregations) {
+                weight += AGGREGATION_WEIGHT;
+                if (aggregation instanceof MultiBucketsAggregation) {
+                    for (MultiBucketsAggregation.Bucket bucket : ((MultiBucketsAggregation) aggregation).getBuckets()) {
+                        weight += BUCKET_WEIGHT + weigh(bucket.getAggregations());
+                    }
+                } else if (aggregation instanceof SingleBucketAggregation) {
+                    weight += weigh(((SingleBucketAggregation) aggregation).getAggregations());
+                }
+            }
+        }
+        return weight;
+    }
+
+    @JsonIgnoreProperties({"form"})
+    private static abstract class WithoutForm {
+    }
+
+    public static class Key {
+        private final String collectionName;
+        private final String indexName;
+        private final long generation;
+        private final String canonicalRequest;
+
+        private Key(String collectionName, String indexName, long generation, String canonicalRequest) {
+            this.collectionName = collectionName;
+            this.indexName = indexName;
+            this.generation = generation;
+            this.canonicalRequest = canonicalRequest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return generation == key.generation &&
+                    Objects.equals(collectionName, key.collectionName) &&
+                    Objects.equals(indexName, key.indexName) &&
+                    Objects.equals(canonicalRequest, key.canonicalRequest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(collectionName, indexName, generation, canonicalRequest);
+        }
+    }
+}
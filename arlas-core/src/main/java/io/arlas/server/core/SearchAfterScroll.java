@@ -0,0 +1,64 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import io.arlas.server.exceptions.ArlasException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+/**
+ * Walks all the hits matching a search request, page by page, using search_after on the sort of the request: only one
+ * page of hits is held in memory at a time. The request must be sorted on a unique field, such as the collection's id.
+ * The first page is fetched on creation so that an invalid request fails before any hit is consumed.
+ */
+public class SearchAfterScroll {
+
+    private final SearchRequestBuilder request;
+    private final int pageSize;
+    private SearchHit[] page;
+
+    public SearchAfterScroll(SearchRequestBuilder request, int pageSize) {
+        this.request = request.setFrom(0).setSize(pageSize);
+        this.pageSize = pageSize;
+        this.page = this.request.get().getHits().getHits();
+    }
+
+    public void forEach(HitConsumer consumer) throws IOException, ArlasException {
+        while (page.length > 0) {
+            for (SearchHit hit : page) {
+                consumer.accept(hit);
+            }
+            if (page.length < pageSize) {
+                break;
+            }
+            request.searchAfter(page[page.length - 1].getSortValues());
+            // releases the current page before fetching the next one
+            page = new SearchHit[0];
+            page = request.get().getHits().getHits();
+        }
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(SearchHit hit) throws IOException, ArlasException;
+    }
+}
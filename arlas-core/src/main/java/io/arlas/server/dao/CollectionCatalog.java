@@ -0,0 +1,289 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.arlas.server.core.DescriptionRegistry;
+import io.arlas.server.core.ElasticAdmin;
+import io.arlas.server.core.FieldTypeRegistry;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.InternalServerErrorException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.response.CollectionReferenceDescription;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory snapshot of the collections stored in the ARLAS index, with their descriptions.
+ * The snapshot is rebuilt in the background every cache timeout, once it has been read: only the collections whose
+ * document version changed are fetched and described again, and the collections modified or deleted by other nodes
+ * are invalidated in the registries. Collections put or deleted through this node are applied to the snapshot right away.
+ */
+public class CollectionCatalog {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(CollectionCatalog.class);
+
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final TimeValue SCROLL_TIMEOUT = new TimeValue(60000);
+    //Exclude old include_fields for support old collection
+    private static final String[] EXCLUDED_SOURCE_FIELDS = {"include_fields"};
+
+    private static Client client = null;
+    private static String arlasIndex = null;
+    private static String arlasType = null;
+    private static ObjectReader reader = null;
+
+    private static volatile Snapshot snapshot = null;
+    private static final AtomicLong localChanges = new AtomicLong();
+    private static final AtomicLong refreshFailures = new AtomicLong();
+    private static final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("collection-catalog-refresh-%d").setDaemon(true).build());
+
+    /**
+     * Configures the catalog on its first call; the next calls keep it as is.
+     */
+    public static synchronized void configure(Client esClient, String index, String type, ObjectReader objectReader, int refreshTimeout) {
+        if (client == null) {
+            client = esClient;
+            arlasIndex = index;
+            arlasType = type;
+            reader = objectReader;
+            refreshExecutor.scheduleWithFixedDelay(CollectionCatalog::refresh, refreshTimeout, refreshTimeout, TimeUnit.SECONDS);
+        }
+    }
+
+    public static List<CollectionReference> getCollectionReferences() throws ArlasException {
+        return getSnapshot().entries.values().stream().map(entry -> entry.reference).collect(Collectors.toList());
+    }
+
+    public static List<CollectionReferenceDescription> getCollectionDescriptions() throws ArlasException {
+        List<CollectionReferenceDescription> descriptions = new ArrayList<>();
+        for (Entry entry : getSnapshot().entries.values()) {
+            if (entry.description != null) {
+                descriptions.add(entry.description);
+            } else {
+                // the collection could not be described when the snapshot was built: the error is reported to the caller
+                try {
+                    descriptions.add(new ElasticAdmin(client).describeCollection(entry.reference));
+                } catch (IOException e) {
+                    throw new InternalServerErrorException("Can not describe collection " + entry.reference.collectionName, e);
+                }
+            }
+        }
+        return descriptions;
+    }
+
+    /**
+     * Applies a put or a delete of the given collection to the snapshot, reading it back with a realtime get.
+     */
+    public static void update(String ref) throws ArlasException {
+        if (snapshot == null) {
+            // built on first read
+            return;
+        }
+        // a refresh already running may have listed the collections before this change: its result is dropped
+        localChanges.incrementAndGet();
+        GetResponse response = client.prepareGet(arlasIndex, arlasType, ref).setFetchSource(null, EXCLUDED_SOURCE_FIELDS).get();
+        Entry entry = response.isExists() ? describe(toEntry(response)) : null;
+        synchronized (CollectionCatalog.class) {
+            Map<String, Entry> entries = new LinkedHashMap<>(snapshot.entries);
+            if (entry == null) {
+                entries.remove(ref);
+            } else {
+                entries.put(ref, entry);
+            }
+            snapshot = new Snapshot(entries, snapshot.builtAt, snapshot.descriptionGeneration);
+        }
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(CollectionCatalog.class, "entries"), (Gauge<Integer>) () -> snapshot == null ? 0 : snapshot.entries.size());
+        metrics.register(MetricRegistry.name(CollectionCatalog.class, "age"), (Gauge<Long>) () -> snapshot == null ? 0 : (System.currentTimeMillis() - snapshot.builtAt) / 1000);
+        metrics.register(MetricRegistry.name(CollectionCatalog.class, "refresh-failures"), (Gauge<Long>) refreshFailures::get);
+    }
+
+    private static Snapshot getSnapshot() throws ArlasException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (CollectionCatalog.class) {
+                if (snapshot == null) {
+                    snapshot = build(null);
+                }
+                return snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static void refresh() {
+        if (snapshot == null) {
+            // built on first read
+            return;
+        }
+        try {
+            long changes = localChanges.get();
+            Snapshot refreshed = build(snapshot);
+            synchronized (CollectionCatalog.class) {
+                // otherwise the snapshot stays stale and is refreshed again on next read
+                if (localChanges.get() == changes) {
+                    snapshot = refreshed;
+                }
+            }
+        } catch (Exception e) {
+            refreshFailures.incrementAndGet();
+            LOGGER.warn("Unable to refresh the collections of " + arlasIndex, e);
+        }
+    }
+
+    private static Snapshot build(Snapshot previousSnapshot) throws ArlasException {
+        Map<String, Entry> previous = previousSnapshot == null ? Collections.emptyMap() : previousSnapshot.entries;
+        // the descriptions follow the mappings through the DescriptionRegistry: the unchanged collections are only
+        // described again if the registry rebuilt some descriptions since the previous snapshot
+        long descriptionGeneration = DescriptionRegistry.getGeneration();
+        boolean mappingsChanged = previousSnapshot == null || previousSnapshot.descriptionGeneration != descriptionGeneration;
+        Map<String, Long> versions = listVersions();
+        List<String> changed = versions.entrySet().stream()
+                .filter(version -> !previous.containsKey(version.getKey()) || previous.get(version.getKey()).version != version.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        Map<String, Entry> fetched = fetch(changed);
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (String ref : versions.keySet()) {
+            if (fetched.containsKey(ref)) {
+                entries.put(ref, describe(fetched.get(ref)));
+            } else if (previous.containsKey(ref)) {
+                Entry entry = previous.get(ref);
+                entries.put(ref, mappingsChanged || entry.description == null ? describe(entry) : entry);
+            }
+        }
+        for (String ref : previous.keySet()) {
+            if (!entries.containsKey(ref) || fetched.containsKey(ref)) {
+                // modified or deleted by another node
+                CollectionReferenceRegistry.invalidate(ref);
+                FieldTypeRegistry.invalidate(ref);
+            }
+        }
+        return new Snapshot(entries, System.currentTimeMillis(), descriptionGeneration);
+    }
+
+    private static Map<String, Long> listVersions() throws ArlasException {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        try {
+            SearchResponse response = client.prepareSearch(arlasIndex).setFetchSource(false).setVersion(true)
+                    .addSort(FieldSortBuilder.DOC_FIELD_NAME, SortOrder.ASC).setScroll(SCROLL_TIMEOUT)
+                    .setQuery(QueryBuilders.matchAllQuery()).setSize(LIST_PAGE_SIZE).get();
+            while (true) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    versions.put(hit.getId(), hit.getVersion());
+                }
+                if (response.getHits().getHits().length < LIST_PAGE_SIZE) {
+                    break;
+                }
+                response = client.prepareSearchScroll(response.getScrollId()).setScroll(SCROLL_TIMEOUT).get();
+            }
+            client.prepareClearScroll().addScrollId(response.getScrollId()).get();
+        } catch (IndexNotFoundException e) {
+            throw new InternalServerErrorException("Unreachable collections", e);
+        }
+        return versions;
+    }
+
+    private static Map<String, Entry> fetch(List<String> refs) throws ArlasException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (refs.isEmpty()) {
+            return entries;
+        }
+        MultiGetRequestBuilder request = client.prepareMultiGet();
+        FetchSourceContext source = new FetchSourceContext(true, null, EXCLUDED_SOURCE_FIELDS);
+        refs.forEach(ref -> request.add(new MultiGetRequest.Item(arlasIndex, arlasType, ref).fetchSourceContext(source)));
+        for (MultiGetItemResponse item : request.get()) {
+            // deleted since it was listed
+            if (!item.isFailed() && item.getResponse().isExists()) {
+                entries.put(item.getId(), toEntry(item.getResponse()));
+            }
+        }
+        return entries;
+    }
+
+    private static Entry toEntry(GetResponse response) throws ArlasException {
+        try {
+            return new Entry(new CollectionReference(response.getId(), reader.readValue(response.getSourceAsString())), response.getVersion(), null);
+        } catch (IOException e) {
+            throw new InternalServerErrorException("Can not fetch collection " + response.getId(), e);
+        }
+    }
+
+    private static Entry describe(Entry entry) {
+        try {
+            return new Entry(entry.reference, entry.version, new ElasticAdmin(client).describeCollection(entry.reference));
+        } catch (Exception e) {
+            LOGGER.debug("Unable to describe collection " + entry.reference.collectionName, e);
+            return new Entry(entry.reference, entry.version, null);
+        }
+    }
+
+    private static class Entry {
+        private final CollectionReference reference;
+        private final long version;
+        private final CollectionReferenceDescription description;
+
+        private Entry(CollectionReference reference, long version, CollectionReferenceDescription description) {
+            this.reference = reference;
+            this.version = version;
+            this.description = description;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, Entry> entries;
+        private final long builtAt;
+        private final long descriptionGeneration;
+
+        private Snapshot(Map<String, Entry> entries, long builtAt, long descriptionGeneration) {
+            this.entries = Collections.unmodifiableMap(entries);
+            this.builtAt = builtAt;
+            this.descriptionGeneration = descriptionGeneration;
+        }
+    }
+}
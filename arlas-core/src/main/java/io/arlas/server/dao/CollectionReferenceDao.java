@@ -21,6 +21,7 @@ package io.arlas.server.dao;
 
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.response.CollectionReferenceDescription;
 
 import java.util.List;
 
@@ -34,6 +35,8 @@ public interface CollectionReferenceDao {
 
     public List<CollectionReference> getAllCollectionReferences() throws ArlasException;
 
+    public List<CollectionReferenceDescription> describeAllCollectionReferences() throws ArlasException;
+
     public CollectionReference putCollectionReference(CollectionReference collectionReference)
             throws ArlasException;
 
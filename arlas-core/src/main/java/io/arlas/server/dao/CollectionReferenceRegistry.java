@@ -0,0 +1,122 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.NotFoundException;
+import io.arlas.server.model.CollectionReference;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collection references shared by all the DAO instances. Once loaded, a collection reference is refreshed in the
+ * background after the cache timeout: the previous value is served while it is reloaded, and kept if the reload fails,
+ * unless the collection no longer exists. Whatever the reloads, a reference expires after a few cache timeouts.
+ * Unknown collections are not cached: a collection created meanwhile is found on the next request.
+ */
+public class CollectionReferenceRegistry {
+
+    private static final int REFRESH_THREADS = 2;
+    private static final int EXPIRY_TIMEOUTS = 5;
+
+    private static LoadingCache<String, CollectionReference> collections = null;
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(REFRESH_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("collection-reference-refresh-%d").setDaemon(true).build());
+
+    @FunctionalInterface
+    public interface Loader {
+        CollectionReference load(String ref) throws ArlasException;
+    }
+
+    /**
+     * Builds the registry on its first call; the next calls keep it as is.
+     */
+    public static synchronized void configure(Loader loader, int size, int refreshTimeout) {
+        if (collections == null) {
+            collections = CacheBuilder.newBuilder()
+                    .maximumSize(size)
+                    .refreshAfterWrite(refreshTimeout, TimeUnit.SECONDS)
+                    .expireAfterWrite((long) EXPIRY_TIMEOUTS * refreshTimeout, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build(CacheLoader.asyncReloading(new CacheLoader<String, CollectionReference>() {
+                        public CollectionReference load(String ref) throws ArlasException {
+                            // a failed load, such as an unknown collection, is not cached
+                            return loader.load(ref);
+                        }
+
+                        public ListenableFuture<CollectionReference> reload(String ref, CollectionReference previous) throws ArlasException {
+                            try {
+                                return Futures.immediateFuture(loader.load(ref));
+                            } catch (NotFoundException e) {
+                                // deleted, possibly by another node: the stale reference is dropped when the reload fails
+                                collections.invalidate(ref);
+                                throw e;
+                            }
+                        }
+                    }, refreshExecutor));
+        }
+    }
+
+    public static CollectionReference get(String ref) throws ArlasException {
+        try {
+            return collections.get(ref);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof ArlasException) {
+                throw (ArlasException) e.getCause();
+            }
+            throw new NotFoundException("Collection " + ref + " not found.", e);
+        }
+    }
+
+    /**
+     * Reloads the collection reference in the background, as its refresh timeout would.
+     */
+    static void refresh(String ref) {
+        collections.refresh(ref);
+    }
+
+    public static void invalidate(String ref) {
+        if (collections != null) {
+            collections.invalidate(ref);
+            collections.cleanUp();
+        }
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "hits"), (Gauge<Long>) () -> collections.stats().hitCount());
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "misses"), (Gauge<Long>) () -> collections.stats().missCount());
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "hit-ratio"), (Gauge<Double>) () -> collections.stats().hitRate());
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "load-failures"), (Gauge<Long>) () -> collections.stats().loadExceptionCount());
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "average-load-time"), (Gauge<Double>) () -> collections.stats().averageLoadPenalty());
+        metrics.register(MetricRegistry.name(CollectionReferenceRegistry.class, "entries"), (Gauge<Long>) () -> collections.size());
+    }
+}
@@ -23,9 +23,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import io.arlas.server.core.FieldTypeRegistry;
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.exceptions.InternalServerErrorException;
 import io.arlas.server.exceptions.InvalidParameterException;
@@ -34,6 +32,7 @@ import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.CollectionReferenceParameters;
 import io.arlas.server.model.enumerations.AccessConstraintEnum;
 import io.arlas.server.model.enumerations.InspireAccessClassificationEnum;
+import io.arlas.server.model.response.CollectionReferenceDescription;
 import io.arlas.server.utils.CheckParams;
 import io.arlas.server.utils.ElasticTool;
 import io.arlas.server.utils.StringUtil;
@@ -41,29 +40,18 @@ import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsRespon
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexNotFoundException;
-import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.rest.RestStatus;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.sort.FieldSortBuilder;
-import org.elasticsearch.search.sort.SortOrder;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 public class ElasticCollectionReferenceDaoImpl implements CollectionReferenceDao {
 
 
     Client client = null;
     String arlasIndex = null;
-    private static LoadingCache<String, CollectionReference> collections = null;
     private static ObjectMapper mapper;
     private static ObjectReader reader;
     private static final String ARLAS_MAPPING_FILE_NAME = "arlas.mapping.json";
@@ -80,15 +68,9 @@ public class ElasticCollectionReferenceDaoImpl implements CollectionReferenceDao
         super();
         this.client = client;
         this.arlasIndex = arlasIndex;
-        collections = CacheBuilder.newBuilder()
-                .maximumSize(arlasCacheSize)
-                .expireAfterWrite(arlasCacheTimeout, TimeUnit.SECONDS)
-                .build(
-                        new CacheLoader<String, CollectionReference>() {
-                            public CollectionReference load(String ref) throws ArlasException {
-                                return ElasticTool.getCollectionReferenceFromES(client, arlasIndex, ARLAS_INDEX_MAPPING_NAME, reader, ref);
-                            }
-                        });
+        CollectionReferenceRegistry.configure(ref -> ElasticTool.getCollectionReferenceFromES(client, arlasIndex, ARLAS_INDEX_MAPPING_NAME, reader, ref),
+                arlasCacheSize, arlasCacheTimeout);
+        CollectionCatalog.configure(client, arlasIndex, ARLAS_INDEX_MAPPING_NAME, reader, arlasCacheTimeout);
     }
 
     @Override
@@ -103,44 +85,21 @@ public class ElasticCollectionReferenceDaoImpl implements CollectionReferenceDao
 
     @Override
     public CollectionReference getCollectionReference(String ref) throws ArlasException {
-        try {
-            return collections.get(ref);
-        } catch (ExecutionException e) {
-            throw new NotFoundException("Collection " + ref + " not found.", e);
-        }
+        return CollectionReferenceRegistry.get(ref);
     }
 
     @Override
     public List<CollectionReference> getAllCollectionReferences() throws ArlasException {
-        List<CollectionReference> collections = new ArrayList<>();
+        return CollectionCatalog.getCollectionReferences();
+    }
 
-        try {
-            QueryBuilder qb = QueryBuilders.matchAllQuery();
-            //Exclude old include_fields for support old collection
-            SearchResponse scrollResp = client.prepareSearch(arlasIndex).setFetchSource(null, "include_fields")
-                    .addSort(FieldSortBuilder.DOC_FIELD_NAME, SortOrder.ASC).setScroll(new TimeValue(60000))
-                    .setQuery(qb).setSize(100).get(); // max of 100 hits will be returned for each scroll
-            do {
-                for (SearchHit hit : scrollResp.getHits().getHits()) {
-                    String source = hit.getSourceAsString();
-                    try {
-                        collections.add(new CollectionReference(hit.getId(), reader.readValue(source)));
-                    } catch (IOException e) {
-                        throw new InternalServerErrorException("Can not fetch collection", e);
-                    }
-                }
-                scrollResp = client.prepareSearchScroll(scrollResp.getScrollId()).setScroll(new TimeValue(60000))
-                        .execute().actionGet();
-            }
-            while (scrollResp.getHits().getHits().length != 0); // Zero hits mark the end of the scroll and the while loop.
-        } catch (IndexNotFoundException e) {
-            throw new InternalServerErrorException("Unreachable collections", e);
-        }
-        return collections;
+    @Override
+    public List<CollectionReferenceDescription> describeAllCollectionReferences() throws ArlasException {
+        return CollectionCatalog.getCollectionDescriptions();
     }
 
     @Override
-    public void deleteCollectionReference(String ref) throws NotFoundException, InternalServerErrorException {
+    public void deleteCollectionReference(String ref) throws ArlasException {
         DeleteResponse response = client.prepareDelete(arlasIndex, "collection", ref).get();
         if (response.status().equals(RestStatus.NOT_FOUND)) {
             throw new NotFoundException("collection " + ref + " not found.");
@@ -148,8 +107,9 @@ public class ElasticCollectionReferenceDaoImpl implements CollectionReferenceDao
             throw new InternalServerErrorException("Unable to delete collection : " + response.status().toString());
         } else {
             //explicit clean-up cache
-            collections.invalidate(ref);
-            collections.cleanUp();
+            CollectionReferenceRegistry.invalidate(ref);
+            FieldTypeRegistry.invalidate(ref);
+            CollectionCatalog.update(ref);
         }
     }
 
@@ -191,8 +151,9 @@ public class ElasticCollectionReferenceDaoImpl implements CollectionReferenceDao
             throw new InternalServerErrorException("Unable to index collection : " + response.status().toString());
         } else {
             //explicit clean-up cache
-            collections.invalidate(collectionReference.collectionName);
-            collections.cleanUp();
+            CollectionReferenceRegistry.invalidate(collectionReference.collectionName);
+            FieldTypeRegistry.invalidate(collectionReference.collectionName);
+            CollectionCatalog.update(collectionReference.collectionName);
 
             return collectionReference;
         }
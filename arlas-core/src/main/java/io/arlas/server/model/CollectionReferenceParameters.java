@@ -19,12 +19,19 @@
 
 package io.arlas.server.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.arlas.server.model.request.Filter;
+import io.arlas.server.utils.FieldPath;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CollectionReferenceParameters {
 
@@ -87,6 +94,60 @@ public class CollectionReferenceParameters {
     @JsonProperty(value = "filter", required = false)
     public Filter filter = null;
 
+    // paths of the metadata, compiled once and read for every hit
+    @JsonIgnore
+    private FieldPath idFieldPath;
+    @JsonIgnore
+    private FieldPath geometryFieldPath;
+    @JsonIgnore
+    private FieldPath centroidFieldPath;
+    @JsonIgnore
+    private FieldPath timestampFieldPath;
+    @JsonIgnore
+    private FieldPath rasterTileIdFieldPath;
+    // paths of the last sort of the "after" pagination, read for the last hit of each page
+    @JsonIgnore
+    private Map.Entry<String, List<FieldPath>> sortFieldPaths;
+
     public CollectionReferenceParameters() {
     }
+
+    @JsonIgnore
+    public FieldPath getIdFieldPath() {
+        return idFieldPath = FieldPath.of(idPath, idFieldPath);
+    }
+
+    @JsonIgnore
+    public FieldPath getGeometryFieldPath() {
+        return geometryFieldPath = FieldPath.of(geometryPath, geometryFieldPath);
+    }
+
+    @JsonIgnore
+    public FieldPath getCentroidFieldPath() {
+        return centroidFieldPath = FieldPath.of(centroidPath, centroidFieldPath);
+    }
+
+    @JsonIgnore
+    public FieldPath getTimestampFieldPath() {
+        return timestampFieldPath = FieldPath.of(timestampPath, timestampFieldPath);
+    }
+
+    @JsonIgnore
+    public FieldPath getRasterTileIdFieldPath() {
+        return rasterTileIdFieldPath = FieldPath.of(rasterTileURL != null ? rasterTileURL.idPath : null, rasterTileIdFieldPath);
+    }
+
+    /**
+     * @return the paths of the comma separated fields of the sort, compiled again only when the sort changes
+     */
+    @JsonIgnore
+    public List<FieldPath> getSortFieldPaths(String sort) {
+        Map.Entry<String, List<FieldPath>> compiled = sortFieldPaths;
+        if (compiled == null || !compiled.getKey().equals(sort)) {
+            compiled = new AbstractMap.SimpleImmutableEntry<>(sort,
+                    Arrays.stream(sort.split(",")).map(FieldPath::of).collect(Collectors.toList()));
+            sortFieldPaths = compiled;
+        }
+        return compiled.getValue();
+    }
 }
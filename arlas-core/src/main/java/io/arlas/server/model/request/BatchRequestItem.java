@@ -0,0 +1,40 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.model.request;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+public class BatchRequestItem {
+    public static final String COUNT = "count";
+    public static final String AGGREGATE = "aggregate";
+    public static final String SEARCH = "search";
+    public static final String RANGE = "range";
+
+    public String collection;
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXTERNAL_PROPERTY, property = "type")
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = Count.class, name = COUNT),
+            @JsonSubTypes.Type(value = AggregationsRequest.class, name = AGGREGATE),
+            @JsonSubTypes.Type(value = Search.class, name = SEARCH),
+            @JsonSubTypes.Type(value = RangeRequest.class, name = RANGE)})
+    public Request request;
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.model.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+/**
+ * The JSON `_source` of a hit, filtered by {@link io.arlas.server.utils.JsonSourceFilter}, replayed straight to the
+ * generator of the response when it is serialized: no intermediate string is built, and the response is pretty printed
+ * if asked.
+ */
+@JsonSerialize(using = FilteredSource.Serializer.class)
+public class FilteredSource {
+
+    private final TokenBuffer tokens;
+
+    public FilteredSource(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    public void writeTo(JsonGenerator generator) throws IOException {
+        tokens.serialize(generator);
+    }
+
+    public JsonParser asParser() {
+        return tokens.asParser();
+    }
+
+    public static class Serializer extends JsonSerializer<FilteredSource> {
+        @Override
+        public void serialize(FilteredSource value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            value.writeTo(gen);
+        }
+    }
+}
@@ -20,18 +20,27 @@
 package io.arlas.server.model.response;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.InternalServerErrorException;
 import io.arlas.server.model.CollectionReference;
+import io.arlas.server.utils.FieldPath;
 import io.arlas.server.utils.GeoTypeMapper;
+import io.arlas.server.utils.JsonSourceFilter;
 import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.StringUtil;
 import io.arlas.server.utils.TimestampTypeMapper;
 import io.dropwizard.jackson.JsonSnakeCase;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @JsonSnakeCase
 public class Hit {
@@ -40,6 +49,9 @@ public class Hit {
 
     public Object data;
 
+    @JsonIgnore
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     @JsonIgnore
     private Map<String, Object> dataAsMap;
 
@@ -52,13 +64,50 @@ public class Hit {
     public Hit(CollectionReference collectionReference, Map<String, Object> source, Boolean flat, Boolean ignoreGeo) throws ArlasException {
         this.flat = flat;
 
+        setMD(collectionReference, fieldPath -> fieldPath.get(source));
+        Map<String, Object> sourceWithoutGeo = source;
+        if (ignoreGeo && !StringUtil.isNullOrEmpty(collectionReference.params.geometryPath)) {
+            // the source may be shared with other responses: it is not modified
+            sourceWithoutGeo = collectionReference.params.getGeometryFieldPath().without(source);
+        }
+        dataAsMap = flat ? MapExplorer.flat(sourceWithoutGeo,new MapExplorer.ReduceArrayOnKey("_"), new HashSet<>()) : sourceWithoutGeo;
+        data = dataAsMap;
+    }
+
+    /**
+     * Builds the hit from the raw `_source` of the search hit. When the data is not flattened, the metadata are read
+     * from the JSON source, which is later copied to the response without the excluded geometry: the source map is only
+     * built if the data is asked as a map.
+     */
+    public Hit(CollectionReference collectionReference, SearchHit hit, Boolean flat, Boolean ignoreGeo) throws ArlasException {
+        this.flat = flat;
+        BytesReference source = hit.getSourceRef();
+        if (flat || source == null || XContentHelper.xContentType(source) != XContentType.JSON) {
+            Hit hitFromMap = new Hit(collectionReference, hit.getSourceAsMap(), flat, ignoreGeo);
+            md = hitFromMap.md;
+            dataAsMap = hitFromMap.dataAsMap;
+            data = hitFromMap.data;
+            return;
+        }
+        Set<String> mdPaths = getMDPaths(collectionReference);
+        Set<String> excludedPaths = ignoreGeo ? getGeoPathsToExcludeFromResponse(collectionReference) : Collections.emptySet();
+        Map<String, Object> mdValues = new HashMap<>();
+        try {
+            data = new FilteredSource(JsonSourceFilter.filter(source, excludedPaths, mdPaths, mdValues));
+        } catch (IOException e) {
+            throw new InternalServerErrorException("Unable to read the source of the hit " + hit.getId(), e);
+        }
+        setMD(collectionReference, fieldPath -> mdValues.get(fieldPath.path));
+    }
+
+    private void setMD(CollectionReference collectionReference, Function<FieldPath, Object> valueOfPath) throws ArlasException {
         md = new MD();
         if (collectionReference.params.idPath != null) {
-            md.id = "" + MapExplorer.getObjectFromPath(collectionReference.params.idPath, source);
+            md.id = "" + valueOfPath.apply(collectionReference.params.getIdFieldPath());
         }
         if (collectionReference.params.centroidPath != null) {
             try {
-                Object m = MapExplorer.getObjectFromPath(collectionReference.params.centroidPath, source);
+                Object m = valueOfPath.apply(collectionReference.params.getCentroidFieldPath());
                 md.centroid = m != null ? GeoTypeMapper.getGeoJsonObject(m) : null;
             } catch (ArlasException e) {
                 e.printStackTrace();
@@ -66,32 +115,19 @@ public class Hit {
         }
         if (collectionReference.params.geometryPath != null) {
             try {
-                Object m = MapExplorer.getObjectFromPath(collectionReference.params.geometryPath, source);
+                Object m = valueOfPath.apply(collectionReference.params.getGeometryFieldPath());
                 md.geometry = m != null ? GeoTypeMapper.getGeoJsonObject(m) : null;
             } catch (ArlasException e) {
                 e.printStackTrace();
             }
         }
         if (collectionReference.params.timestampPath != null) {
-            Object t = MapExplorer.getObjectFromPath(collectionReference.params.timestampPath, source);
+            Object t = valueOfPath.apply(collectionReference.params.getTimestampFieldPath());
             if (t != null) {
                 String f = collectionReference.params.customParams.get(CollectionReference.TIMESTAMP_FORMAT);
                 md.timestamp = TimestampTypeMapper.getTimestamp(t, f);
             }
         }
-        if (ignoreGeo) {
-            getGeoPathsToExcludeFromResponse(collectionReference).stream().forEach(e->{
-                if (e.contains(".")) {
-                    String pathToRemove = e.substring(0,e.lastIndexOf("."));
-                    String keyToRemove = e.substring(e.lastIndexOf(".")+1);
-                    Optional.ofNullable((Map) MapExplorer.getObjectFromPath(pathToRemove, source)).map(objectWithAttributeToRemove -> objectWithAttributeToRemove.remove(keyToRemove));
-                } else {
-                    source.remove(e);
-                }
-            });
-        }
-        dataAsMap = flat ? MapExplorer.flat(source,new MapExplorer.ReduceArrayOnKey("_"), new HashSet<>()) : source;
-        data = dataAsMap;
     }
 
     public boolean isFlat() {
@@ -99,9 +135,25 @@ public class Hit {
     }
 
     public Map<String, Object> getDataAsMap() {
+        if (dataAsMap == null && data instanceof FilteredSource) {
+            try {
+                dataAsMap = mapper.readValue(((FilteredSource) data).asParser(), Map.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         return dataAsMap;
     }
 
+    private Set<String> getMDPaths(CollectionReference collectionReference) {
+        Set<String> mdPaths = new HashSet<>();
+        Stream.of(collectionReference.params.idPath, collectionReference.params.centroidPath,
+                collectionReference.params.geometryPath, collectionReference.params.timestampPath)
+                .filter(Objects::nonNull)
+                .forEach(mdPaths::add);
+        return mdPaths;
+    }
+
     private Set<String> getGeoPathsToExcludeFromResponse(CollectionReference collectionReference){
         Set<String> excludeFromData = new HashSet<>();
         //excludeFromData.add(collectionReference.params.centroidPath); TODO : decide whether the centroid should be in the response or not
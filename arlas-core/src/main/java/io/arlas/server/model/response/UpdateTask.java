@@ -0,0 +1,53 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.model.response;
+
+import io.arlas.server.model.enumerations.Action;
+import io.dropwizard.jackson.JsonSnakeCase;
+
+/**
+ * Status of an asynchronous tag or untag of a collection.
+ */
+@JsonSnakeCase
+public class UpdateTask {
+    public String id;
+    public String collection;
+    public Action action;
+    public boolean completed = false;
+    public UpdateResponse response;
+    public String error;
+
+    public UpdateTask() {
+    }
+
+    public UpdateTask(String id, String collection, Action action) {
+        this.id = id;
+        this.collection = collection;
+        this.action = action;
+    }
+
+    public UpdateTask completed(UpdateResponse response, String error) {
+        UpdateTask task = new UpdateTask(id, collection, action);
+        task.completed = true;
+        task.response = response;
+        task.error = error;
+        return task;
+    }
+}
@@ -19,8 +19,15 @@
 
 package io.arlas.server.services;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.arlas.server.app.ArlasServerConfiguration;
+import io.arlas.server.core.DescriptionRegistry;
+import io.arlas.server.core.FieldTypeRegistry;
 import io.arlas.server.core.FluidSearch;
+import io.arlas.server.core.GeohashCells;
+import io.arlas.server.core.IndexGenerations;
+import io.arlas.server.core.ResultCache;
+import io.arlas.server.core.SearchAfterScroll;
 import io.arlas.server.dao.CollectionReferenceDao;
 import io.arlas.server.dao.ElasticCollectionReferenceDaoImpl;
 import io.arlas.server.exceptions.ArlasException;
@@ -38,13 +45,15 @@ import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.ResponseCacheManager;
 import io.arlas.server.utils.CheckParams;
 import io.arlas.server.utils.*;
-import org.apache.lucene.geo.Rectangle;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.geo.GeoHashUtils;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -58,19 +67,42 @@ import org.geojson.*;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class ExploreServices {
+    public static final String INVALID_RANGE_FIELD_TYPE = "The field's type must be numeric";
+    private static final String INVALID_STATS_FIELDS_TYPE = "The fields' type must be numeric";
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     private Client client;
     private CollectionReferenceDao daoCollectionReference;
     private ResponseCacheManager responseCacheManager = null;
+    // shared by all the services instances, so that a single poller tracks the indices' generations
+    private static IndexGenerations indexGenerations = null;
+    private static ResultCache resultCache = null;
+    // formats the Elasticsearch responses of the asynchronous requests, out of the Elasticsearch client's network threads
+    private static final ExecutorService responseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("explore-response-%d").setDaemon(true).build());
 
     public ExploreServices(Client client, ArlasServerConfiguration configuration) {
         this.client = client;
         this.daoCollectionReference = new ElasticCollectionReferenceDaoImpl(client, configuration.arlasindex, configuration.arlascachesize, configuration.arlascachetimeout);
-        this.responseCacheManager = new ResponseCacheManager(configuration.arlasrestcachetimeout);
+        this.responseCacheManager = new ResponseCacheManager(configuration.arlasrestcachetimeout, configuration.arlasetagenabled);
+        synchronized (ExploreServices.class) {
+            if (resultCache == null) {
+                indexGenerations = new IndexGenerations(client, configuration.resultCacheConfiguration.generationPoll);
+                resultCache = new ResultCache(indexGenerations, configuration.resultCacheConfiguration);
+            }
+        }
+        FieldTypeRegistry.configure(client, configuration.arlascachesize, configuration.arlascachetimeout);
+        DescriptionRegistry.configure(client, configuration.arlascachesize, configuration.arlasmappingpoll);
+        GeohashCells.configure(configuration.arlasgeohashcachesize);
     }
 
     public Client getClient() {
@@ -89,71 +121,238 @@ public class ExploreServices {
         return responseCacheManager;
     }
 
+    public IndexGenerations getIndexGenerations() {
+        return indexGenerations;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public ExecutorService getResponseExecutor() {
+        return responseExecutor;
+    }
+
     public SearchRequestBuilder init(CollectionReference collection) {
         return client.prepareSearch(collection.params.indexName);
     }
 
     public SearchHits count(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("count", request, collectionReference);
+        return execWithoutHits(key, () -> prepareFilteredSearch(request, collectionReference)).getHits();
+    }
+
+    public CompletableFuture<SearchHits> countAsync(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("count", request, collectionReference);
+        return execWithoutHitsAsync(key, () -> prepareFilteredSearch(request, collectionReference)).thenApply(SearchResponse::getHits);
+    }
+
+    protected FluidSearch prepareFilteredSearch(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
         FluidSearch fluidSearch = new FluidSearch(client);
         fluidSearch.setCollectionReference(collectionReference);
         applyFilter(collectionReference.params.filter, fluidSearch);
         applyFilter(request.basicRequest.filter, fluidSearch);
         applyFilter(request.headerRequest.filter, fluidSearch);
-        return fluidSearch.exec().getHits();
+        return fluidSearch;
     }
 
     public CountDistinctResponse countDistinct(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
-        FluidSearch fluidSearch = new FluidSearch(client);
-        fluidSearch.setCollectionReference(collectionReference);
-        applyFilter(collectionReference.params.filter, fluidSearch);
-        applyFilter(request.basicRequest.filter, fluidSearch);
-        applyFilter(request.headerRequest.filter, fluidSearch);
+        ResultCache.Key key = resultCache.key("countDistinct", request, collectionReference);
+        return getCountDistinctResponse(execWithoutHits(key, () -> prepareCountDistinct(request, collectionReference)), ((CountDistinct) request.basicRequest).field);
+    }
+
+    public CompletableFuture<CountDistinctResponse> countDistinctAsync(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("countDistinct", request, collectionReference);
+        return execWithoutHitsAsync(key, () -> prepareCountDistinct(request, collectionReference))
+                .thenApply(searchResponse -> getCountDistinctResponse(searchResponse, ((CountDistinct) request.basicRequest).field));
+    }
+
+    protected FluidSearch prepareCountDistinct(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
         fluidSearch.countDistinct(((CountDistinct) request.basicRequest).field);
-        SearchResponse searchResponse = fluidSearch.exec();
+        return fluidSearch;
+    }
+
+    private CountDistinctResponse getCountDistinctResponse(SearchResponse searchResponse, String field) {
         CountDistinctResponse countDistinctResponse = new CountDistinctResponse();
-        countDistinctResponse.field = ((CountDistinct) request.basicRequest).field;
-        countDistinctResponse.value = ((InternalCardinality)searchResponse.getAggregations().get(fluidSearch.getCountDistinctKey(countDistinctResponse.field))).getValue();
+        countDistinctResponse.field = field;
+        countDistinctResponse.value = ((InternalCardinality)searchResponse.getAggregations().get(FluidSearch.getCountDistinctKey(countDistinctResponse.field))).getValue();
         countDistinctResponse.totalnb = searchResponse.getHits().getTotalHits();
         return countDistinctResponse;
     }
 
     public SearchHits search(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
-        FluidSearch fluidSearch = new FluidSearch(client);
-        fluidSearch.setCollectionReference(collectionReference);
-        applyFilter(collectionReference.params.filter, fluidSearch);
-        applyFilter(request.basicRequest.filter, fluidSearch);
-        applyFilter(request.headerRequest.filter, fluidSearch);
+        return prepareSearch(request, collectionReference).exec().getHits();
+    }
+
+    public CompletableFuture<SearchHits> searchAsync(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        return prepareSearch(request, collectionReference).execAsync().thenApply(SearchResponse::getHits);
+    }
+
+    protected FluidSearch prepareSearch(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
         paginate(((Search) request.basicRequest).page, collectionReference, fluidSearch);
         applyProjection(((Search) request.basicRequest).projection, fluidSearch);
-        return fluidSearch.exec().getHits();
+        return fluidSearch;
+    }
+
+    /**
+     * Exports all the hits matching the filters of the search, sorted on the collection's id. The pagination of the search is not used.
+     */
+    public SearchAfterScroll export(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        return new SearchAfterScroll(prepareExport(request, collectionReference).getRequest(), EXPORT_PAGE_SIZE);
+    }
+
+    protected FluidSearch prepareExport(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
+        applyProjection(((Search) request.basicRequest).projection, fluidSearch);
+        fluidSearch.sort(collectionReference.params.idPath);
+        return fluidSearch;
     }
 
     public SearchResponse aggregate(MixedRequest request, CollectionReference collectionReference, Boolean isGeoAggregation) throws ArlasException, IOException {
+        // the key is built first: preparing the aggregations consumes the list of the request
+        ResultCache.Key key = resultCache.key(aggregateOperation(isGeoAggregation), request, collectionReference);
+        return execWithoutHits(key, () -> prepareAggregate(request, collectionReference, isGeoAggregation));
+    }
+
+    public CompletableFuture<SearchResponse> aggregateAsync(MixedRequest request, CollectionReference collectionReference, Boolean isGeoAggregation) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key(aggregateOperation(isGeoAggregation), request, collectionReference);
+        return execWithoutHitsAsync(key, () -> prepareAggregate(request, collectionReference, isGeoAggregation));
+    }
+
+    protected FluidSearch prepareAggregate(MixedRequest request, CollectionReference collectionReference, Boolean isGeoAggregation) throws ArlasException, IOException {
         CheckParams.checkAggregationRequest(request.basicRequest);
-        FluidSearch fluidSearch = new FluidSearch(client);
-        fluidSearch.setCollectionReference(collectionReference);
-        applyFilter(collectionReference.params.filter, fluidSearch);
-        applyFilter(request.basicRequest.filter, fluidSearch);
-        applyFilter(request.headerRequest.filter, fluidSearch);
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
         applyAggregation(((AggregationsRequest) request.basicRequest).aggregations, fluidSearch, isGeoAggregation);
-        return fluidSearch.exec();
+        return fluidSearch;
     }
 
     public SearchResponse getFieldRange(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("range", request, collectionReference);
+        try {
+            return execWithoutHits(key, () -> prepareFieldRange(request, collectionReference));
+        } catch (SearchPhaseExecutionException e) {
+            throw new InvalidParameterException(INVALID_RANGE_FIELD_TYPE);
+        }
+    }
+
+    public CompletableFuture<SearchResponse> getFieldRangeAsync(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("range", request, collectionReference);
+        return withInvalidParameterOnSearchFailure(execWithoutHitsAsync(key, () -> prepareFieldRange(request, collectionReference)), INVALID_RANGE_FIELD_TYPE);
+    }
+
+    protected FluidSearch prepareFieldRange(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
         CheckParams.checkRangeRequestField(request.basicRequest);
-        FluidSearch fluidSearch = new FluidSearch(client);
-        fluidSearch.setCollectionReference(collectionReference);
-        applyFilter(collectionReference.params.filter, fluidSearch);
-        applyFilter(request.basicRequest.filter, fluidSearch);
-        applyFilter(request.headerRequest.filter, fluidSearch);
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
         applyRangeRequest(((RangeRequest) request.basicRequest).field, fluidSearch);
-        SearchResponse response;
+        return fluidSearch;
+    }
+
+    public SearchResponse getFieldsStats(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("stats", request, collectionReference);
         try {
-            response = fluidSearch.exec();
+            return execWithoutHits(key, () -> prepareFieldsStats(request, collectionReference));
         } catch (SearchPhaseExecutionException e) {
-            throw new InvalidParameterException("The field's type must be numeric");
+            throw new InvalidParameterException(INVALID_STATS_FIELDS_TYPE);
+        }
+    }
+
+    public CompletableFuture<SearchResponse> getFieldsStatsAsync(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        ResultCache.Key key = resultCache.key("stats", request, collectionReference);
+        return withInvalidParameterOnSearchFailure(execWithoutHitsAsync(key, () -> prepareFieldsStats(request, collectionReference)), INVALID_STATS_FIELDS_TYPE);
+    }
+
+    protected FluidSearch prepareFieldsStats(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        CheckParams.checkStatsRequestFields(request.basicRequest);
+        FluidSearch fluidSearch = prepareFilteredSearch(request, collectionReference);
+        fluidSearch.getFieldsStats(((StatsRequest) request.basicRequest).fields);
+        return fluidSearch;
+    }
+
+    /**
+     * Builds the Elasticsearch request of an item of a batch, as the service of the item's request type would.
+     */
+    public SearchRequestBuilder prepareBatchItem(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException {
+        if (request.basicRequest instanceof Search) {
+            return prepareSearch(request, collectionReference).getRequest();
+        } else if (request.basicRequest instanceof AggregationsRequest) {
+            return prepareAggregate(request, collectionReference, false).getRequestWithoutHits();
+        } else if (request.basicRequest instanceof RangeRequest) {
+            return prepareFieldRange(request, collectionReference).getRequestWithoutHits();
+        } else if (request.basicRequest instanceof Count) {
+            return prepareFilteredSearch(request, collectionReference).getRequestWithoutHits();
+        }
+        throw new BadRequestException("Batch requests must be count, aggregate, search or range requests");
+    }
+
+    /**
+     * Sends all the requests within a single multi search: the responses are in the order of the requests, each of them
+     * being either a response or a failure.
+     */
+    public CompletableFuture<MultiSearchResponse> multiSearchAsync(List<SearchRequestBuilder> requests) {
+        MultiSearchRequestBuilder multiSearchRequestBuilder = client.prepareMultiSearch();
+        requests.forEach(multiSearchRequestBuilder::add);
+        CompletableFuture<MultiSearchResponse> future = new CompletableFuture<>();
+        multiSearchRequestBuilder.execute(new ActionListener<MultiSearchResponse>() {
+            @Override
+            public void onResponse(MultiSearchResponse multiSearchResponse) {
+                future.complete(multiSearchResponse);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(ExceptionsHelper.unwrapCause(e));
+            }
+        });
+        return future;
+    }
+
+    private static String aggregateOperation(Boolean isGeoAggregation) {
+        return Boolean.TRUE.equals(isGeoAggregation) ? "geoaggregate" : "aggregate";
+    }
+
+    /**
+     * Executes the hitless request, unless its response is in the result cache: the FluidSearch is only prepared on a
+     * miss. The key must be built from the request before, as preparing the FluidSearch may alter the request.
+     */
+    protected SearchResponse execWithoutHits(ResultCache.Key key, SearchPreparation preparation) throws ArlasException, IOException {
+        SearchResponse response = resultCache.get(key);
+        if (response == null) {
+            response = preparation.prepare().execWithoutHits();
+            resultCache.put(key, response);
         }
-        return fluidSearch.exec();
+        return response;
+    }
+
+    protected CompletableFuture<SearchResponse> execWithoutHitsAsync(ResultCache.Key key, SearchPreparation preparation) throws ArlasException, IOException {
+        SearchResponse response = resultCache.get(key);
+        if (response != null) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return preparation.prepare().execWithoutHitsAsync().thenApply(searchResponse -> {
+            resultCache.put(key, searchResponse);
+            return searchResponse;
+        });
+    }
+
+    /**
+     * Elasticsearch fails the whole search phase when a metric aggregation targets a non numeric field: this failure is
+     * reported as an invalid parameter, as the blocking variants do.
+     */
+    private static CompletableFuture<SearchResponse> withInvalidParameterOnSearchFailure(CompletableFuture<SearchResponse> future, String message) {
+        CompletableFuture<SearchResponse> result = new CompletableFuture<>();
+        future.whenComplete((searchResponse, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause instanceof SearchPhaseExecutionException) {
+                result.completeExceptionally(new InvalidParameterException(message));
+            } else if (cause != null) {
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(searchResponse);
+            }
+        });
+        return result;
     }
 
     protected void applyAggregation(List<Aggregation> aggregations, FluidSearch fluidSearch, Boolean isGeoAggregation) throws ArlasException {
@@ -219,14 +418,15 @@ public class ExploreServices {
     /**
      * This method checks whether in all the expressions of the filter `f`, a date field has been queried using `lte`, `gte`, `lt`, `gt` or `range` operations
      * **/
-    protected boolean filterFHasDateQuery(Filter filter, CollectionReference collectionReference) {
+    protected boolean filterFHasDateQuery(Filter filter, CollectionReference collectionReference) throws ArlasException {
+        FieldTypeRegistry.CollectionFieldTypes fieldTypes = FieldTypeRegistry.getFieldTypes(client, collectionReference);
         return filter.f.stream()
                 .anyMatch(expressions -> expressions
                         .stream()
                         .filter(expression -> expression.op == OperatorEnum.gt || expression.op == OperatorEnum.lt || expression.op == OperatorEnum.gte || expression.op == OperatorEnum.lte || expression.op == OperatorEnum.range)
                         .anyMatch(expression -> {
                             try {
-                                return ElasticTool.isDateField(ParamsParser.getFieldFromFieldAliases(expression.field, collectionReference), client, collectionReference.params.indexName, collectionReference.params.typeName);
+                                return fieldTypes.isDateField(ParamsParser.getFieldFromFieldAliases(expression.field, collectionReference));
                             } catch (ArlasException e) {
                                 throw new RuntimeException(e);
                             }
@@ -273,118 +473,168 @@ public class ExploreServices {
     }
 
     public AggregationResponse formatAggregationResult(MultiBucketsAggregation aggregation, AggregationResponse aggregationResponse, String collection) {
+        CollectionReference collectionReference = null;
+        try {
+            collectionReference = getDaoCollectionReference().getCollectionReference(collection);
+        } catch (ArlasException e) {
+            e.printStackTrace();
+        }
+        // the sub-aggregations have the same names in all the buckets: their names are decoded once for the whole response
+        return formatAggregationResult(aggregation, aggregationResponse, collectionReference, new HashMap<>());
+    }
+
+    private AggregationResponse formatAggregationResult(MultiBucketsAggregation aggregation, AggregationResponse aggregationResponse,
+                                                        CollectionReference collectionReference, Map<String, SubAggregationDecoder> decoders) {
         aggregationResponse.name = aggregation.getName();
         if (aggregationResponse.name.equals(FluidSearch.TERM_AGG)) {
             aggregationResponse.sumotherdoccounts = ((Terms) aggregation).getSumOfOtherDocCounts();
         }
-        aggregationResponse.elements = new ArrayList<AggregationResponse>();
+        boolean isGeohash = aggregationResponse.name.startsWith(FluidSearch.GEOHASH_AGG);
+        boolean isGeohashCentroid = aggregationResponse.name.equals(FluidSearch.GEOHASH_AGG);
         List<MultiBucketsAggregation.Bucket> buckets = (List<MultiBucketsAggregation.Bucket>) aggregation.getBuckets();
+        aggregationResponse.elements = new ArrayList<AggregationResponse>(buckets.size());
         buckets.forEach(bucket -> {
             AggregationResponse element = new AggregationResponse();
             element.keyAsString = bucket.getKeyAsString();
-            if (aggregationResponse.name.startsWith(FluidSearch.GEOHASH_AGG)) {
-                GeoPoint geoPoint = getGeohashCentre(element.keyAsString.toString());
-                element.key = geoPoint;
-                if (aggregationResponse.name.equals(FluidSearch.GEOHASH_AGG)) {
+            if (isGeohash) {
+                GeohashCells.Cell cell = GeohashCells.get(element.keyAsString.toString());
+                element.key = cell.centre;
+                if (isGeohashCentroid) {
                     // return the centroid of the geohash
-                    element.geometry = new Point(geoPoint.getLon(), geoPoint.getLat());
+                    element.geometry = cell.centroid;
                 } else {
                     // return the Extent of the geohash
-                    element.geometry = createPolygonFromRectangle(GeoHashUtils.bbox(element.keyAsString.toString()));
+                    element.geometry = cell.extent;
                 }
             } else {
                 element.key = bucket.getKey();
             }
             element.count = bucket.getDocCount();
             element.elements = new ArrayList<AggregationResponse>();
-            if (bucket.getAggregations().asList().size() == 0) {
+            List<org.elasticsearch.search.aggregations.Aggregation> subAggregations = bucket.getAggregations().asList();
+            if (subAggregations.size() == 0) {
                 element.elements = null;
                 aggregationResponse.elements.add(element);
             } else {
                 element.metrics = new ArrayList<>();
-                bucket.getAggregations().forEach(subAggregation -> {
-                    AggregationResponse subAggregationResponse = new AggregationResponse();
-                    subAggregationResponse.name = subAggregation.getName();
-                    if (subAggregationResponse.name.equals(FluidSearch.TERM_AGG)) {
-                        subAggregationResponse.sumotherdoccounts = ((Terms) subAggregation).getSumOfOtherDocCounts();
-                    }
-                    if (subAggregation.getName().equals(FluidSearch.FETCH_HITS_AGG)) {
-                        subAggregationResponse = null;
-                        element.hits = Optional.ofNullable(((TopHits)subAggregation).getHits().getHits())
-                                .map(hitsArray -> Arrays.asList(hitsArray))
-                                .map(hitsList -> hitsList.stream().map(hit -> hit.getSourceAsMap()).collect(Collectors.toList()))
-                                .orElse(new ArrayList());
-                    } else if (subAggregation.getName().equals(FluidSearch.DATEHISTOGRAM_AGG) || subAggregation.getName().startsWith(FluidSearch.GEOHASH_AGG) || subAggregation.getName().equals(FluidSearch.HISTOGRAM_AGG) || subAggregation.getName().equals(FluidSearch.TERM_AGG)) {
-                        subAggregationResponse = formatAggregationResult(((MultiBucketsAggregation) subAggregation), subAggregationResponse, collection);
-                    } else if (subAggregationResponse.name.equals(FluidSearch.FIRST_GEOMETRY) || subAggregationResponse.name.equals(FluidSearch.LAST_GEOMETRY) || subAggregationResponse.name.equals(FluidSearch.RANDOM_GEOMETRY)) {
-                        subAggregationResponse = null;
-                        long nbHits = ((TopHits) subAggregation).getHits().totalHits;
-                        Map source = nbHits > 0 ? ((TopHits) subAggregation).getHits().getHits()[0].getSourceAsMap() : null;
-                        GeoJsonObject geometryGeoJson = null;
-                        try {
-                            CollectionReference collectionReference = getDaoCollectionReference().getCollectionReference(collection);
-                            Object geometry = collectionReference.params.geometryPath != null ?
-                                    MapExplorer.getObjectFromPath(collectionReference.params.geometryPath, source) : null;
-                            if (geometry == null) {
-                                geometry = MapExplorer.getObjectFromPath(collectionReference.params.centroidPath, source);
+                for (org.elasticsearch.search.aggregations.Aggregation subAggregation : subAggregations) {
+                    SubAggregationDecoder decoder = decoders.computeIfAbsent(subAggregation.getName(), SubAggregationDecoder::new);
+                    switch (decoder.kind) {
+                        case FETCH_HITS:
+                            element.hits = Optional.ofNullable(((TopHits)subAggregation).getHits().getHits())
+                                    .map(hitsArray -> Arrays.asList(hitsArray))
+                                    .map(hitsList -> hitsList.stream().map(hit -> hit.getSourceAsMap()).collect(Collectors.toList()))
+                                    .orElse(new ArrayList());
+                            break;
+                        case BUCKETS:
+                            element.elements.add(formatAggregationResult(((MultiBucketsAggregation) subAggregation), new AggregationResponse(), collectionReference, decoders));
+                            break;
+                        case GEOMETRY:
+                            GeoJsonObject geometryGeoJson = getFirstHitGeometry((TopHits) subAggregation, collectionReference);
+                            if (geometryGeoJson != null) {
+                                element.geometry = geometryGeoJson;
+                            }
+                            if (subAggregations.size() == 1) {
+                                element.metrics = null;
+                                element.elements = null;
                             }
-                            geometryGeoJson = geometry != null ?
-                                    GeoTypeMapper.getGeoJsonObject(geometry) : null;
-                        } catch (ArlasException e) {
-                            e.printStackTrace();
-                        }
-                        if (geometryGeoJson != null) {
-                            element.geometry = geometryGeoJson;
-                        }
-                        if (bucket.getAggregations().asList().size() == 1) {
-                            element.metrics = null;
-                            element.elements = null;
-                        }
-                    } else {
-                        subAggregationResponse = null;
-                        AggregationMetric aggregationMetric = new AggregationMetric();
-                        aggregationMetric.type = subAggregation.getName().split(":")[0];
-                        if (!aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase()) && !aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase())
-                                && !aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase() + "-bucket") && !aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase() + "-bucket")) {
+                            break;
+                        case METRIC:
+                            AggregationMetric aggregationMetric = new AggregationMetric();
+                            aggregationMetric.type = decoder.type;
                             aggregationMetric.value = (((InternalAggregation) subAggregation).getProperty("value"));
-                        } else {
-                            FeatureCollection fc = new FeatureCollection();
-                            Feature feature = new Feature();
-                            if (aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase()) || aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase() + "-bucket")) {
-                                Polygon box = createBox((GeoBounds) subAggregation);
-                                GeoJsonObject g = box;
-                                if (aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase() + "-bucket")) {
-                                    element.geometry = box;
-                                }
-                                feature.setGeometry(g);
-                                fc.add(feature);
-                            } else if (aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase()) || aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase() + "-bucket")) {
+                            aggregationMetric.field = decoder.field;
+                            element.metrics.add(aggregationMetric);
+                            break;
+                        case GEOBBOX:
+                        case GEOCENTROID:
+                            GeoJsonObject g;
+                            if (decoder.kind == SubAggregationKind.GEOBBOX) {
+                                g = createBox((GeoBounds) subAggregation);
+                            } else {
                                 GeoPoint centroid = ((GeoCentroid) subAggregation).centroid();
-                                GeoJsonObject g = new Point(centroid.getLon(), centroid.getLat());
-                                if (aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase() + "-bucket")) {
-                                    element.geometry = g;
-                                }
+                                g = new Point(centroid.getLon(), centroid.getLat());
+                            }
+                            // No need to add the geocentroid or the geobox as metric if withGeoCentroid or withGeoBBox is true (respectively)
+                            if (decoder.bucketGeometry) {
+                                element.geometry = g;
+                            } else {
+                                FeatureCollection fc = new FeatureCollection();
+                                Feature feature = new Feature();
                                 feature.setGeometry(g);
                                 fc.add(feature);
+                                AggregationMetric geoMetric = new AggregationMetric();
+                                geoMetric.type = decoder.type;
+                                geoMetric.value = fc;
+                                geoMetric.field = decoder.field;
+                                element.metrics.add(geoMetric);
                             }
-                            aggregationMetric.value = fc;
-                        }
-                        // No need to add the geocentroid or the geobox as metric if withGeoCentroid or withGeoBBox is true (respectively)
-                        if (!aggregationMetric.type.equals(CollectionFunction.GEOBBOX.name().toLowerCase() + "-bucket") && !aggregationMetric.type.equals(CollectionFunction.GEOCENTROID.name().toLowerCase() + "-bucket")) {
-                            aggregationMetric.field = subAggregation.getName().split(":")[1];
-                            element.metrics.add(aggregationMetric);
-                        }
-                    }
-                    if (subAggregationResponse != null) {
-                        element.elements.add(subAggregationResponse);
+                            break;
                     }
-                });
+                }
                 aggregationResponse.elements.add(element);
             }
         });
         return aggregationResponse;
     }
 
+    private GeoJsonObject getFirstHitGeometry(TopHits topHits, CollectionReference collectionReference) {
+        if (collectionReference == null) {
+            return null;
+        }
+        long nbHits = topHits.getHits().totalHits;
+        Map source = nbHits > 0 ? topHits.getHits().getHits()[0].getSourceAsMap() : null;
+        try {
+            Object geometry = collectionReference.params.geometryPath != null ?
+                    collectionReference.params.getGeometryFieldPath().get(source) : null;
+            if (geometry == null && collectionReference.params.centroidPath != null) {
+                geometry = collectionReference.params.getCentroidFieldPath().get(source);
+            }
+            return geometry != null ? GeoTypeMapper.getGeoJsonObject(geometry) : null;
+        } catch (ArlasException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private enum SubAggregationKind {
+        BUCKETS, FETCH_HITS, GEOMETRY, GEOBBOX, GEOCENTROID, METRIC
+    }
+
+    /**
+     * How a sub-aggregation is read, decoded from the name given to it by FluidSearch.
+     */
+    private static class SubAggregationDecoder {
+        private final SubAggregationKind kind;
+        // the metric type and field, for the metrics named `type:field`
+        private final String type;
+        private final String field;
+        // whether the geo metric is the geometry of the bucket rather than a metric
+        private final boolean bucketGeometry;
+
+        private SubAggregationDecoder(String name) {
+            String geoBBox = CollectionFunction.GEOBBOX.name().toLowerCase();
+            String geoCentroid = CollectionFunction.GEOCENTROID.name().toLowerCase();
+            String[] typeAndField = name.split(":");
+            if (name.equals(FluidSearch.FETCH_HITS_AGG)) {
+                kind = SubAggregationKind.FETCH_HITS;
+            } else if (name.equals(FluidSearch.DATEHISTOGRAM_AGG) || name.startsWith(FluidSearch.GEOHASH_AGG) || name.equals(FluidSearch.HISTOGRAM_AGG) || name.equals(FluidSearch.TERM_AGG)) {
+                kind = SubAggregationKind.BUCKETS;
+            } else if (name.equals(FluidSearch.FIRST_GEOMETRY) || name.equals(FluidSearch.LAST_GEOMETRY) || name.equals(FluidSearch.RANDOM_GEOMETRY)) {
+                kind = SubAggregationKind.GEOMETRY;
+            } else if (typeAndField[0].equals(geoBBox) || typeAndField[0].equals(geoBBox + "-bucket")) {
+                kind = SubAggregationKind.GEOBBOX;
+            } else if (typeAndField[0].equals(geoCentroid) || typeAndField[0].equals(geoCentroid + "-bucket")) {
+                kind = SubAggregationKind.GEOCENTROID;
+            } else {
+                kind = SubAggregationKind.METRIC;
+            }
+            type = typeAndField[0];
+            field = typeAndField.length > 1 ? typeAndField[1] : null;
+            bucketGeometry = type.endsWith("-bucket");
+        }
+    }
+
 
     public Map<String, Object> flat(AggregationResponse element, Function<Map<List<String>, Object>, Map<String, Object>> keyStringifier, Predicate<String> keyPartFiler) {
         Map<List<String>, Object> flatted = new HashMap<>();
@@ -431,20 +681,6 @@ public class ExploreServices {
         return newOne;
     }
 
-    private GeoPoint getGeohashCentre(String geohash) {
-        Rectangle bbox = GeoHashUtils.bbox(geohash);
-
-        Double maxLon = bbox.maxLon;
-        Double minLon = bbox.minLon;
-        Double lon = (maxLon + minLon) / 2;
-
-        Double maxLat = bbox.maxLat;
-        Double minLat = bbox.minLat;
-        Double lat = (maxLat + minLat) / 2;
-
-        return new GeoPoint(lat, lon);
-    }
-
     private Polygon createBox(GeoBounds subAggregation) {
         Polygon box = new Polygon();
         GeoPoint topLeft = subAggregation.topLeft();
@@ -459,14 +695,8 @@ public class ExploreServices {
         return box;
     }
 
-    private Polygon createPolygonFromRectangle(Rectangle rectangle) {
-        Polygon polygon = new Polygon();
-        List<LngLatAlt> bounds = new ArrayList<>();
-        bounds.add(new LngLatAlt(rectangle.minLon, rectangle.maxLat));
-        bounds.add(new LngLatAlt(rectangle.maxLon, rectangle.maxLat));
-        bounds.add(new LngLatAlt(rectangle.maxLon, rectangle.minLat));
-        bounds.add(new LngLatAlt(rectangle.minLon, rectangle.minLat));
-        polygon.add(bounds);
-        return polygon;
+    @FunctionalInterface
+    protected interface SearchPreparation {
+        FluidSearch prepare() throws ArlasException, IOException;
     }
 }
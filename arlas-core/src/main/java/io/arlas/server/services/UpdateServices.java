@@ -19,18 +19,25 @@
 
 package io.arlas.server.services;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.arlas.server.app.ArlasServerConfiguration;
 import io.arlas.server.core.FilteredUpdater;
 import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.NotFoundException;
 import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.enumerations.Action;
 import io.arlas.server.model.request.MixedRequest;
 import io.arlas.server.model.request.Search;
 import io.arlas.server.model.request.Tag;
 import io.arlas.server.model.response.UpdateResponse;
+import io.arlas.server.model.response.UpdateTask;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 
 import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class UpdateServices extends ExploreServices{
 
@@ -38,20 +45,77 @@ public class UpdateServices extends ExploreServices{
         ADD,REMOVE, REMOVEALL;
     }
 
+    // a task is forgotten once it has not been polled for an hour
+    private static final int TASK_RETENTION = 3600;
+
+    private final Cache<String, UpdateTask> tasks = CacheBuilder.newBuilder()
+            .expireAfterAccess(TASK_RETENTION, TimeUnit.SECONDS)
+            .build();
+
     public UpdateServices(Client client, ArlasServerConfiguration configuration) {
         super(client, configuration);
     }
 
     public UpdateResponse tag(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
-        return this.getFilteredTagger(collectionReference, request).doAction(Action.ADD,collectionReference, tag, max_updates);
+        return invalidateResults(collectionReference, this.getFilteredTagger(collectionReference, request).doAction(Action.ADD,collectionReference, tag, max_updates));
     }
 
     public UpdateResponse unTag(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
-        return this.getFilteredTagger(collectionReference, request).doAction(Action.REMOVE,collectionReference, tag, max_updates);
+        return invalidateResults(collectionReference, this.getFilteredTagger(collectionReference, request).doAction(Action.REMOVE,collectionReference, tag, max_updates));
     }
 
     public UpdateResponse removeAll(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
-        return this.getFilteredTagger(collectionReference, request).doAction(Action.REMOVEALL,collectionReference, tag, max_updates);
+        return invalidateResults(collectionReference, this.getFilteredTagger(collectionReference, request).doAction(Action.REMOVEALL,collectionReference, tag, max_updates));
+    }
+
+    public UpdateTask tagAsync(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
+        return startTask(Action.ADD, collectionReference, request, tag, max_updates);
+    }
+
+    public UpdateTask unTagAsync(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
+        return startTask(Action.REMOVE, collectionReference, request, tag, max_updates);
+    }
+
+    public UpdateTask removeAllAsync(CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
+        return startTask(Action.REMOVEALL, collectionReference, request, tag, max_updates);
+    }
+
+    public UpdateTask getTask(CollectionReference collectionReference, String id) throws NotFoundException {
+        UpdateTask task = tasks.getIfPresent(id);
+        if (task == null || !task.collection.equals(collectionReference.collectionName)) {
+            throw new NotFoundException("Task " + id + " not found for collection " + collectionReference.collectionName + ".");
+        }
+        return task;
+    }
+
+    private UpdateTask startTask(Action action, CollectionReference collectionReference, MixedRequest request, Tag tag, int max_updates) throws IOException, ArlasException {
+        UpdateTask task = new UpdateTask(UUID.randomUUID().toString(), collectionReference.collectionName, action);
+        tasks.put(task.id, task);
+        try {
+            this.getFilteredTagger(collectionReference, request).doActionAsync(action, collectionReference, tag, max_updates, new ActionListener<UpdateResponse>() {
+                @Override
+                public void onResponse(UpdateResponse updateResponse) {
+                    tasks.put(task.id, task.completed(invalidateResults(collectionReference, updateResponse), null));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    // some documents may have been updated before the failure
+                    getResultCache().invalidate(collectionReference.params.indexName);
+                    tasks.put(task.id, task.completed(null, e.getMessage()));
+                }
+            });
+        } catch (IOException | ArlasException | RuntimeException e) {
+            tasks.invalidate(task.id);
+            throw e;
+        }
+        return task;
+    }
+
+    // the documents have been updated: the cached results of the index are outdated
+    private UpdateResponse invalidateResults(CollectionReference collectionReference, UpdateResponse updateResponse) {
+        this.getResultCache().invalidate(collectionReference.params.indexName);
+        return updateResponse;
     }
 
     protected FilteredUpdater getFilteredTagger(CollectionReference collectionReference, MixedRequest request) throws IOException, ArlasException {
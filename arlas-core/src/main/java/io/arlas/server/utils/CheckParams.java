@@ -130,6 +130,15 @@ public class CheckParams {
         }
     }
 
+    public static void checkStatsRequestFields(Request request) throws ArlasException {
+        if (request == null || !(request instanceof StatsRequest))
+            throw new BadRequestException("Stats request should not be null");
+        else if (((StatsRequest) request).fields == null || ((StatsRequest) request).fields.isEmpty()
+                || ((StatsRequest) request).fields.stream().anyMatch(field -> field == null || field.length() == 0)) {
+            throw new InvalidParameterException(INVALID_RANGE_FIELD);
+        }
+    }
+
     public static void checkFilter(Filter filter) throws ArlasException {
         if (filter.pwithin != null && !filter.pwithin.isEmpty()) {
             for (MultiValueFilter<String> multiPwithin : filter.pwithin) {
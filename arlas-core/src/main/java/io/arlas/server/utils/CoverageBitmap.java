@@ -0,0 +1,212 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.Arrays;
+
+/**
+ * Coverage of stacked images, kept as a bitmap of the sampled pixels that are not transparent.
+ * Each added layer is scanned once, reading its alpha samples directly from its data buffer when possible,
+ * so that the coverage of the stack is a population count rather than a scan of the merged image.
+ * The coverage is the same as the one of the merged image: the percentage of its pixels sampled every `sampling`
+ * pixels that are not transparent.
+ */
+public class CoverageBitmap {
+
+    private final int width;
+    private final int height;
+    private final int sampling;
+    private final int columns;
+    private final long[] words;
+
+    public CoverageBitmap(int width, int height, int sampling) {
+        this.width = width;
+        this.height = height;
+        this.sampling = sampling;
+        this.columns = (width + sampling - 1) / sampling;
+        int rows = (height + sampling - 1) / sampling;
+        this.words = new long[(columns * rows + 63) / 64];
+    }
+
+    /**
+     * Adds the non transparent pixels of the image to the bitmap and returns where the image has to be drawn.
+     */
+    public Layer add(BufferedImage img) {
+        int w = Math.min(width, img.getWidth());
+        int h = Math.min(height, img.getHeight());
+        AlphaReader reader = alphaReader(img);
+        int[] alpha = new int[w];
+        int minX = w, minY = h, maxX = -1, maxY = -1;
+        boolean opaque = w == width && h == height;
+        for (int y = 0; y < h; y++) {
+            reader.read(y, w, alpha);
+            int first = 0;
+            while (first < w && alpha[first] == 0) {
+                first++;
+            }
+            if (first == w) {
+                opaque = false;
+            } else {
+                int last = w - 1;
+                while (alpha[last] == 0) {
+                    last--;
+                }
+                for (int x = 0; opaque && x < w; x++) {
+                    opaque = alpha[x] == reader.max;
+                }
+                minX = Math.min(minX, first);
+                maxX = Math.max(maxX, last);
+                minY = Math.min(minY, y);
+                maxY = y;
+                if (y % sampling == 0) {
+                    int bit = (y / sampling) * columns + (first + sampling - 1) / sampling;
+                    for (int x = ((first + sampling - 1) / sampling) * sampling; x <= last; x += sampling, bit++) {
+                        if (alpha[x] != 0) {
+                            words[bit >>> 6] |= 1L << bit;
+                        }
+                    }
+                }
+            }
+        }
+        return new Layer(maxX < 0 ? new Rectangle() : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1), opaque);
+    }
+
+    /**
+     * @return the percentage of the sampled pixels that are covered by at least one of the added layers
+     */
+    public int coverage() {
+        int samples = (height / sampling) * (width / sampling);
+        if (samples == 0) {
+            return 0;
+        }
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return (int) ((100 * count) / samples);
+    }
+
+    private static AlphaReader alphaReader(BufferedImage img) {
+        ColorModel cm = img.getColorModel();
+        WritableRaster raster = img.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        if (!cm.hasAlpha()) {
+            return new AlphaReader(255) {
+                void read(int y, int w, int[] alpha) {
+                    Arrays.fill(alpha, 0, w, max);
+                }
+            };
+        }
+        if (cm instanceof DirectColorModel && sm instanceof SinglePixelPackedSampleModel && buffer instanceof DataBufferInt && buffer.getNumBanks() == 1) {
+            // packed pixels, such as TYPE_INT_ARGB
+            SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) sm;
+            int band = cm.getNumColorComponents();
+            int mask = packed.getBitMasks()[band];
+            int shift = packed.getBitOffsets()[band];
+            int[] data = ((DataBufferInt) buffer).getData();
+            return new AlphaReader(mask >>> shift) {
+                void read(int y, int w, int[] alpha) {
+                    int offset = buffer.getOffset() + packed.getOffset(-tx, y - ty);
+                    for (int x = 0; x < w; x++) {
+                        alpha[x] = (data[offset + x] & mask) >>> shift;
+                    }
+                }
+            };
+        }
+        if (cm instanceof ComponentColorModel && sm instanceof ComponentSampleModel && buffer instanceof DataBufferByte && buffer.getNumBanks() == 1) {
+            // interleaved bytes, such as TYPE_4BYTE_ABGR decoded from RGBA PNG
+            ComponentSampleModel component = (ComponentSampleModel) sm;
+            int band = cm.getNumColorComponents();
+            int stride = component.getPixelStride();
+            byte[] data = ((DataBufferByte) buffer).getData();
+            return new AlphaReader(255) {
+                void read(int y, int w, int[] alpha) {
+                    int offset = buffer.getOffset() + component.getOffset(-tx, y - ty, band);
+                    for (int x = 0; x < w; x++, offset += stride) {
+                        alpha[x] = data[offset] & 0xFF;
+                    }
+                }
+            };
+        }
+        if (cm instanceof IndexColorModel) {
+            // palettes, such as TYPE_BYTE_INDEXED decoded from paletted PNG
+            IndexColorModel index = (IndexColorModel) cm;
+            return new AlphaReader(255) {
+                void read(int y, int w, int[] alpha) {
+                    raster.getSamples(0, y, w, 1, 0, alpha);
+                    for (int x = 0; x < w; x++) {
+                        alpha[x] = index.getAlpha(alpha[x]);
+                    }
+                }
+            };
+        }
+        return new AlphaReader(255) {
+            void read(int y, int w, int[] alpha) {
+                img.getRGB(0, y, w, 1, alpha, 0, w);
+                for (int x = 0; x < w; x++) {
+                    alpha[x] = alpha[x] >>> 24;
+                }
+            }
+        };
+    }
+
+    private static abstract class AlphaReader {
+        final int max;
+
+        AlphaReader(int max) {
+            this.max = max;
+        }
+
+        abstract void read(int y, int w, int[] alpha);
+    }
+
+    public static class Layer {
+        private final Rectangle bounds;
+        private final boolean opaque;
+
+        private Layer(Rectangle bounds, boolean opaque) {
+            this.bounds = bounds;
+            this.opaque = opaque;
+        }
+
+        /**
+         * @return the bounds of the non transparent pixels of the layer, empty if the layer is transparent
+         */
+        public Rectangle getBounds() {
+            return bounds;
+        }
+
+        public boolean isEmpty() {
+            return bounds.isEmpty();
+        }
+
+        /**
+         * @return whether the layer is opaque on the whole bitmap, hiding everything below it
+         */
+        public boolean isOpaque() {
+            return opaque;
+        }
+    }
+}
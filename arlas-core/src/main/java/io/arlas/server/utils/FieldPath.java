@@ -0,0 +1,116 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A dotted field path, such as `params.geometry`, split once so that it can be read from many sources: the walk over
+ * the nested maps of a source does not allocate. Paths go through maps only, not through arrays.
+ */
+public final class FieldPath {
+
+    private static final FieldPath ROOT = new FieldPath("", new String[0]);
+
+    public final String path;
+    private final String[] levels;
+
+    private FieldPath(String path, String[] levels) {
+        this.path = path;
+        this.levels = levels;
+    }
+
+    public static FieldPath of(String path) {
+        if (StringUtil.isNullOrEmpty(path)) {
+            return ROOT;
+        }
+        return new FieldPath(path, path.split("\\."));
+    }
+
+    /**
+     * Returns the compiled path if it is still the one of the given path, compiles the given path otherwise.
+     */
+    public static FieldPath of(String path, FieldPath compiled) {
+        if (path == null) {
+            return null;
+        }
+        return compiled != null && compiled.path.equals(path) ? compiled : of(path);
+    }
+
+    public Object get(Object source) {
+        Object current = source;
+        for (String level : levels) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map) current).get(level);
+        }
+        return current;
+    }
+
+    /**
+     * Returns the source without the field. Only the maps on the path of the field are copied: the given source is left
+     * untouched, as it may be shared by several responses. The source itself is returned when the field is absent.
+     */
+    public Map<String, Object> without(Map<String, Object> source) {
+        if (levels.length == 0 || source == null) {
+            return source;
+        }
+        return without(source, 0);
+    }
+
+    private Map<String, Object> without(Map<String, Object> map, int level) {
+        String name = levels[level];
+        if (!map.containsKey(name)) {
+            return map;
+        }
+        Map<String, Object> copy;
+        if (level == levels.length - 1) {
+            copy = new LinkedHashMap<>(map);
+            copy.remove(name);
+            return copy;
+        }
+        Object child = map.get(name);
+        if (!(child instanceof Map)) {
+            return map;
+        }
+        Map<String, Object> childWithout = without((Map<String, Object>) child, level + 1);
+        if (childWithout == child) {
+            return map;
+        }
+        copy = new LinkedHashMap<>(map);
+        copy.put(name, childWithout);
+        return copy;
+    }
+
+    public int size() {
+        return levels.length;
+    }
+
+    public String level(int i) {
+        return levels[i];
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
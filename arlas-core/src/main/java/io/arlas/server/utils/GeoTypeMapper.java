@@ -19,25 +19,20 @@
 
 package io.arlas.server.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.exceptions.NotImplementedException;
 import org.elasticsearch.common.geo.GeoPoint;
-import org.geojson.GeoJsonObject;
-import org.geojson.Point;
+import org.geojson.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class GeoTypeMapper {
 
-    private static ObjectMapper mapper = new ObjectMapper();
-    private static ObjectReader reader = mapper.readerFor(GeoJsonObject.class);
-
     private static Logger LOGGER = LoggerFactory.getLogger(GeoTypeMapper.class);
 
     @SuppressWarnings("rawtypes")
@@ -65,8 +60,8 @@ public class GeoTypeMapper {
             if (((HashMap) elasticsearchGeoField).containsKey("type")) {
                 //Standard GeoJSON object
                 try {
-                    geoObject = reader.readValue(mapper.writer().writeValueAsString(elasticsearchGeoField));
-                } catch (IOException e) {
+                    geoObject = getGeoJsonShape((Map) elasticsearchGeoField);
+                } catch (RuntimeException e) {
                     LOGGER.error("unable to parse geo_shape from " + elasticsearchGeoField.getClass() + " :" + elasticsearchGeoField, e);
                     throw new NotImplementedException("Not supported geo_point or geo_shape format found.");
                 }
@@ -79,13 +74,99 @@ public class GeoTypeMapper {
                     throw new NotImplementedException("Not supported geo_point format found.");
                 }
             } else {
-                LOGGER.error("unknwon geo_point or geo_shape from " + elasticsearchGeoField.getClass() + " :" + elasticsearchGeoField);
+                LOGGER.error("unknown geo_point or geo_shape from " + elasticsearchGeoField.getClass() + " :" + elasticsearchGeoField);
                 throw new NotImplementedException("Not supported geo_point or geo_shape format found.");
             }
         } else {
-            LOGGER.error("unknwon geo_point or geo_shape from " + elasticsearchGeoField.getClass() + " :" + elasticsearchGeoField);
+            LOGGER.error("unknown geo_point or geo_shape from " + elasticsearchGeoField.getClass() + " :" + elasticsearchGeoField);
             throw new NotImplementedException("Not supported geo_point or geo_shape format found.");
         }
         return geoObject;
     }
+
+    /**
+     * Builds the GeoJSON geometry directly from the geo_shape map of the source, as indexed by Elasticsearch (GeoJSON
+     * geometries, whatever the case of their type, and envelopes).
+     */
+    @SuppressWarnings("rawtypes")
+    private static GeoJsonObject getGeoJsonShape(Map shape) throws ArlasException {
+        String type = String.valueOf(shape.get("type")).toLowerCase();
+        List coordinates = (List) shape.get("coordinates");
+        switch (type) {
+            case "point":
+                return new Point(getPosition(coordinates));
+            case "multipoint":
+                MultiPoint multiPoint = new MultiPoint();
+                multiPoint.setCoordinates(getPositions(coordinates));
+                return multiPoint;
+            case "linestring":
+                LineString lineString = new LineString();
+                lineString.setCoordinates(getPositions(coordinates));
+                return lineString;
+            case "multilinestring":
+                MultiLineString multiLineString = new MultiLineString();
+                multiLineString.setCoordinates(getRings(coordinates));
+                return multiLineString;
+            case "polygon":
+                Polygon polygon = new Polygon();
+                polygon.setCoordinates(getRings(coordinates));
+                return polygon;
+            case "multipolygon":
+                MultiPolygon multiPolygon = new MultiPolygon();
+                List<List<List<LngLatAlt>>> polygons = new ArrayList<>(coordinates.size());
+                for (Object rings : coordinates) {
+                    polygons.add(getRings((List) rings));
+                }
+                multiPolygon.setCoordinates(polygons);
+                return multiPolygon;
+            case "geometrycollection":
+                GeometryCollection geometryCollection = new GeometryCollection();
+                List geometries = (List) shape.get("geometries");
+                List<GeoJsonObject> collection = new ArrayList<>(geometries.size());
+                for (Object geometry : geometries) {
+                    collection.add(getGeoJsonShape((Map) geometry));
+                }
+                geometryCollection.setGeometries(collection);
+                return geometryCollection;
+            case "envelope":
+                // upper left and lower right corners
+                LngLatAlt upperLeft = getPosition((List) coordinates.get(0));
+                LngLatAlt lowerRight = getPosition((List) coordinates.get(1));
+                return new Polygon(upperLeft,
+                        new LngLatAlt(upperLeft.getLongitude(), lowerRight.getLatitude()),
+                        lowerRight,
+                        new LngLatAlt(lowerRight.getLongitude(), upperLeft.getLatitude()),
+                        upperLeft);
+            default:
+                LOGGER.error("unknown geo_shape type " + shape.get("type"));
+                throw new NotImplementedException("Not supported geo_shape type found: " + shape.get("type") + ".");
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<List<LngLatAlt>> getRings(List rings) {
+        List<List<LngLatAlt>> result = new ArrayList<>(rings.size());
+        for (Object ring : rings) {
+            result.add(getPositions((List) ring));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<LngLatAlt> getPositions(List positions) {
+        List<LngLatAlt> result = new ArrayList<>(positions.size());
+        for (Object position : positions) {
+            result.add(getPosition((List) position));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static LngLatAlt getPosition(List position) {
+        double longitude = ((Number) position.get(0)).doubleValue();
+        double latitude = ((Number) position.get(1)).doubleValue();
+        return position.size() > 2 ?
+                new LngLatAlt(longitude, latitude, ((Number) position.get(2)).doubleValue()) :
+                new LngLatAlt(longitude, latitude);
+    }
 }
@@ -23,17 +23,13 @@ import java.awt.image.BufferedImage;
 
 public class ImageUtil {
 
-
+    /**
+     * @return the percentage of the pixels sampled every `sampling` pixels that are not transparent
+     */
     public static int coverage(BufferedImage img, int sampling){
         if(img==null){return 0;}
-        int count = 0;
-        for (int y = 0; y < img.getHeight(); y += sampling) {
-            for (int x = 0; x < img.getWidth(); x += sampling) {
-                if ((img.getRGB(x, y) >> 24) != 0x00) {
-                    count++;
-                }
-            }
-        }
-        return (100 * count) / ((img.getHeight() / sampling) * (img.getWidth() / sampling));
+        CoverageBitmap bitmap = new CoverageBitmap(img.getWidth(), img.getHeight(), sampling);
+        bitmap.add(img);
+        return bitmap.coverage();
     }
 }
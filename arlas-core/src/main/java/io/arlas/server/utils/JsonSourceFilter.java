@@ -0,0 +1,103 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the JSON `_source` of a hit token by token, without building its map, in a single pass: the values at the
+ * captured paths are collected, and the other tokens are copied to a buffer without the values at the excluded paths.
+ * The buffer is replayed to the generator of the response when the hit is serialized, without parsing the source again.
+ * As with MapExplorer, paths go through objects only, not through arrays.
+ */
+public class JsonSourceFilter {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @return the tokens of the source without the values at the excluded paths
+     */
+    public static TokenBuffer filter(BytesReference source, Set<String> excludedPaths, Set<String> capturedPaths, Map<String, Object> captured) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(source.streamInput())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The source is not a JSON object");
+            }
+            TokenBuffer tokens = new TokenBuffer(mapper, false);
+            filterObject(parser, tokens, "", excludedPaths, capturedPaths, captured);
+            return tokens;
+        }
+    }
+
+    /**
+     * Copies the object the parser is in, unless the generator is null: the values of the excluded paths are only read
+     * for the captured paths they contain.
+     */
+    private static void filterObject(JsonParser parser, JsonGenerator generator, String prefix, Set<String> excludedPaths,
+                                     Set<String> capturedPaths, Map<String, Object> captured) throws IOException {
+        if (generator != null) {
+            generator.writeStartObject();
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            String path = prefix + name;
+            JsonToken token = parser.nextToken();
+            JsonGenerator fieldGenerator = generator != null && !excludedPaths.contains(path) ? generator : null;
+            if (fieldGenerator != null) {
+                fieldGenerator.writeFieldName(name);
+            }
+            if (capturedPaths.contains(path)) {
+                TokenBuffer value = new TokenBuffer(mapper, false);
+                value.copyCurrentStructure(parser);
+                capture(path, mapper.readValue(value.asParser(), Object.class), capturedPaths, captured);
+                if (fieldGenerator != null) {
+                    value.serialize(fieldGenerator);
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                filterObject(parser, fieldGenerator, path + ".", excludedPaths, capturedPaths, captured);
+            } else if (fieldGenerator != null) {
+                fieldGenerator.copyCurrentStructure(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (generator != null) {
+            generator.writeEndObject();
+        }
+    }
+
+    private static void capture(String path, Object value, Set<String> capturedPaths, Map<String, Object> captured) {
+        captured.put(path, value);
+        // the other captured paths within the captured value, such as a timestamp within a captured object
+        for (String capturedPath : capturedPaths) {
+            if (capturedPath.startsWith(path + ".")) {
+                captured.put(capturedPath, MapExplorer.getObjectFromPath(capturedPath.substring(path.length() + 1), value));
+            }
+        }
+    }
+}
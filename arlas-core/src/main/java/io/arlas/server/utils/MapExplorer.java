@@ -30,27 +30,25 @@ import java.util.stream.Collectors;
 public class MapExplorer {
 
     public static Object getObjectFromPath(String path, Object source) {
-        if (StringUtil.isNullOrEmpty(path)) {
-            return source;
-        } else {
-            String[] pathLevels = path.split("\\.");
-            StringBuffer newPath = new StringBuffer();
-            for (int i = 1; i < pathLevels.length; i++) {
-                newPath.append(pathLevels[i]);
-                if (i < pathLevels.length - 1) {
-                    newPath.append(".");
-                }
-            }
-            if (source instanceof Map && ((Map) source).containsKey(pathLevels[0])) {
-                return getObjectFromPath(newPath.toString(), ((Map) source).get(pathLevels[0]));
-            } else if (source instanceof CollectionReferenceDescriptionProperty
-                    && ((CollectionReferenceDescriptionProperty) source).properties != null
-                    && ((CollectionReferenceDescriptionProperty) source).properties.containsKey(pathLevels[0])) {
-                return getObjectFromPath(newPath.toString(), ((CollectionReferenceDescriptionProperty) source).properties.get(pathLevels[0]));
+        return getObjectFromPath(FieldPath.of(path), source);
+    }
+
+    /**
+     * Same as {@link #getObjectFromPath(String, Object)} with a path compiled once, for the callers that read it from many sources.
+     */
+    public static Object getObjectFromPath(FieldPath fieldPath, Object source) {
+        Object current = source;
+        for (int i = 0; i < fieldPath.size(); i++) {
+            if (current instanceof Map) {
+                current = ((Map) current).get(fieldPath.level(i));
+            } else if (current instanceof CollectionReferenceDescriptionProperty
+                    && ((CollectionReferenceDescriptionProperty) current).properties != null) {
+                current = ((CollectionReferenceDescriptionProperty) current).properties.get(fieldPath.level(i));
             } else {
                 return null;
             }
         }
+        return current;
     }
 
     public static Map<String, Object> flat(Object source, Function<Map<List<String>, Object>,Map<String, Object>> keyStringifier, Set<String> exclude) {
@@ -0,0 +1,197 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.arlas.server.model.Link;
+import io.arlas.server.model.response.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes the responses of the exploration API as the protobuf messages described in proto/arlas.proto.
+ * The free-form parts of the responses are written as google.protobuf.Struct and google.protobuf.Value.
+ */
+public class ProtobufEncoder {
+
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    private static final ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @FunctionalInterface
+    public interface MessageWriter {
+        void writeTo(CodedOutputStream out) throws IOException;
+    }
+
+    public static byte[] message(MessageWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTo(bytes, writer);
+        return bytes.toByteArray();
+    }
+
+    public static void writeTo(OutputStream outputStream, MessageWriter writer) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        writer.writeTo(out);
+        out.flush();
+    }
+
+    //----------------------- SEARCH --------------------------
+
+    public static void writeHits(CodedOutputStream out, Hits hits) throws IOException {
+        writeString(out, 1, hits.collection);
+        if (hits.hits != null) {
+            for (Hit hit : hits.hits) {
+                out.writeByteArray(2, message(hitOut -> writeHit(hitOut, hit)));
+            }
+        }
+        out.writeInt64(3, hits.nbhits);
+        out.writeInt64(4, hits.totalnb);
+        if (hits.links != null) {
+            for (Map.Entry<String, Link> link : hits.links.entrySet()) {
+                // map<string, Link>: a repeated entry message of key 1 and value 2
+                out.writeByteArray(5, message(entryOut -> {
+                    writeString(entryOut, 1, link.getKey());
+                    entryOut.writeByteArray(2, message(linkOut -> writeLink(linkOut, link.getValue())));
+                }));
+            }
+        }
+    }
+
+    private static void writeLink(CodedOutputStream out, Link link) throws IOException {
+        writeString(out, 1, link.href);
+        writeString(out, 2, link.method);
+        writeStruct(out, 3, link.body);
+    }
+
+    private static void writeHit(CodedOutputStream out, Hit hit) throws IOException {
+        if (hit.md != null) {
+            out.writeByteArray(1, message(mdOut -> writeMD(mdOut, hit.md)));
+        }
+        writeStruct(out, 2, hit.getDataAsMap() != null ? hit.getDataAsMap() : hit.data);
+    }
+
+    private static void writeMD(CodedOutputStream out, MD md) throws IOException {
+        writeString(out, 1, md.id);
+        writeInt64(out, 2, md.timestamp);
+        writeStruct(out, 3, md.geometry);
+        writeStruct(out, 4, md.centroid);
+    }
+
+    //----------------------- AGGREGATION --------------------------
+
+    public static void writeAggregationResponse(CodedOutputStream out, AggregationResponse aggregation) throws IOException {
+        writeString(out, 1, aggregation.name);
+        writeInt64(out, 2, aggregation.count);
+        writeInt64(out, 3, aggregation.sumotherdoccounts);
+        writeValue(out, 4, aggregation.key);
+        writeValue(out, 5, aggregation.keyAsString);
+        if (aggregation.elements != null) {
+            for (AggregationResponse element : aggregation.elements) {
+                out.writeByteArray(6, message(elementOut -> writeAggregationResponse(elementOut, element)));
+            }
+        }
+        if (aggregation.metrics != null) {
+            for (AggregationMetric metric : aggregation.metrics) {
+                out.writeByteArray(7, message(metricOut -> writeAggregationMetric(metricOut, metric)));
+            }
+        }
+        if (aggregation.hits != null) {
+            for (Object hit : aggregation.hits) {
+                out.writeMessage(8, toValue(hit));
+            }
+        }
+        writeStruct(out, 9, aggregation.geometry);
+        writeStruct(out, 10, aggregation.flattenedElements);
+        writeInt64(out, 11, aggregation.queryTime);
+        writeInt64(out, 12, aggregation.totalTime);
+        writeInt64(out, 13, aggregation.totalnb);
+    }
+
+    private static void writeAggregationMetric(CodedOutputStream out, AggregationMetric metric) throws IOException {
+        writeString(out, 1, metric.type);
+        writeString(out, 2, metric.field);
+        writeValue(out, 3, metric.value);
+    }
+
+    //----------------------- FIELDS --------------------------
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static void writeInt64(CodedOutputStream out, int field, Long value) throws IOException {
+        if (value != null) {
+            out.writeInt64(field, value);
+        }
+    }
+
+    private static void writeValue(CodedOutputStream out, int field, Object value) throws IOException {
+        if (value != null) {
+            out.writeMessage(field, toValue(value));
+        }
+    }
+
+    private static void writeStruct(CodedOutputStream out, int field, Object value) throws IOException {
+        if (value != null) {
+            Value struct = toValue(value instanceof Map ? value : mapper.convertValue(value, Map.class));
+            out.writeMessage(field, struct.hasStructValue() ? struct.getStructValue() : Struct.getDefaultInstance());
+        }
+    }
+
+    public static Value toValue(Object value) {
+        Value.Builder builder = Value.newBuilder();
+        if (value == null) {
+            builder.setNullValue(NullValue.NULL_VALUE);
+        } else if (value instanceof String) {
+            builder.setStringValue((String) value);
+        } else if (value instanceof Number) {
+            builder.setNumberValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            builder.setBoolValue((Boolean) value);
+        } else if (value instanceof Map) {
+            Struct.Builder struct = Struct.newBuilder();
+            ((Map<?, ?>) value).forEach((key, fieldValue) -> struct.putFields(String.valueOf(key), toValue(fieldValue)));
+            builder.setStructValue(struct);
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            ListValue.Builder list = ListValue.newBuilder();
+            for (Object element : value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value)) {
+                list.addValues(toValue(element));
+            }
+            builder.setListValue(list);
+        } else {
+            // POJOs, such as the GeoJSON geometries, are written as their JSON representation
+            return toValue(mapper.convertValue(value, Object.class));
+        }
+        return builder.build();
+    }
+}
@@ -25,11 +25,21 @@ import javax.ws.rs.core.Response;
 public class ResponseCacheManager {
 
     private int defaultMaxAgeCache = 0;
+    private boolean etagEnabled = false;
 
     public ResponseCacheManager(int defaultMaxAgeCache) {
         this.defaultMaxAgeCache = defaultMaxAgeCache;
     }
 
+    public ResponseCacheManager(int defaultMaxAgeCache, boolean etagEnabled) {
+        this(defaultMaxAgeCache);
+        this.etagEnabled = etagEnabled;
+    }
+
+    public boolean isETagEnabled() {
+        return etagEnabled;
+    }
+
     public Response cache(Response.ResponseBuilder response, Integer maxagecache) {
         if (defaultMaxAgeCache > 0 || maxagecache != null) {
             if (maxagecache == null) {
@@ -0,0 +1,455 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.vividsolutions.jts.geom.*;
+import org.geojson.GeoJsonObject;
+import org.geojson.LngLatAlt;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Encodes features as a Mapbox Vector Tile (version 2.1 of the specification) for a given tile.
+ * The geometries are projected in web mercator, clipped to the tile extended by a buffer and quantized to the tile extent.
+ * The properties are dictionary-encoded per layer: only the string, number and boolean values are kept, the properties
+ * are therefore expected to be flattened.
+ */
+public class VectorTileEncoder {
+
+    public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+    public static final int DEFAULT_EXTENT = 4096;
+    public static final int DEFAULT_BUFFER = 64;
+
+    private static final double MAX_LATITUDE = 85.0511287798;
+    private static final int VERSION = 2;
+
+    // vector_tile.proto: Tile.layers
+    private static final int TILE_LAYERS = 3;
+    // vector_tile.proto: Tile.Layer
+    private static final int LAYER_NAME = 1;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_KEYS = 3;
+    private static final int LAYER_VALUES = 4;
+    private static final int LAYER_EXTENT = 5;
+    private static final int LAYER_VERSION = 15;
+    // vector_tile.proto: Tile.Feature
+    private static final int FEATURE_TAGS = 2;
+    private static final int FEATURE_TYPE = 3;
+    private static final int FEATURE_GEOMETRY = 4;
+    // vector_tile.proto: Tile.Value
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_DOUBLE = 3;
+    private static final int VALUE_UINT = 5;
+    private static final int VALUE_SINT = 6;
+    private static final int VALUE_BOOL = 7;
+    // vector_tile.proto: Tile.GeomType
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int CLOSE_PATH = 7;
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private final int extent;
+    private final double west;
+    private final double east;
+    private final double mercatorNorth;
+    private final double mercatorSouth;
+    private final Geometry clip;
+    private final Envelope clipEnvelope;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    public VectorTileEncoder(BoundingBox bbox) {
+        this(bbox, DEFAULT_EXTENT, DEFAULT_BUFFER);
+    }
+
+    public VectorTileEncoder(BoundingBox bbox, int extent, int buffer) {
+        this.extent = extent;
+        this.west = bbox.getWest();
+        this.east = bbox.getEast();
+        this.mercatorNorth = mercatorY(bbox.getNorth());
+        this.mercatorSouth = mercatorY(bbox.getSouth());
+        this.clipEnvelope = new Envelope(-buffer, extent + buffer, -buffer, extent + buffer);
+        this.clip = geometryFactory.toGeometry(clipEnvelope);
+    }
+
+    /**
+     * Adds a feature to the given layer. Nothing is encoded if the geometry is null or if nothing of it remains in the tile.
+     */
+    public void addFeature(String layerName, Map<String, Object> properties, GeoJsonObject geometry) {
+        if (geometry == null) {
+            return;
+        }
+        Geometry clipped = clip(toTileGeometry(geometry));
+        if (clipped == null || clipped.isEmpty()) {
+            return;
+        }
+        List<Point> points = new ArrayList<>();
+        List<LineString> lines = new ArrayList<>();
+        List<Polygon> polygons = new ArrayList<>();
+        split(clipped, points, lines, polygons);
+        Layer layer = layers.computeIfAbsent(layerName, Layer::new);
+        List<Integer> tags = null;
+        // a feature has a single type: the heterogeneous geometry collections are encoded as several features
+        for (int type = POINT; type <= POLYGON; type++) {
+            List<Integer> commands = type == POINT ? encodePoints(points) : type == LINESTRING ? encodeLines(lines) : encodePolygons(polygons);
+            if (!commands.isEmpty()) {
+                if (tags == null) {
+                    tags = layer.tags(properties);
+                }
+                layer.features.add(new Feature(type, tags, commands));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return layers.values().stream().allMatch(layer -> layer.features.isEmpty());
+    }
+
+    public byte[] encode() throws IOException {
+        return ProtobufEncoder.message(out -> {
+            for (Layer layer : layers.values()) {
+                if (!layer.features.isEmpty()) {
+                    out.writeByteArray(TILE_LAYERS, ProtobufEncoder.message(layer::writeTo));
+                }
+            }
+        });
+    }
+
+    //----------------------- GEOMETRIES --------------------------
+
+    private double mercatorY(double latitude) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        return Math.log(Math.tan(Math.PI / 4 + lat / 2));
+    }
+
+    private Coordinate toTileCoordinate(LngLatAlt lngLat) {
+        return new Coordinate(
+                (lngLat.getLongitude() - west) / (east - west) * extent,
+                (mercatorNorth - mercatorY(lngLat.getLatitude())) / (mercatorNorth - mercatorSouth) * extent);
+    }
+
+    private Coordinate[] toTileCoordinates(List<LngLatAlt> lngLats) {
+        return lngLats.stream().map(this::toTileCoordinate).toArray(Coordinate[]::new);
+    }
+
+    private LineString toLineString(List<LngLatAlt> lngLats) {
+        return geometryFactory.createLineString(toTileCoordinates(lngLats));
+    }
+
+    /**
+     * Some rings, such as the extents of the geohash cells, are not closed: their first point is repeated at their end,
+     * as a linear ring requires.
+     */
+    private LinearRing toLinearRing(List<LngLatAlt> lngLats) {
+        Coordinate[] coordinates = toTileCoordinates(lngLats);
+        if (coordinates.length > 0 && !coordinates[0].equals2D(coordinates[coordinates.length - 1])) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length + 1);
+            coordinates[coordinates.length - 1] = new Coordinate(coordinates[0]);
+        }
+        return geometryFactory.createLinearRing(coordinates);
+    }
+
+    private Polygon toPolygon(List<List<LngLatAlt>> rings) {
+        LinearRing shell = toLinearRing(rings.get(0));
+        LinearRing[] holes = rings.subList(1, rings.size()).stream()
+                .map(this::toLinearRing).toArray(LinearRing[]::new);
+        return geometryFactory.createPolygon(shell, holes);
+    }
+
+    private Geometry toTileGeometry(GeoJsonObject geometry) {
+        if (geometry instanceof org.geojson.Point) {
+            return geometryFactory.createPoint(toTileCoordinate(((org.geojson.Point) geometry).getCoordinates()));
+        } else if (geometry instanceof org.geojson.MultiPoint) {
+            return geometryFactory.createMultiPoint(toTileCoordinates(((org.geojson.MultiPoint) geometry).getCoordinates()));
+        } else if (geometry instanceof org.geojson.LineString) {
+            return toLineString(((org.geojson.LineString) geometry).getCoordinates());
+        } else if (geometry instanceof org.geojson.MultiLineString) {
+            return geometryFactory.createMultiLineString(((org.geojson.MultiLineString) geometry).getCoordinates().stream()
+                    .map(this::toLineString).toArray(LineString[]::new));
+        } else if (geometry instanceof org.geojson.Polygon) {
+            return toPolygon(((org.geojson.Polygon) geometry).getCoordinates());
+        } else if (geometry instanceof org.geojson.MultiPolygon) {
+            return geometryFactory.createMultiPolygon(((org.geojson.MultiPolygon) geometry).getCoordinates().stream()
+                    .map(this::toPolygon).toArray(Polygon[]::new));
+        } else if (geometry instanceof org.geojson.GeometryCollection) {
+            return geometryFactory.createGeometryCollection(((org.geojson.GeometryCollection) geometry).getGeometries().stream()
+                    .map(this::toTileGeometry).filter(Objects::nonNull).toArray(Geometry[]::new));
+        }
+        return null;
+    }
+
+    private Geometry clip(Geometry geometry) {
+        if (geometry == null || clipEnvelope.contains(geometry.getEnvelopeInternal())) {
+            return geometry;
+        }
+        if (!clipEnvelope.intersects(geometry.getEnvelopeInternal())) {
+            return null;
+        }
+        try {
+            return geometry.intersection(clip);
+        } catch (TopologyException e) {
+            // invalid polygons (self intersections) are cleaned before being clipped
+            try {
+                return geometry.buffer(0).intersection(clip);
+            } catch (TopologyException stillInvalid) {
+                // the feature is skipped rather than failing the whole tile
+                return null;
+            }
+        }
+    }
+
+    private static void split(Geometry geometry, List<Point> points, List<LineString> lines, List<Polygon> polygons) {
+        if (geometry instanceof Point) {
+            points.add((Point) geometry);
+        } else if (geometry instanceof LineString) {
+            lines.add((LineString) geometry);
+        } else if (geometry instanceof Polygon) {
+            polygons.add((Polygon) geometry);
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                split(geometry.getGeometryN(i), points, lines, polygons);
+            }
+        }
+    }
+
+    //----------------------- COMMANDS --------------------------
+
+    private List<Integer> encodePoints(List<Point> points) {
+        List<Integer> commands = new ArrayList<>();
+        if (!points.isEmpty()) {
+            Cursor cursor = new Cursor();
+            commands.add(command(MOVE_TO, points.size()));
+            points.forEach(point -> cursor.moveTo(commands, quantize(point.getX()), quantize(point.getY())));
+        }
+        return commands;
+    }
+
+    private List<Integer> encodeLines(List<LineString> lines) {
+        List<Integer> commands = new ArrayList<>();
+        Cursor cursor = new Cursor();
+        for (LineString line : lines) {
+            List<int[]> vertices = quantize(line.getCoordinates(), false);
+            if (vertices.size() >= 2) {
+                encodePath(commands, cursor, vertices, false);
+            }
+        }
+        return commands;
+    }
+
+    private List<Integer> encodePolygons(List<Polygon> polygons) {
+        List<Integer> commands = new ArrayList<>();
+        Cursor cursor = new Cursor();
+        for (Polygon polygon : polygons) {
+            List<int[]> shell = quantize(polygon.getExteriorRing().getCoordinates(), true);
+            // the exterior rings have a positive area in tile coordinates, the interior rings a negative one
+            if (orient(shell, true)) {
+                encodePath(commands, cursor, shell, true);
+                for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                    List<int[]> hole = quantize(polygon.getInteriorRingN(i).getCoordinates(), true);
+                    if (orient(hole, false)) {
+                        encodePath(commands, cursor, hole, true);
+                    }
+                }
+            }
+        }
+        return commands;
+    }
+
+    private void encodePath(List<Integer> commands, Cursor cursor, List<int[]> vertices, boolean closed) {
+        commands.add(command(MOVE_TO, 1));
+        cursor.moveTo(commands, vertices.get(0)[0], vertices.get(0)[1]);
+        commands.add(command(LINE_TO, vertices.size() - 1));
+        for (int[] vertex : vertices.subList(1, vertices.size())) {
+            cursor.moveTo(commands, vertex[0], vertex[1]);
+        }
+        if (closed) {
+            commands.add(command(CLOSE_PATH, 1));
+        }
+    }
+
+    /**
+     * Quantizes the coordinates and removes the repeated vertices (and the closing vertex of the rings).
+     */
+    private static List<int[]> quantize(Coordinate[] coordinates, boolean ring) {
+        List<int[]> vertices = new ArrayList<>(coordinates.length);
+        int[] previous = null;
+        for (Coordinate coordinate : coordinates) {
+            int[] vertex = new int[]{quantize(coordinate.x), quantize(coordinate.y)};
+            if (previous == null || previous[0] != vertex[0] || previous[1] != vertex[1]) {
+                vertices.add(vertex);
+                previous = vertex;
+            }
+        }
+        if (ring && vertices.size() > 1 && Arrays.equals(vertices.get(0), vertices.get(vertices.size() - 1))) {
+            vertices.remove(vertices.size() - 1);
+        }
+        return vertices;
+    }
+
+    private static int quantize(double value) {
+        return (int) Math.round(value);
+    }
+
+    /**
+     * Orients the ring as an exterior or as an interior ring. Returns false when the ring collapsed once quantized.
+     */
+    private static boolean orient(List<int[]> ring, boolean exterior) {
+        if (ring.size() < 3) {
+            return false;
+        }
+        long area = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            int[] current = ring.get(i);
+            int[] next = ring.get((i + 1) % ring.size());
+            area += (long) current[0] * next[1] - (long) next[0] * current[1];
+        }
+        if (area == 0) {
+            return false;
+        }
+        if ((area > 0) != exterior) {
+            Collections.reverse(ring);
+        }
+        return true;
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static class Cursor {
+        private int x = 0;
+        private int y = 0;
+
+        private void moveTo(List<Integer> commands, int toX, int toY) {
+            commands.add(zigZag(toX - x));
+            commands.add(zigZag(toY - y));
+            x = toX;
+            y = toY;
+        }
+    }
+
+    //----------------------- PROTOBUF --------------------------
+
+    private static void writePacked(CodedOutputStream out, int field, List<Integer> values) throws IOException {
+        int size = 0;
+        for (int value : values) {
+            size += CodedOutputStream.computeUInt32SizeNoTag(value);
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        for (int value : values) {
+            out.writeUInt32NoTag(value);
+        }
+    }
+
+    private class Layer {
+        private final String name;
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new LinkedHashMap<>();
+        private final List<Feature> features = new ArrayList<>();
+
+        private Layer(String name) {
+            this.name = name;
+        }
+
+        private List<Integer> tags(Map<String, Object> properties) {
+            List<Integer> tags = new ArrayList<>();
+            if (properties != null) {
+                properties.forEach((key, value) -> {
+                    Object tileValue = toTileValue(value);
+                    if (key != null && tileValue != null) {
+                        tags.add(keys.computeIfAbsent(key, k -> keys.size()));
+                        tags.add(values.computeIfAbsent(tileValue, v -> values.size()));
+                    }
+                });
+            }
+            return tags;
+        }
+
+        private Object toTileValue(Object value) {
+            if (value instanceof String || value instanceof Boolean) {
+                return value;
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return ((Number) value).longValue();
+            } else if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return null;
+        }
+
+        private void writeTo(CodedOutputStream out) throws IOException {
+            out.writeUInt32(LAYER_VERSION, VERSION);
+            out.writeString(LAYER_NAME, name);
+            for (Feature feature : features) {
+                out.writeByteArray(LAYER_FEATURES, ProtobufEncoder.message(feature::writeTo));
+            }
+            for (String key : keys.keySet()) {
+                out.writeString(LAYER_KEYS, key);
+            }
+            for (Object value : values.keySet()) {
+                out.writeByteArray(LAYER_VALUES, ProtobufEncoder.message(valueOut -> {
+                    if (value instanceof String) {
+                        valueOut.writeString(VALUE_STRING, (String) value);
+                    } else if (value instanceof Boolean) {
+                        valueOut.writeBool(VALUE_BOOL, (Boolean) value);
+                    } else if (value instanceof Long && (Long) value >= 0) {
+                        valueOut.writeUInt64(VALUE_UINT, (Long) value);
+                    } else if (value instanceof Long) {
+                        valueOut.writeSInt64(VALUE_SINT, (Long) value);
+                    } else {
+                        valueOut.writeDouble(VALUE_DOUBLE, (Double) value);
+                    }
+                }));
+            }
+            out.writeUInt32(LAYER_EXTENT, extent);
+        }
+    }
+
+    private static class Feature {
+        private final int type;
+        private final List<Integer> tags;
+        private final List<Integer> geometry;
+
+        private Feature(int type, List<Integer> tags, List<Integer> geometry) {
+            this.type = type;
+            this.tags = tags;
+            this.geometry = geometry;
+        }
+
+        private void writeTo(CodedOutputStream out) throws IOException {
+            if (!tags.isEmpty()) {
+                writePacked(out, FEATURE_TAGS, tags);
+            }
+            out.writeEnum(FEATURE_TYPE, type);
+            writePacked(out, FEATURE_GEOMETRY, geometry);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import io.arlas.server.ns.GML;
 import io.arlas.server.ns.OPENSEARCH;
 import io.arlas.server.ogc.common.utils.GeoFormat;
 import io.arlas.server.services.ExploreServices;
+import io.arlas.server.utils.FieldPath;
 import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.StringUtil;
 
@@ -132,6 +133,8 @@ public class AtomHitsMessageBodyWriter implements MessageBodyWriter<Hits> {
                 writeElement(writer, ATOM.XML_NS, "subtitle", feed.subtitle);
             }
             if (hits != null) {
+                // the paths of the fields, compiled once for all the hits
+                Map<CollectionReferenceDescriptionProperty, FieldPath> fieldPaths = new IdentityHashMap<>();
                 for (Hit hit : hits.hits) {
                     writer.writeStartElement(ATOM.XML_NS, "entry");
                     writeElement(writer, ATOM.XML_NS, "id", hit.md.id);
@@ -146,7 +149,7 @@ public class AtomHitsMessageBodyWriter implements MessageBodyWriter<Hits> {
                         }
 
                     } else {
-                        writeFields(writer, fields.properties, ATOM.XML_NS, new Stack<>(), hit.data);
+                        writeFields(writer, fields.properties, ATOM.XML_NS, new Stack<>(), hit.getDataAsMap(), fieldPaths);
                     }
                     writer.writeEndElement();
                     writer.writeStartElement(GEORSS.XML_NS, "where");
@@ -167,7 +170,8 @@ public class AtomHitsMessageBodyWriter implements MessageBodyWriter<Hits> {
         }
     }
 
-    private void writeFields(XMLStreamWriter writer, Map<String, CollectionReferenceDescriptionProperty> properties, String xmlNamespace, Stack<String> namespace, Object data) throws XMLStreamException {
+    private void writeFields(XMLStreamWriter writer, Map<String, CollectionReferenceDescriptionProperty> properties, String xmlNamespace, Stack<String> namespace, Object data,
+                             Map<CollectionReferenceDescriptionProperty, FieldPath> fieldPaths) throws XMLStreamException {
         if (properties == null || data == null) {
             return;
         }
@@ -176,10 +180,10 @@ public class AtomHitsMessageBodyWriter implements MessageBodyWriter<Hits> {
             namespace.push(key);
             if (property.type == ElasticType.OBJECT) {
                 writer.writeStartElement(xmlNamespace, key);
-                writeFields(writer, property.properties, xmlNamespace, namespace, data);
+                writeFields(writer, property.properties, xmlNamespace, namespace, data, fieldPaths);
                 writer.writeEndElement();
             } else {
-                String fieldPath = String.join(".", new ArrayList<>(namespace));
+                FieldPath fieldPath = fieldPaths.computeIfAbsent(property, p -> FieldPath.of(String.join(".", new ArrayList<>(namespace))));
                 writeElement(writer, xmlNamespace, key, toString(MapExplorer.getObjectFromPath(fieldPath, data)));
             }
             namespace.pop();
@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.opensearch;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.app.OpensearchConfiguration;
 import io.arlas.server.core.ElasticAdmin;
@@ -59,8 +60,8 @@ public class OpenSearchDescriptorService extends ExploreRESTServices {
     @Context
     UriInfo uri;
 
-    public OpenSearchDescriptorService(ExploreServices exploreServices, OpensearchConfiguration opensearchConfiguration) {
-        super(exploreServices);
+    public OpenSearchDescriptorService(ExploreServices exploreServices, OpensearchConfiguration opensearchConfiguration, MetricRegistry metrics) {
+        super(exploreServices, metrics);
         this.admin = new ElasticAdmin(exploreServices.getClient());
         this.opensearchConfiguration = opensearchConfiguration;
     }
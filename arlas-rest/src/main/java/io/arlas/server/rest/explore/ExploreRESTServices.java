@@ -19,6 +19,8 @@
 
 package io.arlas.server.rest.explore;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.arlas.server.services.ExploreServices;
 import io.swagger.annotations.*;
@@ -26,8 +28,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Path;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Path("/explore")
 @Api(value = "/explore")
@@ -44,6 +49,8 @@ public abstract class ExploreRESTServices {
 
     protected static ObjectMapper mapper = new ObjectMapper();
 
+    private final MetricRegistry metrics;
+
     public ExploreServices getExploreServices() {
         return exploreServices;
     }
@@ -52,11 +59,42 @@ public abstract class ExploreRESTServices {
 
     public static final String UTF8JSON = MediaType.APPLICATION_JSON + ";charset=utf-8";
 
-    public ExploreRESTServices(ExploreServices exploreServices) {
+    public ExploreRESTServices(ExploreServices exploreServices, MetricRegistry metrics) {
         this.exploreServices = exploreServices;
+        this.metrics = metrics;
     }
 
     public Response cache(Response.ResponseBuilder response, Integer maxagecache) {
         return exploreServices.getResponseCacheManager().cache(response, maxagecache);
     }
+
+    /**
+     * Resumes the suspended request once the asynchronous result is available: the response is built by the given factory
+     * on the explore response executor, failures are resumed as is so that they go through the exception mappers.
+     * The @Timed timers of the asynchronous resources only measure the dispatch of the request: the latency until the
+     * response is resumed is reported in the "response" timer of the service.
+     */
+    protected <T> void resume(AsyncResponse asyncResponse, CompletableFuture<T> result, ResponseFactory<T> responseFactory) {
+        Timer.Context latency = metrics.timer(MetricRegistry.name(getClass(), "response")).time();
+        result.whenCompleteAsync((value, throwable) -> {
+            try {
+                if (throwable != null) {
+                    asyncResponse.resume(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                } else {
+                    try {
+                        asyncResponse.resume(responseFactory.apply(value));
+                    } catch (Exception e) {
+                        asyncResponse.resume(e);
+                    }
+                }
+            } finally {
+                latency.stop();
+            }
+        }, exploreServices.getResponseExecutor());
+    }
+
+    @FunctionalInterface
+    protected interface ResponseFactory<T> {
+        Response apply(T value) throws Exception;
+    }
 }
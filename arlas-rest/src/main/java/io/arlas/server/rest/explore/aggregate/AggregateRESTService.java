@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.aggregate;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.arlas.server.exceptions.ArlasException;
@@ -33,6 +34,7 @@ import io.arlas.server.rest.explore.ExploreRESTServices;
 import io.arlas.server.services.ExploreServices;
 import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.ParamsParser;
+import io.arlas.server.utils.ProtobufEncoder;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -42,33 +44,38 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class AggregateRESTService extends ExploreRESTServices {
 
-    public AggregateRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public AggregateRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
     @Path("{collection}/_aggregate")
     @GET
-    @Produces(UTF8JSON)
+    @Produces({UTF8JSON, ProtobufEncoder.MEDIA_TYPE})
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Aggregate", produces = UTF8JSON, notes = Documentation.AGGREGATION_OPERATION, consumes = UTF8JSON, response = AggregationResponse.class
+    @ApiOperation(value = "Aggregate", produces = UTF8JSON + "," + ProtobufEncoder.MEDIA_TYPE, notes = Documentation.AGGREGATION_OPERATION, consumes = UTF8JSON, response = AggregationResponse.class
 
     )
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = AggregationResponse.class, responseContainer = "ArlasAggregation"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response aggregate(
+    public void aggregate(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -176,21 +183,24 @@ public class AggregateRESTService extends ExploreRESTServices {
         request.basicRequest = aggregationsRequest;
         request.headerRequest = aggregationsRequestHeader;
 
-        AggregationResponse aggregationResponse = getArlasAggregation(request, collectionReference, BooleanUtils.isTrue(flat));
-        aggregationResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
-        return cache(Response.ok(aggregationResponse), maxagecache);
+        resume(asyncResponse, getArlasAggregation(request, collectionReference, BooleanUtils.isTrue(flat)), aggregationResponse -> {
+            aggregationResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(aggregationResponse), maxagecache);
+        });
     }
 
     @Timed
     @Path("{collection}/_aggregate")
     @POST
-    @Produces(UTF8JSON)
+    @Produces({UTF8JSON, ProtobufEncoder.MEDIA_TYPE})
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Aggregate", produces = UTF8JSON, notes = Documentation.AGGREGATION_OPERATION, consumes = UTF8JSON, response = AggregationResponse.class)
+    @ApiOperation(value = "Aggregate", produces = UTF8JSON + "," + ProtobufEncoder.MEDIA_TYPE, notes = Documentation.AGGREGATION_OPERATION, consumes = UTF8JSON, response = AggregationResponse.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = AggregationResponse.class, responseContainer = "ArlasAggregation"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class),
             @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response aggregatePost(
+    public void aggregatePost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -241,22 +251,26 @@ public class AggregateRESTService extends ExploreRESTServices {
         request.basicRequest = aggregationsRequest;
         request.headerRequest = aggregationsRequestHeader;
 
-        AggregationResponse aggregationResponse = getArlasAggregation(request, collectionReference, (aggregationsRequest.form != null && BooleanUtils.isTrue(aggregationsRequest.form.flat)));
-        aggregationResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+        resume(asyncResponse, getArlasAggregation(request, collectionReference, (aggregationsRequest.form != null && BooleanUtils.isTrue(aggregationsRequest.form.flat))), aggregationResponse -> {
+            aggregationResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(aggregationResponse), maxagecache);
+        });
+    }
 
-        return cache(Response.ok(aggregationResponse), maxagecache);
+    public CompletableFuture<AggregationResponse> getArlasAggregation(MixedRequest request, CollectionReference collectionReference, boolean flat) throws ArlasException, IOException {
+        Long startQuery = System.nanoTime();
+        return this.getExploreServices().aggregateAsync(request, collectionReference, false)
+                .thenApplyAsync(response -> getArlasAggregation(response, collectionReference, flat, startQuery), this.getExploreServices().getResponseExecutor());
     }
 
-    public AggregationResponse getArlasAggregation(MixedRequest request, CollectionReference collectionReference, boolean flat) throws ArlasException, IOException {
+    public AggregationResponse getArlasAggregation(SearchResponse response, CollectionReference collectionReference, boolean flat, Long startQuery) {
         AggregationResponse aggregationResponse = new AggregationResponse();
-        Long startQuery = System.nanoTime();
-        SearchResponse response = this.getExploreServices().aggregate(request, collectionReference, false);
         MultiBucketsAggregation aggregation;
         aggregation = (MultiBucketsAggregation) response.getAggregations().asList().get(0);
         aggregationResponse.totalnb = response.getHits().getTotalHits();
         aggregationResponse.queryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startQuery);
         aggregationResponse = this.getExploreServices().formatAggregationResult(aggregation, aggregationResponse, collectionReference.collectionName);
-        return  flat ? flatten(aggregationResponse) : aggregationResponse;
+        return flat ? flatten(aggregationResponse) : aggregationResponse;
     }
 
     private AggregationResponse flatten(AggregationResponse aggregationResponse) {
@@ -19,10 +19,12 @@
 
 package io.arlas.server.rest.explore.aggregate;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.BadRequestException;
 import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.enumerations.AggregationTypeEnum;
 import io.arlas.server.model.request.AggregationsRequest;
@@ -37,6 +39,8 @@ import io.arlas.server.utils.BoundingBox;
 import io.arlas.server.utils.GeoTileUtil;
 import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.ParamsParser;
+import io.arlas.server.utils.Tile;
+import io.arlas.server.utils.VectorTileEncoder;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -48,17 +52,20 @@ import org.geojson.FeatureCollection;
 import org.geojson.GeoJsonObject;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class GeoAggregateRESTService extends ExploreRESTServices {
 
-    public GeoAggregateRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public GeoAggregateRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     private static final String FEATURE_TYPE_KEY = "feature_type";
@@ -73,7 +80,9 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class),
             @ApiResponse(code = 501, message = "Not implemented functionality.", response = Error.class)})
-    public Response geoaggregate(
+    public void geoaggregate(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -181,8 +190,7 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
         MixedRequest request = new MixedRequest();
         request.basicRequest = aggregationsRequest;
         request.headerRequest = aggregationsRequestHeader;
-        FeatureCollection fc = getFeatureCollection(request, collectionReference, Boolean.TRUE.equals(flat), Optional.empty());
-        return cache(Response.ok(fc), maxagecache);
+        resume(asyncResponse, getFeatureCollection(request, collectionReference, Boolean.TRUE.equals(flat), Optional.empty()), fc -> cache(Response.ok(fc), maxagecache));
     }
 
 
@@ -195,7 +203,9 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class),
             @ApiResponse(code = 501, message = "Not implemented functionality.", response = Error.class)})
-    public Response geohashgeoaggregate(
+    public void geohashgeoaggregate(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH ---------------------------
             // --------------------------------------------------------
@@ -311,7 +321,7 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
         }
 
         if (agg == null || agg.size() == 0) {
-            agg = Collections.singletonList("geohash:" + collectionReference.params.centroidPath + ":interval-" + geohash.length());
+            agg = getDefaultAggregation(collectionReference, geohash.length());
         }
 
         if (bbox != null && bbox.getNorth() > bbox.getSouth()
@@ -327,12 +337,154 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
             MixedRequest request = new MixedRequest();
             request.basicRequest = aggregationsRequest;
             request.headerRequest = aggregationsRequestHeader;
-            FeatureCollection fc = getFeatureCollection(request, collectionReference, Boolean.TRUE.equals(flat), Optional.of(geohash));
-            return cache(Response.ok(fc), maxagecache);
+            resume(asyncResponse, getFeatureCollection(request, collectionReference, Boolean.TRUE.equals(flat), Optional.of(geohash)), fc -> cache(Response.ok(fc), maxagecache));
         } else {
-            return Response.ok(new FeatureCollection()).build();
+            asyncResponse.resume(Response.ok(new FeatureCollection()).build());
+        }
+
+    }
+
+    @Timed
+    @Path("{collection}/_geoaggregate/{z}/{x}/{y}.mvt")
+    @GET
+    @Produces(VectorTileEncoder.MEDIA_TYPE)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Vector Tiled GeoAggregate", produces = VectorTileEncoder.MEDIA_TYPE, notes = Documentation.VECTOR_TILED_GEOAGGREGATION_OPERATION, consumes = UTF8JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class),
+            @ApiResponse(code = 501, message = "Not implemented functionality.", response = Error.class)})
+    public void vectortiledgeoaggregate(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
+            // --------------------------------------------------------
+            // ----------------------- PATH ---------------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+
+            @ApiParam(
+                    name = "x",
+                    value = "x",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "x") Integer x,
+            @ApiParam(
+                    name = "y",
+                    value = "y",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "y") Integer y,
+            @ApiParam(
+                    name = "z",
+                    value = "z",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "z") Integer z,
+
+            // --------------------------------------------------------
+            // ----------------------- AGGREGATION --------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "agg",
+                    value = Documentation.GEOAGGREGATION_PARAM_AGG,
+                    allowMultiple = false
+            )
+            @QueryParam(value = "agg") List<String> agg,
+
+            // --------------------------------------------------------
+            // ----------------------- FILTER -------------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "f",
+                    value = Documentation.FILTER_PARAM_F,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "f") List<String> f,
+
+            @ApiParam(name = "q", value = Documentation.FILTER_PARAM_Q,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "q") List<String> q,
+
+            @ApiParam(name = "pwithin", value = Documentation.FILTER_PARAM_PWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "pwithin") List<String> pwithin,
+
+            @ApiParam(name = "gwithin", value = Documentation.FILTER_PARAM_GWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gwithin") List<String> gwithin,
+
+            @ApiParam(name = "gintersect", value = Documentation.FILTER_PARAM_GINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gintersect") List<String> gintersect,
+
+            @ApiParam(name = "notpwithin", value = Documentation.FILTER_PARAM_NOTPWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notpwithin") List<String> notpwithin,
+
+            @ApiParam(name = "notgwithin", value = Documentation.FILTER_PARAM_NOTGWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgwithin") List<String> notgwithin,
+
+            @ApiParam(name = "notgintersect", value = Documentation.FILTER_PARAM_NOTGINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgintersect") List<String> notgintersect,
+
+            @ApiParam(name = "dateformat", value = Documentation.FILTER_DATE_FORMAT,
+                    allowMultiple = false,
+                    required = false)
+            @QueryParam(value = "dateformat") String dateformat,
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // ----------------------- EXTRA --------------------------
+            // --------------------------------------------------------
+            @ApiParam(value = "max-age-cache", required = false)
+            @QueryParam(value = "max-age-cache") Integer maxagecache
+    ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException, JsonProcessingException {
+        CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        BoundingBox bbox = GeoTileUtil.getBoundingBox(new Tile(x, y, z));
+        String pwithinBbox = bbox.getWest() + "," + bbox.getSouth() + "," + bbox.getEast() + "," + bbox.getNorth();
+
+        //check if every pwithin param has a value that intersects bbox
+        List<String> simplifiedPwithin = ParamsParser.simplifyPwithinAgainstBbox(pwithin, bbox);
+
+        if (agg == null || agg.size() == 0) {
+            agg = getDefaultAggregation(collectionReference, getGeohashPrecision(z));
         }
 
+        if (bbox.getNorth() > bbox.getSouth()
+                // if sizes are not equals, it means one multi-value pwithin does not intersects bbox => no results
+                && pwithin.size() == simplifiedPwithin.size()) {
+            simplifiedPwithin.add(pwithinBbox);
+
+            AggregationsRequest aggregationsRequest = new AggregationsRequest();
+            aggregationsRequest.filter = ParamsParser.getFilter(f, q, simplifiedPwithin, gwithin, gintersect, notpwithin, notgwithin, notgintersect, dateformat);
+            aggregationsRequest.aggregations = ParamsParser.getAggregations(agg);
+            AggregationsRequest aggregationsRequestHeader = new AggregationsRequest();
+            aggregationsRequestHeader.filter = ParamsParser.getFilter(partitionFilter);
+            MixedRequest request = new MixedRequest();
+            request.basicRequest = aggregationsRequest;
+            request.headerRequest = aggregationsRequestHeader;
+            resume(asyncResponse, getFeatureCollection(request, collectionReference, true, Optional.empty()),
+                    fc -> cache(Response.ok(getVectorTile(fc, bbox), VectorTileEncoder.MEDIA_TYPE), maxagecache));
+        } else {
+            asyncResponse.resume(Response.ok(new VectorTileEncoder(bbox).encode(), VectorTileEncoder.MEDIA_TYPE).build());
+        }
     }
 
     @Timed
@@ -344,7 +496,9 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class),
             @ApiResponse(code = 501, message = "Not implemented functionality.", response = Error.class)})
-    public Response geoaggregatePost(
+    public void geoaggregatePost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -393,26 +547,37 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
         request.basicRequest = aggregationRequest;
         request.headerRequest = aggregationsRequestHeader;
 
-        FeatureCollection fc = getFeatureCollection(request, collectionReference, (aggregationRequest.form != null && aggregationRequest.form.flat), Optional.empty());
-
-        return cache(Response.ok(fc), maxagecache);
+        resume(asyncResponse, getFeatureCollection(request, collectionReference, (aggregationRequest.form != null && aggregationRequest.form.flat), Optional.empty()), fc -> cache(Response.ok(fc), maxagecache));
     }
 
-    private FeatureCollection getFeatureCollection(MixedRequest request, CollectionReference collectionReference, boolean flat, Optional<String> geohash) throws ArlasException, IOException {
+    private CompletableFuture<FeatureCollection> getFeatureCollection(MixedRequest request, CollectionReference collectionReference, boolean flat, Optional<String> geohash) throws ArlasException, IOException {
         Optional<Interval> interval = Optional.ofNullable(((AggregationsRequest) request.basicRequest).aggregations.get(0).interval);
         Optional<Number> precision = interval.map(i -> i.value);
-        FeatureCollection fc;
-        AggregationResponse aggregationResponse = new AggregationResponse();
         AggregationTypeEnum maintAggregationType = ((AggregationsRequest) request.basicRequest).aggregations.get(0).type;
-        SearchResponse response = this.getExploreServices().aggregate(request, collectionReference, true);
-        MultiBucketsAggregation aggregation;
-        aggregation = (MultiBucketsAggregation) response.getAggregations().asList().get(0);
-        aggregationResponse = this.getExploreServices().formatAggregationResult(aggregation, aggregationResponse, collectionReference.collectionName);
-        fc = toGeoJson(aggregationResponse, maintAggregationType, flat, geohash, precision.map(p->p.intValue()));
-        return fc;
+        return this.getExploreServices().aggregateAsync(request, collectionReference, true).thenApplyAsync(response -> {
+            AggregationResponse aggregationResponse = new AggregationResponse();
+            MultiBucketsAggregation aggregation;
+            aggregation = (MultiBucketsAggregation) response.getAggregations().asList().get(0);
+            aggregationResponse = this.getExploreServices().formatAggregationResult(aggregation, aggregationResponse, collectionReference.collectionName);
+            return toGeoJson(aggregationResponse, maintAggregationType, flat, geohash, precision.map(p->p.intValue()));
+        }, this.getExploreServices().getResponseExecutor());
+    }
+
+    private byte[] getVectorTile(FeatureCollection fc, BoundingBox bbox) throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(bbox);
+        fc.getFeatures().forEach(feature -> encoder.addFeature(FEATURE_TYPE_VALUE, feature.getProperties(), feature.getGeometry()));
+        return encoder.encode();
+    }
+
+    /**
+     * Geohash precision giving about 8 cells per tile width at the given zoom level.
+     */
+    private static int getGeohashPrecision(int z) {
+        // a geohash of length p has ceil(5p/2) bits of longitude, a tile of zoom z has z bits
+        return Math.max(1, Math.min(12, (int) Math.round(2 * (z + 3) / 5.0)));
     }
 
-    private FeatureCollection toGeoJson(AggregationResponse aggregationResponse, AggregationTypeEnum mainAggregationType, boolean flat, Optional<String> geohash, Optional<Integer> precision) throws IOException {
+    private FeatureCollection toGeoJson(AggregationResponse aggregationResponse, AggregationTypeEnum mainAggregationType, boolean flat, Optional<String> geohash, Optional<Integer> precision) {
         FeatureCollection fc = new FeatureCollection();
         ObjectMapper mapper = new ObjectMapper();
         List<AggregationResponse> elements = aggregationResponse.elements;
@@ -459,4 +624,14 @@ public class GeoAggregateRESTService extends ExploreRESTServices {
         }
         return fc;
     }
+
+    /**
+     * @return the geohash aggregation on the centroid of the collection, used when no aggregation is given
+     */
+    private static List<String> getDefaultAggregation(CollectionReference collectionReference, int precision) throws ArlasException {
+        if (collectionReference.params.centroidPath == null) {
+            throw new BadRequestException("The collection " + collectionReference.collectionName + " has no centroid path: the geohash aggregation must be given with the agg parameter");
+        }
+        return Collections.singletonList("geohash:" + collectionReference.params.centroidPath + ":interval-" + precision);
+    }
 }
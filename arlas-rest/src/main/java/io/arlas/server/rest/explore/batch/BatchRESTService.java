@@ -0,0 +1,209 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.batch;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import io.arlas.server.app.Documentation;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.BadRequestException;
+import io.arlas.server.exceptions.ElasticsearchExceptionMapper;
+import io.arlas.server.exceptions.IllegalArgumentExceptionMapper;
+import io.arlas.server.exceptions.InvalidParameterException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.request.*;
+import io.arlas.server.model.response.BatchResponse;
+import io.arlas.server.model.response.BatchResponseItem;
+import io.arlas.server.model.response.Error;
+import io.arlas.server.rest.explore.ExploreRESTServices;
+import io.arlas.server.rest.explore.aggregate.AggregateRESTService;
+import io.arlas.server.rest.explore.count.CountRESTService;
+import io.arlas.server.rest.explore.range.RangeRESTService;
+import io.arlas.server.rest.explore.search.SearchRESTService;
+import io.arlas.server.services.ExploreServices;
+import io.arlas.server.utils.ParamsParser;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.commons.lang.BooleanUtils;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class BatchRESTService extends ExploreRESTServices {
+
+    private final CountRESTService countRESTService;
+    private final AggregateRESTService aggregateRESTService;
+    private final SearchRESTService searchRESTService;
+    private final RangeRESTService rangeRESTService;
+
+    public BatchRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
+        this.countRESTService = new CountRESTService(exploreServices, metrics);
+        this.aggregateRESTService = new AggregateRESTService(exploreServices, metrics);
+        this.searchRESTService = new SearchRESTService(exploreServices, metrics);
+        this.rangeRESTService = new RangeRESTService(exploreServices, metrics);
+    }
+
+    @Timed
+    @Path("_batch")
+    @POST
+    @Produces(UTF8JSON)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Batch", produces = UTF8JSON, notes = Documentation.BATCH_OPERATION, consumes = UTF8JSON, response = BatchResponse.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = BatchResponse.class, responseContainer = "ArlasBatch"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class),
+            @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public void batch(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
+            // --------------------------------------------------------
+            // ----------------------- BATCH -----------------------
+            // --------------------------------------------------------
+            BatchRequest batchRequest,
+
+            // --------------------------------------------------------
+            // -----------------------  FILTER  -----------------------
+            // --------------------------------------------------------
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // ----------------------- FORM -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "pretty", value = Documentation.FORM_PRETTY,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required = false)
+            @QueryParam(value = "pretty") Boolean pretty,
+
+            // --------------------------------------------------------
+            // ----------------------- EXTRA -----------------------
+            // --------------------------------------------------------
+            @ApiParam(value = "max-age-cache", required = false)
+            @QueryParam(value = "max-age-cache") Integer maxagecache
+    ) throws ArlasException {
+        Long startArlasTime = System.nanoTime();
+        if (batchRequest == null || batchRequest.requests == null || batchRequest.requests.isEmpty()) {
+            throw new BadRequestException("The batch must contain at least one request");
+        }
+        Filter partition = ParamsParser.getFilter(partitionFilter);
+        List<BatchRequestItem> items = batchRequest.requests;
+        BatchResponseItem[] responses = new BatchResponseItem[items.size()];
+        CollectionReference[] collectionReferences = new CollectionReference[items.size()];
+        List<SearchRequestBuilder> searchRequests = new ArrayList<>();
+        List<Integer> searchRequestPositions = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                BatchRequestItem item = items.get(i);
+                if (item == null || item.request == null || item.collection == null) {
+                    throw new InvalidParameterException("A batch request must have a collection, a type and a request");
+                }
+                CollectionReference collectionReference = exploreServices.getDaoCollectionReference().getCollectionReference(item.collection);
+                if (collectionReference == null) {
+                    throw new io.arlas.server.exceptions.NotFoundException(item.collection);
+                }
+                Request requestHeader = new Request();
+                requestHeader.filter = partition;
+                MixedRequest request = new MixedRequest();
+                request.basicRequest = item.request;
+                request.headerRequest = requestHeader;
+                searchRequests.add(exploreServices.prepareBatchItem(request, collectionReference));
+                searchRequestPositions.add(i);
+                collectionReferences[i] = collectionReference;
+            } catch (Exception e) {
+                responses[i] = new BatchResponseItem(getError(e));
+            }
+        }
+
+        Long startQuery = System.nanoTime();
+        CompletableFuture<MultiSearchResponse> multiSearch = searchRequests.isEmpty() ?
+                CompletableFuture.completedFuture(null) : exploreServices.multiSearchAsync(searchRequests);
+        resume(asyncResponse, multiSearch, multiSearchResponse -> {
+            BatchResponse batchResponse = new BatchResponse();
+            if (multiSearchResponse != null) {
+                MultiSearchResponse.Item[] searchResponses = multiSearchResponse.getResponses();
+                batchResponse.queryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startQuery);
+                for (int j = 0; j < searchResponses.length; j++) {
+                    int i = searchRequestPositions.get(j);
+                    if (searchResponses[j].isFailure()) {
+                        Exception failure = searchResponses[j].getFailure();
+                        if (items.get(i).request instanceof RangeRequest && failure instanceof SearchPhaseExecutionException) {
+                            // same as the _range service: a range on a field that is neither numeric nor date
+                            failure = new InvalidParameterException(ExploreServices.INVALID_RANGE_FIELD_TYPE);
+                        }
+                        responses[i] = new BatchResponseItem(getError(failure));
+                    } else {
+                        try {
+                            responses[i] = new BatchResponseItem(getResult(items.get(i).request, collectionReferences[i], searchResponses[j].getResponse(), startQuery));
+                        } catch (Exception e) {
+                            responses[i] = new BatchResponseItem(getError(e));
+                        }
+                    }
+                }
+            }
+            batchResponse.responses = Arrays.asList(responses);
+            batchResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(batchResponse), maxagecache);
+        });
+    }
+
+    private Object getResult(Request request, CollectionReference collectionReference, SearchResponse response, Long startQuery) throws Exception {
+        boolean flat = request.form != null && BooleanUtils.isTrue(request.form.flat);
+        if (request instanceof Search) {
+            return searchRESTService.getArlasHits(null, response.getHits(), collectionReference, flat, null, null);
+        } else if (request instanceof AggregationsRequest) {
+            return aggregateRESTService.getArlasAggregation(response, collectionReference, flat, startQuery);
+        } else if (request instanceof RangeRequest) {
+            return rangeRESTService.getFieldRange(response, startQuery);
+        } else {
+            return countRESTService.getArlasHits(collectionReference, response.getHits());
+        }
+    }
+
+    private Error getError(Exception e) {
+        Response response;
+        if (e instanceof ArlasException) {
+            response = ((ArlasException) e).getResponse();
+        } else if (e instanceof ElasticsearchException) {
+            response = new ElasticsearchExceptionMapper().toResponse((ElasticsearchException) e);
+        } else if (e instanceof IllegalArgumentException) {
+            response = new IllegalArgumentExceptionMapper().toResponse((IllegalArgumentException) e);
+        } else {
+            LOGGER.error("Error occurred", e);
+            response = ArlasException.getResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+        return (Error) response.getEntity();
+    }
+}
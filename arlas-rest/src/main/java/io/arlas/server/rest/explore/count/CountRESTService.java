@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.count;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.core.FluidSearch;
 import io.arlas.server.exceptions.ArlasException;
@@ -38,15 +39,18 @@ import io.swagger.annotations.ApiResponses;
 import org.elasticsearch.search.SearchHits;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public class CountRESTService extends ExploreRESTServices {
 
-    public CountRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public CountRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
@@ -54,10 +58,12 @@ public class CountRESTService extends ExploreRESTServices {
     @GET
     @Produces(UTF8JSON)
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Count", produces = UTF8JSON, notes = "Count the number of elements found in the collection(s), given the filters", consumes = UTF8JSON, response = Hits.class)
+    @ApiOperation(value = "Count", produces = UTF8JSON, notes = "Count the number of elements found in the collection(s), given the filters: the count is given by totalnb, as no hit is returned (nbhits is 0)", consumes = UTF8JSON, response = Hits.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = Hits.class, responseContainer = "ArlasHits"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response count(
+    public void count(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -151,8 +157,7 @@ public class CountRESTService extends ExploreRESTServices {
         countHeader.filter = ParamsParser.getFilter(partitionfilter);
         request.headerRequest = countHeader;
 
-        Hits hits = getArlasHits(collectionReference, request);
-        return cache(Response.ok(hits), maxagecache);
+        resume(asyncResponse, getArlasHits(collectionReference, request), hits -> cache(Response.ok(hits), maxagecache));
     }
 
 
@@ -161,10 +166,12 @@ public class CountRESTService extends ExploreRESTServices {
     @POST
     @Produces(UTF8JSON)
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Count", produces = UTF8JSON, notes = "Count the number of elements found in the collection(s), given the filters", consumes = UTF8JSON, response = Hits.class)
+    @ApiOperation(value = "Count", produces = UTF8JSON, notes = "Count the number of elements found in the collection(s), given the filters: the count is given by totalnb, as no hit is returned (nbhits is 0)", consumes = UTF8JSON, response = Hits.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = Hits.class, responseContainer = "ArlasHits"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response countPost(
+    public void countPost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -207,12 +214,14 @@ public class CountRESTService extends ExploreRESTServices {
         countHeader.filter = ParamsParser.getFilter(partitionfilter);
         request.headerRequest = countHeader;
 
-        Hits hits = getArlasHits(collectionReference, request);
-        return Response.ok(hits).build();
+        resume(asyncResponse, getArlasHits(collectionReference, request), hits -> Response.ok(hits).build());
+    }
+
+    protected CompletableFuture<Hits> getArlasHits(CollectionReference collectionReference, MixedRequest request) throws ArlasException, IOException {
+        return this.getExploreServices().countAsync(request, collectionReference).thenApply(searchHits -> getArlasHits(collectionReference, searchHits));
     }
 
-    protected Hits getArlasHits(CollectionReference collectionReference, MixedRequest request) throws ArlasException, IOException {
-        SearchHits searchHits = this.getExploreServices().count(request, collectionReference);
+    public Hits getArlasHits(CollectionReference collectionReference, SearchHits searchHits) {
         Hits hits = new Hits(collectionReference.collectionName);
         hits.totalnb = searchHits.getTotalHits();
         hits.nbhits = searchHits.getHits().length;
@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.countDistinct;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.app.Documentation;
 import io.arlas.server.exceptions.ArlasException;
@@ -37,15 +38,18 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class CountDistinctRESTService extends ExploreRESTServices {
-    public CountDistinctRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public CountDistinctRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
@@ -56,7 +60,9 @@ public class CountDistinctRESTService extends ExploreRESTServices {
     @ApiOperation(value = "Count distinct", produces = UTF8JSON, notes = "Counts the approximate distinct values of a given field, given the filters", consumes = UTF8JSON, response = CountDistinctResponse.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = CountDistinctResponse.class),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response countDistinct(
+    public void countDistinct(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -150,9 +156,10 @@ public class CountDistinctRESTService extends ExploreRESTServices {
         CountDistinct countDistinct = new CountDistinct();
         countDistinct.filter = ParamsParser.getFilter(f, q, pwithin, gwithin, gintersect, notpwithin, notgwithin, notgintersect, dateformat);
         countDistinct.field = field;
-        CountDistinctResponse countDistinctResponse = getCountDistinctResponse(countDistinct, partitionfilter, collectionReference);
-        countDistinctResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
-        return cache(Response.ok(countDistinctResponse), maxagecache);
+        resume(asyncResponse, getCountDistinctResponse(countDistinct, partitionfilter, collectionReference), countDistinctResponse -> {
+            countDistinctResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(countDistinctResponse), maxagecache);
+        });
     }
 
 
@@ -164,7 +171,9 @@ public class CountDistinctRESTService extends ExploreRESTServices {
     @ApiOperation(value = "Count distinct", produces = UTF8JSON, notes = "Counts the approximate distinct values of a given field, given the filters", consumes = UTF8JSON, response = CountDistinctResponse.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = CountDistinctResponse.class),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response countPost(
+    public void countPost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -201,19 +210,19 @@ public class CountDistinctRESTService extends ExploreRESTServices {
         if (collectionReference == null) {
             throw new NotFoundException(collection);
         }
-        CountDistinctResponse countDistinctResponse = getCountDistinctResponse(countDistinct, partitionfilter, collectionReference);
-        countDistinctResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
-        return Response.ok(countDistinctResponse).build();
+        resume(asyncResponse, getCountDistinctResponse(countDistinct, partitionfilter, collectionReference), countDistinctResponse -> {
+            countDistinctResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return Response.ok(countDistinctResponse).build();
+        });
     }
 
-    private CountDistinctResponse getCountDistinctResponse(CountDistinct countDistinct, String partitionfilter, CollectionReference collectionReference) throws ArlasException, IOException {
+    private CompletableFuture<CountDistinctResponse> getCountDistinctResponse(CountDistinct countDistinct, String partitionfilter, CollectionReference collectionReference) throws ArlasException, IOException {
         CheckParams.checkCountDistinctRequest(countDistinct);
         MixedRequest request = new MixedRequest();
         request.basicRequest = countDistinct;
         CountDistinct countDistinctHeader = new CountDistinct();
         countDistinctHeader.filter = ParamsParser.getFilter(partitionfilter);
         request.headerRequest = countDistinctHeader;
-        CountDistinctResponse countDistinctResponse = this.getExploreServices().countDistinct(request, collectionReference);
-        return countDistinctResponse;
+        return this.getExploreServices().countDistinctAsync(request, collectionReference);
     }
 }
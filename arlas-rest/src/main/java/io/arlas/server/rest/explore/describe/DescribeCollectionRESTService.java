@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.describe;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.core.ElasticAdmin;
 import io.arlas.server.exceptions.ArlasException;
@@ -38,8 +39,8 @@ import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 
 public class DescribeCollectionRESTService extends ExploreRESTServices {
-    public DescribeCollectionRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public DescribeCollectionRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
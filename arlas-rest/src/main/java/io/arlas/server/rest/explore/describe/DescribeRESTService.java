@@ -19,10 +19,9 @@
 
 package io.arlas.server.rest.explore.describe;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
-import io.arlas.server.core.ElasticAdmin;
 import io.arlas.server.exceptions.ArlasException;
-import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.response.CollectionReferenceDescription;
 import io.arlas.server.model.response.Error;
 import io.arlas.server.app.Documentation;
@@ -40,8 +39,8 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 public class DescribeRESTService extends ExploreRESTServices {
-    public DescribeRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public DescribeRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
@@ -69,9 +68,7 @@ public class DescribeRESTService extends ExploreRESTServices {
             @ApiParam(value = "max-age-cache", required = false)
             @QueryParam(value = "max-age-cache") Integer maxagecache
     ) throws InterruptedException, ExecutionException, IOException, ArlasException {
-        List<CollectionReference> collectionReferences = exploreServices.getDaoCollectionReference().getAllCollectionReferences();
-        ElasticAdmin elasticAdmin = new ElasticAdmin(this.getExploreServices().getClient());
-        List<CollectionReferenceDescription> collectionReferenceDescriptionList = elasticAdmin.describeAllCollections(collectionReferences);
+        List<CollectionReferenceDescription> collectionReferenceDescriptionList = exploreServices.getDaoCollectionReference().describeAllCollectionReferences();
         return cache(Response.ok(collectionReferenceDescriptionList), maxagecache);
     }
 }
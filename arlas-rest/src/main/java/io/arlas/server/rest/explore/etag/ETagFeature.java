@@ -0,0 +1,67 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.etag;
+
+import io.arlas.server.rest.explore.ExploreRESTServices;
+import io.arlas.server.rest.explore.describe.DescribeCollectionRESTService;
+import io.arlas.server.rest.explore.export.ExportRESTService;
+import io.arlas.server.rest.plugins.eo.TileRESTService;
+import io.arlas.server.services.ExploreServices;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Binds the {@link ETagFilter} to the GET explore services of a collection whose responses only depend on the request, on
+ * the collection reference and on the documents of the collection.
+ * The raster tiles are tagged by their own service, the exports are streamed and the descriptions depend on the mappings.
+ */
+public class ETagFeature implements DynamicFeature {
+
+    private final ETagFilter filter;
+
+    public ETagFeature(ExploreServices exploreServices) {
+        this.filter = new ETagFilter(exploreServices);
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        Class<?> resource = resourceInfo.getResourceClass();
+        Method method = resourceInfo.getResourceMethod();
+        if (ExploreRESTServices.class.isAssignableFrom(resource)
+                && !TileRESTService.class.isAssignableFrom(resource)
+                && !ExportRESTService.class.isAssignableFrom(resource)
+                && !DescribeCollectionRESTService.class.isAssignableFrom(resource)
+                && method.isAnnotationPresent(GET.class)
+                && hasCollectionParameter(method)) {
+            context.register(filter);
+        }
+    }
+
+    private static boolean hasCollectionParameter(Method method) {
+        return Arrays.stream(method.getParameterAnnotations()).flatMap(Arrays::stream)
+                .anyMatch(annotation -> annotation instanceof PathParam && "collection".equals(((PathParam) annotation).value()));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.etag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.services.ExploreServices;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Tags the responses of the GET explore requests of a collection with a strong ETag, hash of the canonical request, of the
+ * collection reference and of the signature of the documents of its index, and answers the matching If-None-Match
+ * requests with a 304 before any search is executed.
+ */
+public class ETagFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String ETAG_PROPERTY = ETagFilter.class.getName();
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final ExploreServices exploreServices;
+
+    public ETagFilter(ExploreServices exploreServices) {
+        this.exploreServices = exploreServices;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String collection = requestContext.getUriInfo().getPathParameters().getFirst("collection");
+        try {
+            CollectionReference collectionReference = exploreServices.getDaoCollectionReference().getCollectionReference(collection);
+            if (collectionReference == null) {
+                return;
+            }
+            String signature = exploreServices.getIndexGenerations().getSignature(collectionReference.params.indexName);
+            if (signature == null) {
+                return;
+            }
+            EntityTag etag = new EntityTag(hash(requestContext, collectionReference, signature));
+            requestContext.setProperty(ETAG_PROPERTY, etag);
+            Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(etag);
+            if (notModified != null) {
+                String maxAge = requestContext.getUriInfo().getQueryParameters().getFirst("max-age-cache");
+                requestContext.abortWith(exploreServices.getResponseCacheManager().cache(notModified.tag(etag), maxAge != null ? Integer.valueOf(maxAge) : null));
+            }
+        } catch (ArlasException | JsonProcessingException | NumberFormatException e) {
+            // the request is not tagged: the service reports the error, if any
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object etag = requestContext.getProperty(ETAG_PROPERTY);
+        if (etag != null && responseContext.getStatus() == Response.Status.OK.getStatusCode()
+                && !responseContext.getHeaders().containsKey(HttpHeaders.ETAG)) {
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG, etag);
+        }
+    }
+
+    private static String hash(ContainerRequestContext requestContext, CollectionReference collectionReference, String signature) throws JsonProcessingException {
+        StringBuilder canonical = new StringBuilder(requestContext.getUriInfo().getPath()).append('\n');
+        // the order of the values of a parameter is kept, the parameters are sorted
+        new TreeMap<>(requestContext.getUriInfo().getQueryParameters()).forEach((name, values) -> canonical.append(name).append('=').append(values).append('&'));
+        canonical.append('\n').append(header(requestContext.getHeaders(), "Partition-Filter"))
+                .append('\n').append(header(requestContext.getHeaders(), HttpHeaders.ACCEPT))
+                .append('\n').append(mapper.writeValueAsString(collectionReference.params))
+                .append('\n').append(signature);
+        return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String header(MultivaluedMap<String, String> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null ? "" : String.join(",", values);
+    }
+}
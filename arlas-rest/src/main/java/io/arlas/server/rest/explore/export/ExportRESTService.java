@@ -0,0 +1,263 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.export;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.arlas.server.app.Documentation;
+import io.arlas.server.core.SearchAfterScroll;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.enumerations.ExportFormatEnum;
+import io.arlas.server.model.request.MixedRequest;
+import io.arlas.server.model.request.Search;
+import io.arlas.server.model.response.Error;
+import io.arlas.server.model.response.Hit;
+import io.arlas.server.rest.explore.ExploreRESTServices;
+import io.arlas.server.rest.explore.search.GeoSearchRESTService;
+import io.arlas.server.services.ExploreServices;
+import io.arlas.server.utils.ParamsParser;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.apache.commons.lang.BooleanUtils;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.List;
+
+public class ExportRESTService extends ExploreRESTServices {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String APPLICATION_GEOJSON_SEQ = "application/geo+json-seq";
+    // RFC 8142: each GeoJSON text is preceded by a record separator and followed by a line feed
+    private static final int RECORD_SEPARATOR = 0x1E;
+    private static final int LINE_FEED = '\n';
+
+    private static final ObjectMapper exportMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private final GeoSearchRESTService geoSearchRESTService;
+
+    public ExportRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
+        this.geoSearchRESTService = new GeoSearchRESTService(exploreServices, metrics);
+    }
+
+    @Timed
+    @Path("{collection}/_export")
+    @GET
+    @Produces({APPLICATION_NDJSON, APPLICATION_GEOJSON_SEQ})
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Export", produces = APPLICATION_NDJSON + "," + APPLICATION_GEOJSON_SEQ, notes = Documentation.EXPORT_OPERATION, consumes = UTF8JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public Response export(
+            // --------------------------------------------------------
+            // ----------------------- PATH -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+            // --------------------------------------------------------
+            // -----------------------  FILTER  -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "f",
+                    value = Documentation.FILTER_PARAM_F,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "f") List<String> f,
+
+            @ApiParam(name = "q", value = Documentation.FILTER_PARAM_Q,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "q") List<String> q,
+
+            @ApiParam(name = "pwithin", value = Documentation.FILTER_PARAM_PWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "pwithin") List<String> pwithin,
+
+            @ApiParam(name = "gwithin", value = Documentation.FILTER_PARAM_GWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gwithin") List<String> gwithin,
+
+            @ApiParam(name = "gintersect", value = Documentation.FILTER_PARAM_GINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gintersect") List<String> gintersect,
+
+            @ApiParam(name = "notpwithin", value = Documentation.FILTER_PARAM_NOTPWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notpwithin") List<String> notpwithin,
+
+            @ApiParam(name = "notgwithin", value = Documentation.FILTER_PARAM_NOTGWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgwithin") List<String> notgwithin,
+
+            @ApiParam(name = "notgintersect", value = Documentation.FILTER_PARAM_NOTGINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgintersect") List<String> notgintersect,
+
+            @ApiParam(name = "dateformat", value = Documentation.FILTER_DATE_FORMAT,
+                    allowMultiple = false,
+                    required = false)
+            @QueryParam(value = "dateformat") String dateformat,
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // -----------------------  FORM    -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "flat", value = Documentation.FORM_FLAT,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required = false)
+            @QueryParam(value = "flat") Boolean flat,
+
+            @ApiParam(name = "format", value = Documentation.EXPORT_FORMAT,
+                    allowMultiple = false,
+                    defaultValue = "ndjson",
+                    allowableValues = "ndjson,geojsonseq",
+                    required = false)
+            @DefaultValue("ndjson")
+            @QueryParam(value = "format") ExportFormatEnum format,
+
+            // --------------------------------------------------------
+            // -----------------------  PROJECTION   -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "include", value = Documentation.PROJECTION_PARAM_INCLUDE,
+                    allowMultiple = true,
+                    defaultValue = "*",
+                    required = false)
+            @QueryParam(value = "include") String include,
+
+            @ApiParam(name = "exclude", value = Documentation.PROJECTION_PARAM_EXCLUDE,
+                    allowMultiple = true,
+                    defaultValue = "",
+                    required = false)
+            @QueryParam(value = "exclude") String exclude
+    ) throws NotFoundException, ArlasException, IOException {
+        CollectionReference collectionReference = getCollectionReference(collection);
+        Search search = new Search();
+        search.filter = ParamsParser.getFilter(f, q, pwithin, gwithin, gintersect, notpwithin, notgwithin, notgintersect, dateformat);
+        search.projection = ParamsParser.getProjection(include, exclude);
+        return export(collectionReference, search, partitionFilter, BooleanUtils.isTrue(flat), format);
+    }
+
+    @Timed
+    @Path("{collection}/_export")
+    @POST
+    @Produces({APPLICATION_NDJSON, APPLICATION_GEOJSON_SEQ})
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Export", produces = APPLICATION_NDJSON + "," + APPLICATION_GEOJSON_SEQ, notes = Documentation.EXPORT_OPERATION, consumes = UTF8JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public Response exportPost(
+            // --------------------------------------------------------
+            // ----------------------- PATH -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+            // --------------------------------------------------------
+            // ----------------------- SEARCH -----------------------
+            // --------------------------------------------------------
+            Search search,
+
+            // --------------------------------------------------------
+            // -----------------------  FILTER  -----------------------
+            // --------------------------------------------------------
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // -----------------------  FORM    -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "format", value = Documentation.EXPORT_FORMAT,
+                    allowMultiple = false,
+                    defaultValue = "ndjson",
+                    allowableValues = "ndjson,geojsonseq",
+                    required = false)
+            @DefaultValue("ndjson")
+            @QueryParam(value = "format") ExportFormatEnum format
+    ) throws NotFoundException, ArlasException, IOException {
+        CollectionReference collectionReference = getCollectionReference(collection);
+        return export(collectionReference, search, partitionFilter, search.form != null && BooleanUtils.isTrue(search.form.flat), format);
+    }
+
+    private CollectionReference getCollectionReference(String collection) throws ArlasException {
+        CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        return collectionReference;
+    }
+
+    private Response export(CollectionReference collectionReference, Search search, String partitionFilter, boolean flat, ExportFormatEnum format) throws ArlasException, IOException {
+        Search searchHeader = new Search();
+        searchHeader.filter = ParamsParser.getFilter(partitionFilter);
+        MixedRequest request = new MixedRequest();
+        request.basicRequest = search;
+        request.headerRequest = searchHeader;
+        // the first page is fetched here, so that an invalid request is answered with an error rather than with an empty stream
+        SearchAfterScroll scroll = exploreServices.export(request, collectionReference);
+        boolean geojson = format == ExportFormatEnum.geojsonseq;
+        StreamingOutput output = outputStream -> {
+            try {
+                scroll.forEach(hit -> {
+                    if (geojson) {
+                        outputStream.write(RECORD_SEPARATOR);
+                        exportMapper.writeValue(outputStream, geoSearchRESTService.getFeature(collectionReference, hit, flat));
+                    } else {
+                        exportMapper.writeValue(outputStream, new Hit(collectionReference, hit, flat, false));
+                    }
+                    outputStream.write(LINE_FEED);
+                });
+            } catch (ArlasException e) {
+                // the response is already committed: the client gets a truncated stream
+                LOGGER.error("Export of " + collectionReference.collectionName + " interrupted", e);
+                throw new WebApplicationException(e, e.getResponse());
+            }
+        };
+        return Response.ok(output, geojson ? APPLICATION_GEOJSON_SEQ : APPLICATION_NDJSON).build();
+    }
+}
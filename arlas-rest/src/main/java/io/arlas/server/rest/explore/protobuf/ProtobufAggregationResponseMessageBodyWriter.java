@@ -0,0 +1,55 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.protobuf;
+
+import io.arlas.server.model.response.AggregationResponse;
+import io.arlas.server.utils.ProtobufEncoder;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+@Provider
+@Produces(ProtobufEncoder.MEDIA_TYPE)
+public class ProtobufAggregationResponseMessageBodyWriter implements MessageBodyWriter<AggregationResponse> {
+
+    @Override
+    public boolean isWriteable(Class aClass, Type type, Annotation[] annotations, MediaType mediaType) {
+        return aClass != null && AggregationResponse.class.isAssignableFrom(aClass);
+    }
+
+    @Override
+    public long getSize(AggregationResponse aggregationResponse, Class aClass, Type type, Annotation[] annotations, MediaType mediaType) {
+        // deprecated by JAX-RS 2.0 and ignored by Jersey runtime
+        return -1;
+    }
+
+    @Override
+    public void writeTo(AggregationResponse aggregationResponse, Class aClass, Type type, Annotation[] annotations, MediaType mediaType, MultivaluedMap multivaluedMap, OutputStream outputStream) throws IOException, WebApplicationException {
+        ProtobufEncoder.writeTo(outputStream, out -> ProtobufEncoder.writeAggregationResponse(out, aggregationResponse));
+    }
+}
@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.range;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.core.FluidSearch;
 import io.arlas.server.exceptions.ArlasException;
@@ -42,6 +43,8 @@ import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.List;
@@ -49,7 +52,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class RangeRESTService extends ExploreRESTServices {
-    public RangeRESTService(ExploreServices exploreServices) { super(exploreServices);}
+    public RangeRESTService(ExploreServices exploreServices, MetricRegistry metrics) { super(exploreServices, metrics);}
 
     @Timed
     @Path("{collection}/_range")
@@ -61,7 +64,9 @@ public class RangeRESTService extends ExploreRESTServices {
     )
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = RangeResponse.class, responseContainer = "ArlasRange"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response range(
+    public void range(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -163,9 +168,12 @@ public class RangeRESTService extends ExploreRESTServices {
         request.basicRequest = rangeRequest;
         request.headerRequest = rangeRequestHeader;
 
-        RangeResponse rangeResponse = getFieldRange(request, collectionReference);
-        rangeResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
-        return cache(Response.ok(rangeResponse), maxagecache);
+        Long startQuery = System.nanoTime();
+        resume(asyncResponse, this.getExploreServices().getFieldRangeAsync(request, collectionReference), response -> {
+            RangeResponse rangeResponse = getFieldRange(response, startQuery);
+            rangeResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(rangeResponse), maxagecache);
+        });
     }
 
     @Timed
@@ -177,7 +185,9 @@ public class RangeRESTService extends ExploreRESTServices {
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = RangeResponse.class, responseContainer = "ArlasRange"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class),
             @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response rangePost(
+    public void rangePost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -226,15 +236,16 @@ public class RangeRESTService extends ExploreRESTServices {
         request.basicRequest = rangeRequest;
         request.headerRequest = rangeRequestHeader;
 
-        RangeResponse rangeResponse = getFieldRange(request, collectionReference);
-        rangeResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
-        return cache(Response.ok(rangeResponse), maxagecache);
+        Long startQuery = System.nanoTime();
+        resume(asyncResponse, this.getExploreServices().getFieldRangeAsync(request, collectionReference), response -> {
+            RangeResponse rangeResponse = getFieldRange(response, startQuery);
+            rangeResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(rangeResponse), maxagecache);
+        });
     }
 
-    public RangeResponse getFieldRange(MixedRequest request, CollectionReference collectionReference) throws ArlasException, IOException{
+    public RangeResponse getFieldRange(SearchResponse response, Long startQuery) throws ArlasException {
         RangeResponse rangeResponse = new RangeResponse();
-        Long startQuery = System.nanoTime();
-        SearchResponse response = this.getExploreServices().getFieldRange(request, collectionReference);
         Aggregation firstAggregation = response.getAggregations().asList().get(0);
         Aggregation secondAggregation = response.getAggregations().asList().get(1);
 
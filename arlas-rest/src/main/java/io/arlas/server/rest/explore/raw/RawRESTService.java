@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.raw;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.app.Documentation;
 import io.arlas.server.core.ElasticDocument;
@@ -42,8 +43,8 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 public class RawRESTService extends ExploreRESTServices {
-    public RawRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public RawRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
@@ -20,6 +20,7 @@
 package io.arlas.server.rest.explore.search;
 
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.model.CollectionReference;
@@ -44,6 +45,8 @@ import org.geojson.FeatureCollection;
 import org.geojson.GeoJsonObject;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.*;
@@ -51,12 +54,14 @@ import java.util.concurrent.ExecutionException;
 
 public class GeoSearchRESTService extends ExploreRESTServices {
 
-    public GeoSearchRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public GeoSearchRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     private static final String FEATURE_TYPE_KEY = "feature_type";
     private static final String FEATURE_TYPE_VALUE = "hit";
+    private static final String MD_ID_KEY = "md_id";
+    private static final String MD_TIMESTAMP_KEY = "md_timestamp";
 
 
     @Timed
@@ -67,7 +72,9 @@ public class GeoSearchRESTService extends ExploreRESTServices {
     @ApiOperation(value = "GeoSearch", produces = UTF8JSON, notes = Documentation.GEOSEARCH_OPERATION, consumes = UTF8JSON, response = FeatureCollection.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response geosearch(
+    public void geosearch(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -214,8 +221,8 @@ public class GeoSearchRESTService extends ExploreRESTServices {
         request.basicRequest = search;
         request.headerRequest = searchHeader;
 
-        FeatureCollection fc = getFeatures(collectionReference, request, (flat!=null && flat));
-        return cache(Response.ok(fc), maxagecache);
+        resume(asyncResponse, this.getExploreServices().searchAsync(request, collectionReference),
+                searchHits -> cache(Response.ok(getFeatures(collectionReference, searchHits, (flat!=null && flat))), maxagecache));
     }
 
 
@@ -227,7 +234,9 @@ public class GeoSearchRESTService extends ExploreRESTServices {
     @ApiOperation(value = "Tiled GeoSearch", produces = UTF8JSON, notes = Documentation.TILED_GEOSEARCH_OPERATION, consumes = UTF8JSON, response = FeatureCollection.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response tiledgeosearch(
+    public void tiledgeosearch(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -388,7 +397,8 @@ public class GeoSearchRESTService extends ExploreRESTServices {
                 // if sizes are not equals, it means one multi-value pwithin does not intersects bbox => no results
                 && pwithin.size() == simplifiedPwithin.size()) {
             simplifiedPwithin.add(pwithinBbox);
-            return this.geosearch(
+            this.geosearch(
+                    asyncResponse,
                     collection,
                     f,
                     q,
@@ -410,7 +420,184 @@ public class GeoSearchRESTService extends ExploreRESTServices {
                     after,
                     maxagecache);
         } else {
-            return Response.ok(new FeatureCollection()).build();
+            asyncResponse.resume(Response.ok(new FeatureCollection()).build());
+        }
+    }
+
+
+    @Timed
+    @Path("{collection}/_geosearch/{z}/{x}/{y}.mvt")
+    @GET
+    @Produces(VectorTileEncoder.MEDIA_TYPE)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Vector Tiled GeoSearch", produces = VectorTileEncoder.MEDIA_TYPE, notes = Documentation.VECTOR_TILED_GEOSEARCH_OPERATION, consumes = UTF8JSON)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public void vectortiledgeosearch(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
+            // --------------------------------------------------------
+            // ----------------------- PATH -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+            @ApiParam(
+                    name = "x",
+                    value = "x",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "x") Integer x,
+            @ApiParam(
+                    name = "y",
+                    value = "y",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "y") Integer y,
+            @ApiParam(
+                    name = "z",
+                    value = "z",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "z") Integer z,
+            // --------------------------------------------------------
+            // -----------------------  FILTER  -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "f",
+                    value = Documentation.FILTER_PARAM_F,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "f") List<String> f,
+
+            @ApiParam(name = "q", value = Documentation.FILTER_PARAM_Q,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "q") List<String> q,
+
+            @ApiParam(name = "pwithin", value = Documentation.FILTER_PARAM_PWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "pwithin") List<String> pwithin,
+
+            @ApiParam(name = "gwithin", value = Documentation.FILTER_PARAM_GWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gwithin") List<String> gwithin,
+
+            @ApiParam(name = "gintersect", value = Documentation.FILTER_PARAM_GINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gintersect") List<String> gintersect,
+
+            @ApiParam(name = "notpwithin", value = Documentation.FILTER_PARAM_NOTPWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notpwithin") List<String> notpwithin,
+
+            @ApiParam(name = "notgwithin", value = Documentation.FILTER_PARAM_NOTGWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgwithin") List<String> notgwithin,
+
+            @ApiParam(name = "notgintersect", value = Documentation.FILTER_PARAM_NOTGINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgintersect") List<String> notgintersect,
+
+            @ApiParam(name = "dateformat", value = Documentation.FILTER_DATE_FORMAT,
+                    allowMultiple = false,
+                    required = false)
+            @QueryParam(value = "dateformat") String dateformat,
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // -----------------------  PROJECTION   -----------------------
+            // --------------------------------------------------------
+
+            @ApiParam(name = "include", value = Documentation.PROJECTION_PARAM_INCLUDE,
+                    allowMultiple = true,
+                    defaultValue = "*",
+                    required = false)
+            @QueryParam(value = "include") String include,
+
+            @ApiParam(name = "exclude", value = Documentation.PROJECTION_PARAM_EXCLUDE,
+                    allowMultiple = true,
+                    defaultValue = "",
+                    required = false)
+            @QueryParam(value = "exclude") String exclude,
+
+            // --------------------------------------------------------
+            // -----------------------  PAGE   -----------------------
+            // --------------------------------------------------------
+
+            @ApiParam(name = "size", value = Documentation.PAGE_PARAM_SIZE,
+                    defaultValue = "10",
+                    allowableValues = "range[1, infinity]",
+                    type = "integer",
+                    required = false)
+            @DefaultValue("10")
+            @QueryParam(value = "size") IntParam size,
+
+            @ApiParam(name = "from", value = Documentation.PAGE_PARAM_FROM,
+                    defaultValue = "0",
+                    allowableValues = "range[0, infinity]",
+                    type = "integer",
+                    required = false)
+            @DefaultValue("0")
+            @QueryParam(value = "from") IntParam from,
+
+            @ApiParam(name = "sort",
+                    value = Documentation.PAGE_PARAM_SORT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "sort") String sort,
+
+            @ApiParam(name = "after",
+                    value = Documentation.PAGE_PARAM_AFTER,
+                    allowMultiple = false,
+                    required = false)
+            @QueryParam(value = "after") String after,
+
+            // --------------------------------------------------------
+            // -----------------------  EXTRA   -----------------------
+            // --------------------------------------------------------
+            @ApiParam(value = "max-age-cache", required = false)
+            @QueryParam(value = "max-age-cache") Integer maxagecache
+    ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException {
+        CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        BoundingBox bbox = GeoTileUtil.getBoundingBox(new Tile(x, y, z));
+        // west, south, east, north
+        String pwithinBbox = bbox.getWest() + "," + bbox.getSouth() + "," + bbox.getEast() + "," + bbox.getNorth();
+
+        //check if every pwithin param has a value that intersects bbox
+        List<String> simplifiedPwithin = ParamsParser.simplifyPwithinAgainstBbox(pwithin, bbox);
+
+        if (bbox.getNorth() > bbox.getSouth()
+                // if sizes are not equals, it means one multi-value pwithin does not intersects bbox => no results
+                && pwithin.size() == simplifiedPwithin.size()) {
+            simplifiedPwithin.add(pwithinBbox);
+            Search search = new Search();
+            search.filter = ParamsParser.getFilter(f, q, simplifiedPwithin, gwithin, gintersect, notpwithin, notgwithin, notgintersect, dateformat);
+            search.page = ParamsParser.getPage(size, from, sort, after);
+            search.projection = ParamsParser.getProjection(include, exclude);
+            Search searchHeader = new Search();
+            searchHeader.filter = ParamsParser.getFilter(partitionFilter);
+            MixedRequest request = new MixedRequest();
+            request.basicRequest = search;
+            request.headerRequest = searchHeader;
+            resume(asyncResponse, this.getExploreServices().searchAsync(request, collectionReference),
+                    searchHits -> cache(Response.ok(getVectorTile(collectionReference, searchHits, bbox), VectorTileEncoder.MEDIA_TYPE), maxagecache));
+        } else {
+            asyncResponse.resume(Response.ok(new VectorTileEncoder(bbox).encode(), VectorTileEncoder.MEDIA_TYPE).build());
         }
     }
 
@@ -423,7 +610,9 @@ public class GeoSearchRESTService extends ExploreRESTServices {
     @ApiOperation(value = "GeoSearch", produces = UTF8JSON, notes = Documentation.GEOSEARCH_OPERATION, consumes = UTF8JSON, response = FeatureCollection.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = FeatureCollection.class, responseContainer = "FeatureCollection"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response geosearchPost(
+    public void geosearchPost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
             // --------------------------------------------------------
@@ -471,43 +660,64 @@ public class GeoSearchRESTService extends ExploreRESTServices {
         MixedRequest request = new MixedRequest();
         request.basicRequest = search;
         request.headerRequest = searchHeader;
-        FeatureCollection fc = getFeatures(collectionReference, request, (search.form!=null && search.form.flat));
-        return cache(Response.ok(fc), maxagecache);
+        resume(asyncResponse, this.getExploreServices().searchAsync(request, collectionReference),
+                searchHits -> cache(Response.ok(getFeatures(collectionReference, searchHits, (search.form!=null && search.form.flat))), maxagecache));
     }
 
-    protected FeatureCollection getFeatures(CollectionReference collectionReference, MixedRequest request, boolean flat) throws ArlasException, IOException {
-        SearchHits searchHits = this.getExploreServices().search(request, collectionReference);
+    protected FeatureCollection getFeatures(CollectionReference collectionReference, SearchHits searchHits, boolean flat) throws ArlasException, IOException {
         FeatureCollection fc = new FeatureCollection();
         SearchHit[] results = searchHits.getHits();
         for (SearchHit hit : results) {
-            Feature feature = new Feature();
-            Map<String, Object> source = hit.getSourceAsMap();
-
-            Hit arlasHit = new Hit(collectionReference, source, flat, true);
-
-            /** Setting geometry of geojson */
-            //Apply geometry or centroid to geo json feature
-            if (arlasHit.md.geometry != null) {
-                feature.setGeometry(arlasHit.md.geometry);
-            } else if (arlasHit.md.centroid != null) {
-                feature.setGeometry(arlasHit.md.centroid);
-            }
-
-            /** setting the properties of the geojson */
-            feature.setProperties(arlasHit.getDataAsMap());
-
-            /** Setting the Metadata (md) in properties of geojson.
-             * Only id, timestamp and centroid are set in the MD. The geometry is already returned in the geojson.*/
-            MD md = new MD();
-            md.id = arlasHit.md.id;
-            md.timestamp = arlasHit.md.timestamp;
-            md.centroid = arlasHit.md.centroid;
-            feature.setProperty(MD.class.getSimpleName().toLowerCase(), md);
-
-            /** Setting the feature type of the geojson */
-            feature.setProperty(FEATURE_TYPE_KEY, FEATURE_TYPE_VALUE);
-            fc.add(feature);
+            fc.add(getFeature(collectionReference, hit, flat));
         }
         return fc;
     }
+
+    /**
+     * Encodes the hits in the "hit" layer of a vector tile: the properties are the flattened data of the hits,
+     * with the id and the timestamp of the metadata.
+     */
+    protected byte[] getVectorTile(CollectionReference collectionReference, SearchHits searchHits, BoundingBox bbox) throws ArlasException, IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(bbox);
+        for (SearchHit hit : searchHits.getHits()) {
+            Hit arlasHit = new Hit(collectionReference, hit, true, true);
+            Map<String, Object> properties = new HashMap<>(arlasHit.getDataAsMap());
+            properties.put(MD_ID_KEY, arlasHit.md.id);
+            properties.put(MD_TIMESTAMP_KEY, arlasHit.md.timestamp);
+            properties.put(FEATURE_TYPE_KEY, FEATURE_TYPE_VALUE);
+            encoder.addFeature(FEATURE_TYPE_VALUE, properties, arlasHit.md.geometry != null ? arlasHit.md.geometry : arlasHit.md.centroid);
+        }
+        return encoder.encode();
+    }
+
+    public Feature getFeature(CollectionReference collectionReference, SearchHit hit, boolean flat) throws ArlasException, IOException {
+        Feature feature = new Feature();
+        Map<String, Object> source = hit.getSourceAsMap();
+
+        Hit arlasHit = new Hit(collectionReference, source, flat, true);
+
+        /** Setting geometry of geojson */
+        //Apply geometry or centroid to geo json feature
+        if (arlasHit.md.geometry != null) {
+            feature.setGeometry(arlasHit.md.geometry);
+        } else if (arlasHit.md.centroid != null) {
+            feature.setGeometry(arlasHit.md.centroid);
+        }
+
+        /** setting the properties of the geojson */
+        /** The data are copied, as the md property must not be added to a source shared with other responses */
+        feature.setProperties(new HashMap<>(arlasHit.getDataAsMap()));
+
+        /** Setting the Metadata (md) in properties of geojson.
+         * Only id, timestamp and centroid are set in the MD. The geometry is already returned in the geojson.*/
+        MD md = new MD();
+        md.id = arlasHit.md.id;
+        md.timestamp = arlasHit.md.timestamp;
+        md.centroid = arlasHit.md.centroid;
+        feature.setProperty(MD.class.getSimpleName().toLowerCase(), md);
+
+        /** Setting the feature type of the geojson */
+        feature.setProperty(FEATURE_TYPE_KEY, FEATURE_TYPE_VALUE);
+        return feature;
+    }
 }
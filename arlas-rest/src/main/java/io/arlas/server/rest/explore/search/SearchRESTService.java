@@ -19,11 +19,13 @@
 
 package io.arlas.server.rest.explore.search;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.model.CollectionReference;
 import io.arlas.server.model.Link;
 import io.arlas.server.model.request.MixedRequest;
+import io.arlas.server.model.request.Page;
 import io.arlas.server.model.request.Search;
 import io.arlas.server.model.response.Error;
 import io.arlas.server.model.response.Hit;
@@ -33,8 +35,8 @@ import io.arlas.server.app.Documentation;
 import io.arlas.server.rest.explore.ExploreRESTServices;
 import io.arlas.server.services.ExploreServices;
 import io.arlas.server.utils.CheckParams;
-import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.ParamsParser;
+import io.arlas.server.utils.ProtobufEncoder;
 import io.dropwizard.jersey.params.IntParam;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -45,29 +47,35 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
+import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class SearchRESTService extends ExploreRESTServices {
 
-    public SearchRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public SearchRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
     @Path("{collection}/_search")
     @GET
-    @Produces({UTF8JSON, ATOM.APPLICATION_ATOM_XML})
+    @Produces({UTF8JSON, ATOM.APPLICATION_ATOM_XML, ProtobufEncoder.MEDIA_TYPE})
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Search", produces = UTF8JSON + "," + ATOM.APPLICATION_ATOM_XML, notes = Documentation.SEARCH_OPERATION, consumes = UTF8JSON, response = Hits.class)
+    @ApiOperation(value = "Search", produces = UTF8JSON + "," + ATOM.APPLICATION_ATOM_XML + "," + ProtobufEncoder.MEDIA_TYPE, notes = Documentation.SEARCH_OPERATION, consumes = UTF8JSON, response = Hits.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = Hits.class, responseContainer = "ArlasHits"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response search(
+    public void search(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             @Context UriInfo uriInfo,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
@@ -229,20 +237,24 @@ public class SearchRESTService extends ExploreRESTServices {
         MixedRequest request = new MixedRequest();
         request.basicRequest = search;
         request.headerRequest = searchHeader;
-        Hits hits = getArlasHits(request, collectionReference,BooleanUtils.isTrue(flat),uriInfo,"GET");
-        return cache(Response.ok(hits), maxagecache);
+        // the UriInfo is bound to the request thread: the URI is read before the request is suspended
+        URI requestUri = uriInfo.getRequestUri();
+        resume(asyncResponse, this.getExploreServices().searchAsync(request, collectionReference),
+                searchHits -> cache(Response.ok(getArlasHits(request, searchHits, collectionReference, BooleanUtils.isTrue(flat), requestUri, "GET")), maxagecache));
     }
 
 
     @Timed
     @Path("{collection}/_search")
     @POST
-    @Produces(UTF8JSON)
+    @Produces({UTF8JSON, ProtobufEncoder.MEDIA_TYPE})
     @Consumes(UTF8JSON)
-    @ApiOperation(value = "Search", produces = UTF8JSON, notes = Documentation.SEARCH_OPERATION, consumes = UTF8JSON, response = Hits.class)
+    @ApiOperation(value = "Search", produces = UTF8JSON + "," + ProtobufEncoder.MEDIA_TYPE, notes = Documentation.SEARCH_OPERATION, consumes = UTF8JSON, response = Hits.class)
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = Hits.class, responseContainer = "ArlasHits"),
             @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
-    public Response searchPost(
+    public void searchPost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
             @Context UriInfo uriInfo,
             // --------------------------------------------------------
             // ----------------------- PATH -----------------------
@@ -291,32 +303,39 @@ public class SearchRESTService extends ExploreRESTServices {
         MixedRequest request = new MixedRequest();
         request.basicRequest = search;
         request.headerRequest = searchHeader;
-        Hits hits = getArlasHits(request, collectionReference, (search.form != null && BooleanUtils.isTrue(search.form.flat)),uriInfo,"POST");
-        return cache(Response.ok(hits), maxagecache);
+        // the UriInfo is bound to the request thread: the URI is read before the request is suspended
+        URI requestUri = uriInfo.getRequestUri();
+        resume(asyncResponse, this.getExploreServices().searchAsync(request, collectionReference),
+                searchHits -> cache(Response.ok(getArlasHits(request, searchHits, collectionReference, (search.form != null && BooleanUtils.isTrue(search.form.flat)), requestUri, "POST")), maxagecache));
     }
 
 
-    protected Hits getArlasHits(MixedRequest request, CollectionReference collectionReference, Boolean flat,UriInfo uriInfo,String method) throws ArlasException, IOException {
-        SearchHits searchHits = this.getExploreServices().search(request, collectionReference);
+    public Hits getArlasHits(MixedRequest request, SearchHits searchHits, CollectionReference collectionReference, Boolean flat,URI requestUri,String method) throws ArlasException, IOException {
         Hits hits = new Hits(collectionReference.collectionName);
         hits.totalnb = searchHits.getTotalHits();
         hits.nbhits = searchHits.getHits().length;
-        HashMap<String,Link> links = new HashMap<>();
         hits.hits = new ArrayList<>((int) hits.nbhits);
+        for (SearchHit hit : searchHits.getHits()) {
+            hits.hits.add(new Hit(collectionReference, hit, flat, false));
+        }
+        if (requestUri == null) {
+            // no links for the hits that are not served by this service (e.g. within a batch)
+            return hits;
+        }
+        HashMap<String,Link> links = new HashMap<>();
         Link self = new Link();
-        self.href = uriInfo.getRequestUri().toURL().toString();
+        self.href = requestUri.toURL().toString();
         self.method = method;
         int lastIndex = (int) hits.nbhits -1;
         switch (method){
             case"GET":
                 links.put("self",self);
-                if(uriInfo.getQueryParameters().get("after")!=null){
-                    String searchAfterParam = uriInfo.getQueryParameters().get("sort").get(0);
-                    String searchAfter =  Arrays.stream(searchAfterParam.split(","))
-                            .map(field-> MapExplorer.getObjectFromPath(field,searchHits.getHits()[lastIndex].getSourceAsMap()).toString())
-                            .collect(Collectors.joining(","));
+                Page page = ((Search) request.basicRequest).page;
+                if(page.after!=null){
+                    String searchAfterParam = page.sort;
+                    String searchAfter = getSearchAfter(collectionReference, searchAfterParam, searchHits.getHits()[lastIndex]);
                     Link next = new Link();
-                    next.href = uriInfo.getRequestUriBuilder().replaceQueryParam("after",searchAfter).build().toURL().toString();
+                    next.href = UriBuilder.fromUri(requestUri).replaceQueryParam("after",searchAfter).build().toURL().toString();
                     next.method=method;
                     links.put("next",next);
                 }
@@ -327,13 +346,11 @@ public class SearchRESTService extends ExploreRESTServices {
                 if(self.body.page!=null){
                     if(self.body.page.sort!=null&&self.body.page.after!=null){
                         String searchAfterParam = self.body.page.sort;
-                        String searchAfter =  Arrays.stream(searchAfterParam.split(","))
-                                .map(field-> MapExplorer.getObjectFromPath(field,searchHits.getHits()[lastIndex].getSourceAsMap()).toString())
-                                .collect(Collectors.joining(","));
+                        String searchAfter = getSearchAfter(collectionReference, searchAfterParam, searchHits.getHits()[lastIndex]);
                         Link next = new Link();
                         next.body =self.body;
                         next.body.page.after = searchAfter;
-                        next.href = uriInfo.getRequestUri().toURL().toString();
+                        next.href = requestUri.toURL().toString();
                         next.method=method;
                         links.put("next",next);
                     }
@@ -342,9 +359,16 @@ public class SearchRESTService extends ExploreRESTServices {
                 break;
         }
         hits.links = links;
-        for (SearchHit hit : searchHits.getHits()) {
-            hits.hits.add(new Hit(collectionReference, hit.getSourceAsMap(), flat, false));
-        }
         return hits;
     }
+
+    /**
+     * Reads the values of the sort fields in the last hit: each field is compiled once and read from the same source map.
+     */
+    private static String getSearchAfter(CollectionReference collectionReference, String sort, SearchHit lastHit) {
+        Map<String, Object> source = lastHit.getSourceAsMap();
+        return collectionReference.params.getSortFieldPaths(sort).stream()
+                .map(fieldPath -> fieldPath.get(source).toString())
+                .collect(Collectors.joining(","));
+    }
 }
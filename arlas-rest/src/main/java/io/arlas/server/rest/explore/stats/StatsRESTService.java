@@ -0,0 +1,275 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore.stats;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Timed;
+import io.arlas.server.app.Documentation;
+import io.arlas.server.core.FluidSearch;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.request.MixedRequest;
+import io.arlas.server.model.request.StatsRequest;
+import io.arlas.server.model.response.Error;
+import io.arlas.server.model.response.FieldStats;
+import io.arlas.server.model.response.StatsResponse;
+import io.arlas.server.rest.explore.ExploreRESTServices;
+import io.arlas.server.services.ExploreServices;
+import io.arlas.server.utils.ParamsParser;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class StatsRESTService extends ExploreRESTServices {
+    public StatsRESTService(ExploreServices exploreServices, MetricRegistry metrics) { super(exploreServices, metrics);}
+
+    @Timed
+    @Path("{collection}/_stats")
+    @GET
+    @Produces(UTF8JSON)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "StatsRequest", produces = UTF8JSON, notes = Documentation.STATS_OPERATION, consumes = UTF8JSON, response = StatsResponse.class
+
+    )
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = StatsResponse.class, responseContainer = "ArlasStats"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public void stats(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
+            // --------------------------------------------------------
+            // ----------------------- PATH -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+
+            // --------------------------------------------------------
+            // ----------------------- AGGREGATION -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "field",
+                    value = Documentation.STATS_FIELD,
+                    allowMultiple = true,
+                    required = true)
+            @QueryParam(value = "field") List<String> field,
+
+            // --------------------------------------------------------
+            // ----------------------- FILTER -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "f",
+                    value = Documentation.FILTER_PARAM_F,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "f") List<String> f,
+
+            @ApiParam(name = "q", value = Documentation.FILTER_PARAM_Q,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "q") List<String> q,
+
+            @ApiParam(name = "pwithin", value = Documentation.FILTER_PARAM_PWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "pwithin") List<String> pwithin,
+
+            @ApiParam(name = "gwithin", value = Documentation.FILTER_PARAM_GWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gwithin") List<String> gwithin,
+
+            @ApiParam(name = "gintersect", value = Documentation.FILTER_PARAM_GINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "gintersect") List<String> gintersect,
+
+            @ApiParam(name = "notpwithin", value = Documentation.FILTER_PARAM_NOTPWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notpwithin") List<String> notpwithin,
+
+            @ApiParam(name = "notgwithin", value = Documentation.FILTER_PARAM_NOTGWITHIN,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgwithin") List<String> notgwithin,
+
+            @ApiParam(name = "notgintersect", value = Documentation.FILTER_PARAM_NOTGINTERSECT,
+                    allowMultiple = true,
+                    required = false)
+            @QueryParam(value = "notgintersect") List<String> notgintersect,
+
+            @ApiParam(name = "dateformat", value = Documentation.FILTER_DATE_FORMAT,
+                    allowMultiple = false,
+                    required = false)
+            @QueryParam(value = "dateformat") String dateformat,
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // ----------------------- FORM -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "pretty", value = Documentation.FORM_PRETTY,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required = false)
+            @QueryParam(value = "pretty") Boolean pretty,
+
+            // --------------------------------------------------------
+            // ----------------------- EXTRA -----------------------
+            // --------------------------------------------------------
+            @ApiParam(value = "max-age-cache", required = false)
+            @QueryParam(value = "max-age-cache") Integer maxagecache
+    ) throws InterruptedException, ExecutionException, IOException, ArlasException {
+        Long startArlasTime = System.nanoTime();
+        CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        StatsRequest statsRequest = new StatsRequest();
+        statsRequest.filter = ParamsParser.getFilter(f, q, pwithin, gwithin, gintersect, notpwithin, notgwithin, notgintersect, dateformat);
+        statsRequest.fields = field == null ? null : field.stream()
+                .flatMap(fields -> Arrays.stream(fields.split(",")))
+                .collect(Collectors.toList());
+        StatsRequest statsRequestHeader = new StatsRequest();
+        statsRequestHeader.filter = ParamsParser.getFilter(partitionFilter);
+        MixedRequest request = new MixedRequest();
+        request.basicRequest = statsRequest;
+        request.headerRequest = statsRequestHeader;
+
+        Long startQuery = System.nanoTime();
+        resume(asyncResponse, this.getExploreServices().getFieldsStatsAsync(request, collectionReference), response -> {
+            StatsResponse statsResponse = getFieldsStats(response, ((StatsRequest) request.basicRequest).fields, startQuery);
+            statsResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(statsResponse), maxagecache);
+        });
+    }
+
+    @Timed
+    @Path("{collection}/_stats")
+    @POST
+    @Produces(UTF8JSON)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "StatsRequest", produces = UTF8JSON, notes = Documentation.STATS_OPERATION, consumes = UTF8JSON, response = StatsResponse.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation", response = StatsResponse.class, responseContainer = "ArlasStats"),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class),
+            @ApiResponse(code = 400, message = "Bad request.", response = Error.class)})
+    public void statsPost(
+            @ApiParam(hidden = true)
+            @Suspended final AsyncResponse asyncResponse,
+            // --------------------------------------------------------
+            // ----------------------- PATH -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+            // --------------------------------------------------------
+            // ----------------------- AGGREGATION -----------------------
+            // --------------------------------------------------------
+            StatsRequest statsRequest,
+
+            // --------------------------------------------------------
+            // -----------------------  FILTER  -----------------------
+            // --------------------------------------------------------
+
+            @ApiParam(hidden = true)
+            @HeaderParam(value = "Partition-Filter") String partitionFilter,
+
+            // --------------------------------------------------------
+            // ----------------------- FORM -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name = "pretty", value = Documentation.FORM_PRETTY,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required = false)
+            @QueryParam(value = "pretty") Boolean pretty,
+
+            // --------------------------------------------------------
+            // ----------------------- EXTRA -----------------------
+            // --------------------------------------------------------
+            @ApiParam(value = "max-age-cache", required = false)
+            @QueryParam(value = "max-age-cache") Integer maxagecache
+    ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException {
+        Long startArlasTime = System.nanoTime();
+        CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        StatsRequest statsRequestHeader = new StatsRequest();
+        statsRequestHeader.filter = ParamsParser.getFilter(partitionFilter);
+        MixedRequest request = new MixedRequest();
+        request.basicRequest = statsRequest;
+        request.headerRequest = statsRequestHeader;
+
+        Long startQuery = System.nanoTime();
+        resume(asyncResponse, this.getExploreServices().getFieldsStatsAsync(request, collectionReference), response -> {
+            StatsResponse statsResponse = getFieldsStats(response, ((StatsRequest) request.basicRequest).fields, startQuery);
+            statsResponse.totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startArlasTime);
+            return cache(Response.ok(statsResponse), maxagecache);
+        });
+    }
+
+    public StatsResponse getFieldsStats(SearchResponse response, List<String> fields, Long startQuery) {
+        StatsResponse statsResponse = new StatsResponse();
+        FluidSearch fluidSearch = new FluidSearch(this.getExploreServices().getClient());
+
+        statsResponse.totalnb = response.getHits().getTotalHits();
+        statsResponse.stats = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            Stats stats = response.getAggregations().get(fluidSearch.getFieldStatsKey(i));
+            Cardinality cardinality = response.getAggregations().get(fluidSearch.getFieldCardinalityKey(i));
+            FieldStats fieldStats = new FieldStats();
+            fieldStats.field = fields.get(i);
+            fieldStats.count = stats.getCount();
+            if (stats.getCount() > 0) {
+                fieldStats.min = stats.getMin();
+                fieldStats.max = stats.getMax();
+                fieldStats.avg = stats.getAvg();
+            }
+            fieldStats.cardinality = cardinality.getValue();
+            statsResponse.stats.add(fieldStats);
+        }
+
+        statsResponse.queryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startQuery);
+        return statsResponse;
+    }
+}
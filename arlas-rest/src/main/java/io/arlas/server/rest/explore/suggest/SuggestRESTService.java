@@ -19,6 +19,7 @@
 
 package io.arlas.server.rest.explore.suggest;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import io.arlas.server.rest.explore.ExploreRESTServices;
 import io.arlas.server.services.ExploreServices;
@@ -34,8 +35,8 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 public class SuggestRESTService extends ExploreRESTServices {
-    public SuggestRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public SuggestRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
     @Timed
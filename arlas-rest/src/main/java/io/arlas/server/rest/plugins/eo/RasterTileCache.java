@@ -0,0 +1,243 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import cyclops.data.tuple.Tuple2;
+import io.arlas.server.app.RasterTileConfiguration;
+import io.arlas.server.utils.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Cache of the upstream raster tiles, keyed by their resolved URL and shared by all the requests and users:
+ * - the decoded tiles are kept in memory, up to a maximum number of pixel bytes;
+ * - the encoded tiles are optionally kept on disk, and read back memory-mapped when they are not in memory anymore.
+ *   The directory is swept every timeout: the expired tiles are deleted, then the oldest ones until it fits its maximum size.
+ * The cached images are shared and must not be modified.
+ */
+public class RasterTileCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(RasterTileCache.class);
+
+    private static final long DEFAULT_MAX_WEIGHT = 128 * 1024 * 1024;
+    private static final int DEFAULT_TIMEOUT = 300;
+    private static final long DEFAULT_DIRECTORY_MAX_WEIGHT = 1024L * 1024 * 1024;
+
+    private static Cache<String, BufferedImage> images = build(DEFAULT_MAX_WEIGHT, DEFAULT_TIMEOUT);
+    private static Path directory = null;
+    private static long timeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT);
+    private static long directoryMaxWeight = DEFAULT_DIRECTORY_MAX_WEIGHT;
+    private static ScheduledFuture<?> sweeping = null;
+    private static final Counter diskHits = new Counter();
+    private static final Counter diskEvictions = new Counter();
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("raster-tile-cache-sweep-%d").setDaemon(true).build());
+
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws IOException;
+    }
+
+    public static synchronized void configure(RasterTileConfiguration configuration) throws IOException {
+        images = build(configuration.cacheMaxWeight, configuration.cacheTimeout);
+        timeoutMillis = TimeUnit.SECONDS.toMillis(configuration.cacheTimeout);
+        directoryMaxWeight = configuration.cacheDirectoryMaxWeight != null ? configuration.cacheDirectoryMaxWeight : DEFAULT_DIRECTORY_MAX_WEIGHT;
+        if (sweeping != null) {
+            sweeping.cancel(false);
+            sweeping = null;
+        }
+        if (StringUtil.isNullOrEmpty(configuration.cacheDirectory)) {
+            directory = null;
+        } else {
+            directory = Files.createDirectories(Paths.get(configuration.cacheDirectory));
+            sweeping = sweeper.scheduleWithFixedDelay(RasterTileCache::sweep, configuration.cacheTimeout, configuration.cacheTimeout, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Returns the decoded tile of the URL, from the memory tier, then from the disk tier, then from the loader.
+     */
+    public static BufferedImage get(String url, Loader loader) throws IOException {
+        try {
+            return images.get(url, () -> load(url, loader));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Can not load the tile " + url, e.getCause());
+        }
+    }
+
+    public static void invalidateAll() {
+        images.invalidateAll();
+    }
+
+    public static void registerMetrics(MetricRegistry metrics) {
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "hits"), (Gauge<Long>) () -> images.stats().hitCount());
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "misses"), (Gauge<Long>) () -> images.stats().missCount());
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "hit-ratio"), (Gauge<Double>) () -> images.stats().hitRate());
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "entries"), (Gauge<Long>) () -> images.size());
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "disk-hits"), diskHits);
+        metrics.register(MetricRegistry.name(RasterTileCache.class, "disk-evictions"), diskEvictions);
+    }
+
+    /**
+     * Deletes the expired tiles of the directory, then the oldest ones until the directory fits its maximum size.
+     * The tiles that are only read again once expired would otherwise be kept forever.
+     */
+    static void sweep() {
+        Path swept = directory;
+        if (swept == null) {
+            return;
+        }
+        List<Tuple2<Path, BasicFileAttributes>> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(swept)) {
+            for (Path file : stream) {
+                files.add(Tuple2.of(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to list the cached tiles of " + swept, e);
+            return;
+        }
+        files.sort(Comparator.comparing(file -> file._2().lastModifiedTime()));
+        long expiredBefore = System.currentTimeMillis() - timeoutMillis;
+        long weight = files.stream().mapToLong(file -> file._2().size()).sum();
+        for (Tuple2<Path, BasicFileAttributes> file : files) {
+            if (weight <= directoryMaxWeight && file._2().lastModifiedTime().toMillis() >= expiredBefore) {
+                // the next files are more recent
+                break;
+            }
+            try {
+                Files.deleteIfExists(file._1());
+                diskEvictions.inc();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete the cached tile " + file._1(), e);
+            }
+            weight -= file._2().size();
+        }
+    }
+
+    private static BufferedImage load(String url, Loader loader) throws IOException {
+        Path file = directory == null ? null : directory.resolve(Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString());
+        if (file != null && Files.exists(file)) {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < timeoutMillis) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    BufferedImage image = decode(url, new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+                    diskHits.inc();
+                    return image;
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to read the cached tile of " + url, e);
+                }
+            }
+            Files.deleteIfExists(file);
+        }
+        byte[] encoded = loader.load();
+        BufferedImage image = decode(url, new ByteArrayInputStream(encoded));
+        if (file != null) {
+            store(file, encoded);
+        }
+        return image;
+    }
+
+    private static void store(Path file, byte[] encoded) {
+        try {
+            // written aside then moved, so that a tile is never read while being written
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(tmp, encoded);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to store the tile in " + file, e);
+        }
+    }
+
+    private static BufferedImage decode(String url, InputStream encoded) throws IOException {
+        BufferedImage image = ImageIO.read(encoded);
+        if (image == null) {
+            throw new IOException("Unsupported image format for the tile " + url);
+        }
+        return image;
+    }
+
+    private static int weight(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (int) Math.min(Integer.MAX_VALUE, (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+    }
+
+    private static Cache<String, BufferedImage> build(long maxWeight, int timeout) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String url, BufferedImage image) -> weight(image))
+                .expireAfterWrite(timeout, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
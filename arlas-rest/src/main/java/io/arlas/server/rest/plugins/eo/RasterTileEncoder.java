@@ -0,0 +1,322 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.arlas.server.app.RasterTileConfiguration;
+import io.arlas.server.model.enumerations.PngFilterEnum;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes the stacked raster tiles as 8 bits RGBA PNG, with a configurable deflate level and row filter.
+ * The rows, the deflater and the output of the encoding are reused by the threads, and the tiles of a single colour
+ * (typically fully transparent or fully opaque tiles) are answered from precomputed PNG.
+ */
+public class RasterTileEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final int BYTES_PER_PIXEL = 4;
+    // the buffers that grew above this size, for unusually large tiles, are not kept by the threads
+    private static final int MAX_RETAINED_SIZE = 4 * 1024 * 1024;
+
+    private static int compressionLevel = 1;
+    private static PngFilterEnum filter = PngFilterEnum.up;
+    private static final Cache<String, byte[]> singleColorTiles = CacheBuilder.newBuilder().maximumSize(1024).build();
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public static synchronized void configure(RasterTileConfiguration configuration) {
+        compressionLevel = configuration.pngCompressionLevel;
+        filter = configuration.pngFilter;
+        singleColorTiles.invalidateAll();
+    }
+
+    /**
+     * @return the settings of the encoding, which change the bytes of the encoded tiles
+     */
+    public static String getSettings() {
+        return compressionLevel + "," + filter;
+    }
+
+    public static byte[] encode(BufferedImage img) {
+        Buffers b = buffers.get();
+        int width = img.getWidth();
+        int height = img.getHeight();
+        b.ensureRows(width);
+        Integer color = singleColor(img, b.pixels);
+        if (color != null) {
+            // all the fully transparent pixels are the same
+            int argb = (color >>> 24) == 0 ? 0 : color;
+            return singleColorTiles.asMap().computeIfAbsent(width + "x" + height + "#" + Integer.toHexString(argb),
+                    key -> write(b, width, height, (y, pixels) -> Arrays.fill(pixels, 0, width, argb)));
+        }
+        return write(b, width, height, (y, pixels) -> readRow(img, y, pixels));
+    }
+
+    /**
+     * @return the color of the image if all its pixels have the same one, null otherwise
+     */
+    private static Integer singleColor(BufferedImage img, int[] pixels) {
+        int width = img.getWidth();
+        int first = 0;
+        for (int y = 0; y < img.getHeight(); y++) {
+            readRow(img, y, pixels);
+            if (y == 0) {
+                first = pixels[0];
+            }
+            for (int x = 0; x < width; x++) {
+                if (pixels[x] != first) {
+                    return null;
+                }
+            }
+        }
+        return first;
+    }
+
+    private static byte[] write(Buffers b, int width, int height, Rows rows) {
+        Output out = b.output;
+        out.size = 0;
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+        int ihdr = out.size;
+        out.writeInt(13);
+        out.write(IHDR, 0, IHDR.length);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.write(new byte[]{8, 6, 0, 0, 0}, 0, 5); // 8 bits, RGBA, deflate, adaptive filtering, no interlace
+        out.writeCrc(ihdr + 4);
+
+        int idat = out.size;
+        out.writeInt(0);
+        out.write(IDAT, 0, IDAT.length);
+        Deflater deflater = b.deflater;
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        deflater.setStrategy(filter == PngFilterEnum.none ? Deflater.DEFAULT_STRATEGY : Deflater.FILTERED);
+        int rowLength = width * BYTES_PER_PIXEL;
+        Arrays.fill(b.previous, 0, rowLength, (byte) 0);
+        for (int y = 0; y < height; y++) {
+            rows.read(y, b.pixels);
+            for (int x = 0, i = 0; x < width; x++) {
+                int argb = b.pixels[x];
+                b.current[i++] = (byte) (argb >>> 16);
+                b.current[i++] = (byte) (argb >>> 8);
+                b.current[i++] = (byte) argb;
+                b.current[i++] = (byte) (argb >>> 24);
+            }
+            byte[] filtered = filter(b, rowLength);
+            deflater.setInput(filtered, 0, rowLength + 1);
+            while (!deflater.needsInput()) {
+                out.deflate(deflater);
+            }
+            byte[] swap = b.previous;
+            b.previous = b.current;
+            b.current = swap;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.deflate(deflater);
+        }
+        out.setInt(idat, out.size - idat - 8);
+        out.writeCrc(idat + 4);
+
+        int iend = out.size;
+        out.writeInt(0);
+        out.write(IEND, 0, IEND.length);
+        out.writeCrc(iend + 4);
+        byte[] png = Arrays.copyOf(out.bytes, out.size);
+        if (out.bytes.length > MAX_RETAINED_SIZE) {
+            // the native memory of the deflater is released now rather than by its finalizer
+            b.deflater.end();
+            buffers.remove();
+        }
+        return png;
+    }
+
+    private static byte[] filter(Buffers b, int rowLength) {
+        switch (filter) {
+            case none:
+                return filter(0, b.current, b.previous, b.filtered[0], rowLength);
+            case sub:
+                return filter(1, b.current, b.previous, b.filtered[1], rowLength);
+            case up:
+                return filter(2, b.current, b.previous, b.filtered[2], rowLength);
+            case average:
+                return filter(3, b.current, b.previous, b.filtered[3], rowLength);
+            case paeth:
+                return filter(4, b.current, b.previous, b.filtered[4], rowLength);
+            default:
+                // the filter whose output has the smallest sum of absolute differences usually compresses best
+                byte[] best = null;
+                long bestSum = Long.MAX_VALUE;
+                for (int type = 0; type < 5; type++) {
+                    byte[] filtered = filter(type, b.current, b.previous, b.filtered[type], rowLength);
+                    long sum = 0;
+                    for (int i = 1; i <= rowLength && sum < bestSum; i++) {
+                        sum += Math.abs((int) filtered[i]);
+                    }
+                    if (sum < bestSum) {
+                        best = filtered;
+                        bestSum = sum;
+                    }
+                }
+                return best;
+        }
+    }
+
+    private static byte[] filter(int type, byte[] row, byte[] previous, byte[] filtered, int rowLength) {
+        filtered[0] = (byte) type;
+        switch (type) {
+            case 0:
+                System.arraycopy(row, 0, filtered, 1, rowLength);
+                break;
+            case 1:
+                System.arraycopy(row, 0, filtered, 1, BYTES_PER_PIXEL);
+                for (int i = BYTES_PER_PIXEL; i < rowLength; i++) {
+                    filtered[i + 1] = (byte) (row[i] - row[i - BYTES_PER_PIXEL]);
+                }
+                break;
+            case 2:
+                for (int i = 0; i < rowLength; i++) {
+                    filtered[i + 1] = (byte) (row[i] - previous[i]);
+                }
+                break;
+            case 3:
+                for (int i = 0; i < BYTES_PER_PIXEL; i++) {
+                    filtered[i + 1] = (byte) (row[i] - ((previous[i] & 0xFF) >>> 1));
+                }
+                for (int i = BYTES_PER_PIXEL; i < rowLength; i++) {
+                    filtered[i + 1] = (byte) (row[i] - (((row[i - BYTES_PER_PIXEL] & 0xFF) + (previous[i] & 0xFF)) >>> 1));
+                }
+                break;
+            default:
+                // with no left pixel, paeth predicts the upper one
+                for (int i = 0; i < BYTES_PER_PIXEL; i++) {
+                    filtered[i + 1] = (byte) (row[i] - previous[i]);
+                }
+                for (int i = BYTES_PER_PIXEL; i < rowLength; i++) {
+                    filtered[i + 1] = (byte) (row[i] - paeth(row[i - BYTES_PER_PIXEL] & 0xFF, previous[i] & 0xFF, previous[i - BYTES_PER_PIXEL] & 0xFF));
+                }
+        }
+        return filtered;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Reads the non premultiplied ARGB pixels of a row, directly from the data buffer for the stacking canvas.
+     */
+    private static void readRow(BufferedImage img, int y, int[] pixels) {
+        WritableRaster raster = img.getRaster();
+        if (img.getType() == BufferedImage.TYPE_INT_ARGB && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            int offset = raster.getDataBuffer().getOffset() + sm.getOffset(-raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY());
+            System.arraycopy(((DataBufferInt) raster.getDataBuffer()).getData(), offset, pixels, 0, img.getWidth());
+        } else {
+            img.getRGB(0, y, img.getWidth(), 1, pixels, 0, img.getWidth());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Rows {
+        void read(int y, int[] pixels);
+    }
+
+    private static class Buffers {
+        private final Deflater deflater = new Deflater();
+        private final Output output = new Output();
+        private int[] pixels = new int[0];
+        private byte[] current = new byte[0];
+        private byte[] previous = new byte[0];
+        private final byte[][] filtered = new byte[5][0];
+
+        private void ensureRows(int width) {
+            if (pixels.length < width) {
+                pixels = new int[width];
+                current = new byte[width * BYTES_PER_PIXEL];
+                previous = new byte[width * BYTES_PER_PIXEL];
+                for (int type = 0; type < filtered.length; type++) {
+                    filtered[type] = new byte[width * BYTES_PER_PIXEL + 1];
+                }
+            }
+        }
+    }
+
+    private static class Output {
+        private final CRC32 crc = new CRC32();
+        private byte[] bytes = new byte[64 * 1024];
+        private int size = 0;
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + length));
+            }
+        }
+
+        private void write(byte[] b, int offset, int length) {
+            ensure(length);
+            System.arraycopy(b, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            setInt(size, value);
+            size += 4;
+        }
+
+        private void setInt(int position, int value) {
+            bytes[position] = (byte) (value >>> 24);
+            bytes[position + 1] = (byte) (value >>> 16);
+            bytes[position + 2] = (byte) (value >>> 8);
+            bytes[position + 3] = (byte) value;
+        }
+
+        /**
+         * Writes the CRC of the chunk type and data, from the given position to the end of the output.
+         */
+        private void writeCrc(int from) {
+            crc.reset();
+            crc.update(bytes, from, size - from);
+            writeInt((int) crc.getValue());
+        }
+
+        private void deflate(Deflater deflater) {
+            ensure(8 * 1024);
+            size += deflater.deflate(bytes, size, bytes.length - size);
+        }
+    }
+}
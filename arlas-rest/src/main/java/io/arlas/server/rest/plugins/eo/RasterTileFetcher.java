@@ -0,0 +1,130 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cyclops.control.Try;
+import io.arlas.server.app.RasterTileConfiguration;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.InternalServerErrorException;
+import io.arlas.server.utils.Tile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Fetches the raster tiles of the stacks on a bounded pool of threads shared by all the requests.
+ * The HTTP connections are kept alive and reused between the fetches of a same tile server.
+ */
+public class RasterTileFetcher {
+
+    private static final int DEFAULT_FETCH_THREADS = 16;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 2000;
+    private static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    private static ExecutorService executor = newExecutor(DEFAULT_FETCH_THREADS);
+    private static int prefetch = 4;
+    private static int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private static int readTimeout = DEFAULT_READ_TIMEOUT;
+    private static MetricRegistry metrics = new MetricRegistry();
+
+    public static synchronized void configure(RasterTileConfiguration configuration) {
+        ExecutorService previous = executor;
+        executor = newExecutor(configuration.fetchThreads);
+        previous.shutdown();
+        prefetch = configuration.prefetch;
+        connectTimeout = configuration.connectTimeout;
+        readTimeout = configuration.readTimeout;
+    }
+
+    public static void registerMetrics(MetricRegistry registry) {
+        metrics = registry;
+    }
+
+    public static int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Starts fetching the tile of the provider; the latency of the fetch is reported in the timer of the collection.
+     */
+    public static Future<Try<Optional<RasterTile>, ArlasException>> fetch(String collection, TileProvider<RasterTile> provider, Tile where) {
+        Timer timer = metrics.timer(MetricRegistry.name(RasterTileFetcher.class, collection, "fetch"));
+        return executor.submit(() -> {
+            try (Timer.Context ignored = timer.time()) {
+                return provider.getTile(where);
+            }
+        });
+    }
+
+    public static Try<Optional<RasterTile>, ArlasException> get(Future<Try<Optional<RasterTile>, ArlasException>> fetch, Tile where) {
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Try.failure(new InternalServerErrorException("Interrupted while fetching the tile " + where.getxTile() + "/" + where.getyTile() + "/" + where.getzTile(), e));
+        } catch (ExecutionException e) {
+            return Try.failure(new InternalServerErrorException("Can not fetch the tile " + where.getxTile() + "/" + where.getyTile() + "/" + where.getzTile(), e.getCause()));
+        }
+    }
+
+    /**
+     * Reads the image at the given URL, through the raster tile cache.
+     */
+    public static BufferedImage read(URL url) throws IOException {
+        return RasterTileCache.get(url.toString(), () -> download(url));
+    }
+
+    /**
+     * Downloads the encoded image. The whole body of the HTTP responses is read, so that the connection goes back
+     * to the keep-alive cache of the JDK.
+     */
+    private static byte[] download(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (connection instanceof HttpURLConnection && ((HttpURLConnection) connection).getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            // the error body must also be consumed for the connection to be reused
+            try (InputStream error = httpConnection.getErrorStream()) {
+                if (error != null) {
+                    ByteStreams.exhaust(error);
+                }
+            }
+            throw new IOException("Server returned HTTP response code: " + httpConnection.getResponseCode() + " for URL: " + url);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("raster-tile-fetch-%d").setDaemon(true).build());
+    }
+}
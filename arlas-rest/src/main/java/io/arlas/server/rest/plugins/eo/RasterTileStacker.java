@@ -22,23 +22,45 @@ package io.arlas.server.rest.plugins.eo;
 import cyclops.control.Try;
 import io.arlas.server.exceptions.ArlasException;
 import io.arlas.server.exceptions.InvalidParameterException;
-import io.arlas.server.utils.ImageUtil;
+import io.arlas.server.utils.CoverageBitmap;
 import io.arlas.server.utils.Tile;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.Future;
 
 public class RasterTileStacker {
     private Percentage upTo=new Percentage(70);
     private Queue<TileProvider<RasterTile>> providers;
     private int sampling = 1;
+    private int prefetch = RasterTileFetcher.getPrefetch();
+    private String collection = "";
+    private BufferedImage canvas = null;
+    private CoverageBitmap bitmap = null;
 
     public RasterTileStacker stack(Queue<TileProvider<RasterTile>> providers){
         this.providers = providers;
         return this;
     }
 
+    /**
+     * Names the collection of the stacked tiles, for the fetch latency metrics.
+     */
+    public RasterTileStacker of(String collection) {
+        this.collection = collection;
+        return this;
+    }
+
+    public RasterTileStacker prefetch(int prefetch) throws ArlasException {
+        if(prefetch<0)throw new InvalidParameterException("Prefetch must be positive but is "+prefetch);
+        this.prefetch=prefetch;
+        return this;
+    }
+
     public RasterTileStacker sampling(int sampling) throws ArlasException {
         if(sampling<1)throw new InvalidParameterException("Sampling must be greater than 1 but is "+sampling);
         this.sampling=sampling;
@@ -53,38 +75,62 @@ public class RasterTileStacker {
 
     public Try<Optional<RasterTile>,ArlasException> on(Tile where) throws ArlasException {
         if(this.providers.size()==0){return Try.success(Optional.empty());}
-        return stack(where, Optional.empty(), providers, upTo);
+        Deque<Future<Try<Optional<RasterTile>,ArlasException>>> fetches = new ArrayDeque<>();
+        try {
+            return stack(where, Optional.empty(), fetches, upTo);
+        } finally {
+            // the tiles that are not needed anymore (coverage reached or failure) are not fetched
+            fetches.forEach(fetch -> fetch.cancel(true));
+        }
     }
 
-    private Try<Optional<RasterTile>,ArlasException> stack(Tile where, Optional<RasterTile> done, Queue<TileProvider<RasterTile>> providers, Percentage upTo)  {
-        return Try.flatten(providers.poll().getTile(where).map(otile ->
+    private Try<Optional<RasterTile>,ArlasException> stack(Tile where, Optional<RasterTile> done, Deque<Future<Try<Optional<RasterTile>,ArlasException>>> fetches, Percentage upTo)  {
+        // the next providers, in priority order, are fetched while the current tile is merged
+        while (fetches.size() <= prefetch && providers.size() > 0) {
+            fetches.add(RasterTileFetcher.fetch(collection, providers.poll(), where));
+        }
+        return Try.flatten(RasterTileFetcher.get(fetches.poll(), where).map(otile ->
                 {
                     Optional<RasterTile> merged = merge(done, otile).orElse(Optional.empty());
-                    Percentage coverage = upTo.getValue() > 0 ? this.coverage(merged, this.sampling) : new Percentage(0); // no need to compute the percentage if upTo is 0
-                    if (providers.size() == 0 || coverage.getValue() >= upTo.getValue()) {
+                    Percentage coverage = upTo.getValue() > 0 && bitmap != null ? new Percentage(bitmap.coverage()) : new Percentage(0); // no need to compute the percentage if upTo is 0
+                    if ((fetches.size() == 0 && providers.size() == 0) || coverage.getValue() >= upTo.getValue()) {
                         return Try.success(merged);
                     } else {
-                        return stack(where, merged, providers, upTo);
+                        return stack(where, merged, fetches, upTo);
                     }
                 }
         ));
     }
 
     private  Try<Optional<RasterTile>,ArlasException> merge(Optional<RasterTile> obottom, Optional<RasterTile>  otop)  {
-        return otop.map(top -> // if there's a top
-                obottom.map(bottom->{ // and a bottom then we merge
-                    Graphics g = bottom.getImg().getGraphics();
-                    g.drawImage(top.getImg(), 0, 0, null);
-                    g.dispose();
-                    return Try.withCatch(() -> Optional.of(new RasterTile(top.getxTile(), top.getyTile(), top.getzTile(), bottom.getImg())));
-                }).orElse(Try.success(otop)) //no bottom but there's a top
-        ).orElse(Try.success(obottom)); // no top but there's maybe a bottom
-    }
-
-    private Percentage coverage(Optional<RasterTile> tile, int sampling){
-        return tile.map(t-> {
-            return new Percentage(ImageUtil.coverage(t.getImg(),sampling));
-        }).orElse(new Percentage(0));
+        if (!otop.isPresent()) {
+            return Try.success(obottom); // no top but there's maybe a bottom
+        }
+        RasterTile top = otop.get();
+        if (bitmap == null) {
+            bitmap = new CoverageBitmap(top.getImg().getWidth(), top.getImg().getHeight(), sampling);
+        }
+        CoverageBitmap.Layer layer = bitmap.add(top.getImg());
+        if (!obottom.isPresent() || layer.isOpaque()) {
+            return Try.success(otop); // nothing below the top shows through
+        }
+        if (layer.isEmpty()) {
+            return Try.success(obottom); // nothing to draw
+        }
+        RasterTile bottom = obottom.get();
+        if (bottom.getImg() != canvas) {
+            // the fetched tiles are shared by the raster tile cache: they are merged on a canvas of the stack
+            canvas = new BufferedImage(bottom.getImg().getWidth(), bottom.getImg().getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics g = canvas.getGraphics();
+            g.drawImage(bottom.getImg(), 0, 0, null);
+            g.dispose();
+        }
+        // only the non transparent part of the top is drawn
+        Rectangle r = layer.getBounds();
+        Graphics g = canvas.getGraphics();
+        g.drawImage(top.getImg(), r.x, r.y, r.x + r.width, r.y + r.height, r.x, r.y, r.x + r.width, r.y + r.height, null);
+        g.dispose();
+        return Try.withCatch(() -> Optional.of(new RasterTile(top.getxTile(), top.getyTile(), top.getzTile(), canvas)));
     }
 
     public static class Percentage{
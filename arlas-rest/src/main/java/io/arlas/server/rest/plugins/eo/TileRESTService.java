@@ -19,9 +19,11 @@
 
 package io.arlas.server.rest.plugins.eo;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.Hashing;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.geojson.GeoJsonReader;
@@ -42,13 +44,16 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.elasticsearch.search.SearchHit;
 import org.geojson.FeatureCollection;
 
-import javax.imageio.ImageIO;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -56,8 +61,8 @@ import java.util.stream.Collectors;
 public class TileRESTService extends ExploreRESTServices {
     public final static String PRODUCES_PNG =  "image/png";
 
-    public TileRESTService(ExploreServices exploreServices) {
-        super(exploreServices);
+    public TileRESTService(ExploreServices exploreServices, MetricRegistry metrics) {
+        super(exploreServices, metrics);
     }
 
 
@@ -201,7 +206,9 @@ public class TileRESTService extends ExploreRESTServices {
             // -----------------------  EXTRA   -----------------------
             // --------------------------------------------------------
             @ApiParam(value = "max-age-cache", required = false)
-            @QueryParam(value = "max-age-cache") Integer maxagecache
+            @QueryParam(value = "max-age-cache") Integer maxagecache,
+
+            @Context Request httpRequest
     ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException {
         CollectionReference collectionReference = exploreServices.getDaoCollectionReference()
                 .getCollectionReference(collection);
@@ -241,7 +248,8 @@ public class TileRESTService extends ExploreRESTServices {
             request.basicRequest = search;
             request.headerRequest = searchHeader;
 
-            Queue<TileProvider<RasterTile>> providers = new LinkedList<>(findCandidateTiles(collectionReference, request).stream()
+            List<Tuple2<String,Optional<Geometry>>> candidates = findCandidateTiles(collectionReference, request);
+            Queue<TileProvider<RasterTile>> providers = new LinkedList<>(candidates.stream()
                     .filter(match -> match._2().map(
                             polygon->(!collectionReference.params.rasterTileURL.checkGeometry)||polygon.intersects(GeoTileUtil.toPolygon(bbox))) // if geo is available, does it intersect the bbox?
                             .orElse(Boolean.TRUE)) // otherwise, let's keep that match, we'll see later if it paints something
@@ -255,8 +263,21 @@ public class TileRESTService extends ExploreRESTServices {
             if(providers.size()==0){
                 return Response.noContent().build();
             }
+            EntityTag etag = null;
+            if (exploreServices.getResponseCacheManager().isETagEnabled()) {
+                // the stacked tile only depends on the upstream tiles and on the rendering
+                etag = new EntityTag(Hashing.sha256().hashString(collectionReference.params.rasterTileURL.url + "\n"
+                        + candidates.stream().map(Tuple2::_1).collect(Collectors.toList()) + "\n"
+                        + sampling + "," + coverage + "," + RasterTileEncoder.getSettings(), StandardCharsets.UTF_8).toString());
+                Response.ResponseBuilder notModified = httpRequest.evaluatePreconditions(etag);
+                if (notModified != null) {
+                    return cache(notModified.tag(etag), maxagecache);
+                }
+            }
+            final EntityTag tag = etag;
             Try<Optional<RasterTile>,ArlasException> stacked = new RasterTileStacker()
                     .stack(providers)
+                    .of(collectionReference.collectionName)
                     .sampling(Optional.ofNullable(sampling).orElse(10))
                     .upTo(new RasterTileStacker.Percentage(Optional.ofNullable(coverage).orElse(10)))
                     .on(new Tile(x, y, z));
@@ -267,11 +288,9 @@ public class TileRESTService extends ExploreRESTServices {
 
             return stacked.map(otile->
                     otile.map(tile->
-                            Try.withCatch(()->{ // lets write the image to the response's output
-                                final ByteArrayOutputStream out = new ByteArrayOutputStream();
-                                ImageIO.write(tile.getImg(), "png", out);
-                                return cache(Response.ok(out.toByteArray()), maxagecache);
-                            },IOException.class)
+                            Try.withCatch(()-> // lets write the image to the response's output
+                                cache(Response.ok(RasterTileEncoder.encode(tile.getImg())).tag(tag), maxagecache)
+                            ,RuntimeException.class)
                                     .onFail(e -> Response.serverError().entity(e.getMessage()).build())
                                     .orElse(Response.noContent().build())) // Can't write the tile => No content
                             .orElse(Response.noContent().build()))// No tile => No content
@@ -284,12 +303,16 @@ public class TileRESTService extends ExploreRESTServices {
     protected List<Tuple2<String,Optional<Geometry>>> findCandidateTiles(CollectionReference collectionReference, MixedRequest request) throws ArlasException, IOException {
         GeoJsonReader reader = new GeoJsonReader();
         ObjectWriter writer = new ObjectMapper().writer();
+        FieldPath idFieldPath = collectionReference.params.getRasterTileIdFieldPath();
+        FieldPath geometryFieldPath = collectionReference.params.getGeometryFieldPath();
         return Arrays.stream(this.getExploreServices().search(request, collectionReference).getHits())
-                .map(hit->Tuple2.of(
-                        "" + MapExplorer.getObjectFromPath(collectionReference.params.rasterTileURL.idPath, hit.getSourceAsMap()), // Let's get the ID of the match
-                        Try.withCatch(() ->reader.read(writer.writeValueAsString(MapExplorer.getObjectFromPath(collectionReference.params.geometryPath, hit.getSourceAsMap()))), // and its geometry: must be a polygon
+                .map(SearchHit::getSourceAsMap)
+                .map(source->Tuple2.of(
+                        "" + idFieldPath.get(source), // Let's get the ID of the match
+                        geometryFieldPath == null ? Optional.<Geometry>empty() : // no geometry path: the optimisation can't be applied
+                        Try.withCatch(() ->reader.read(writer.writeValueAsString(geometryFieldPath.get(source))), // and its geometry: must be a polygon
                                 ParseException.class,ClassCastException.class) // there might be some troubles when parsing the geometry
-                                .onFail(e ->LOGGER.error("Failed to fetch geometry for "+MapExplorer.getObjectFromPath(collectionReference.params.idPath, hit.getSourceAsMap())))
+                                .onFail(e ->LOGGER.error("Failed to fetch geometry for "+idFieldPath.get(source)))
                                 .toOptional()// in case there's a problem, we don't need the geometry: the optimisation won't be applied on the hit => an empty Optional is good enough
                 )).collect(Collectors.toList());
     }
@@ -67,7 +67,7 @@ public class URLBasedRasterTileProvider implements TileProvider <RasterTile>{
     }
 
     protected BufferedImage getImage(URL url) throws IOException {
-        BufferedImage img = ImageIO.read(url);
+        BufferedImage img = RasterTileFetcher.read(url);
         if(width>-1 && height>-1 && (img.getWidth()>width || img.getHeight()>height)){
             return img.getSubimage(0,0,width, height);
         }else{
@@ -27,6 +27,7 @@ import io.arlas.server.model.request.Search;
 import io.arlas.server.model.request.TagRequest;
 import io.arlas.server.model.response.Error;
 import io.arlas.server.model.response.UpdateResponse;
+import io.arlas.server.model.response.UpdateTask;
 import io.arlas.server.app.Documentation;
 import io.arlas.server.services.UpdateServices;
 import io.arlas.server.utils.ParamsParser;
@@ -34,6 +35,7 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.apache.commons.lang.BooleanUtils;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
@@ -83,7 +85,13 @@ public class TagRESTService extends UpdateRESTServices {
                     allowMultiple = false,
                     defaultValue = "false",
                     required=false)
-            @QueryParam(value="pretty") Boolean pretty
+            @QueryParam(value="pretty") Boolean pretty,
+
+            @ApiParam(name ="async", value=Documentation.TAG_ASYNC,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required=false)
+            @QueryParam(value="async") Boolean async
     ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException {
         CollectionReference collectionReference = updateServices.getDaoCollectionReference()
                 .getCollectionReference(collection);
@@ -95,6 +103,9 @@ public class TagRESTService extends UpdateRESTServices {
             MixedRequest request = new MixedRequest();
             request.basicRequest = tagRequest.search;
             request.headerRequest = searchHeader;
+            if (BooleanUtils.isTrue(async)) {
+                return Response.accepted(updateServices.tagAsync(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
+            }
             return Response.ok(updateServices.tag(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
     }
 
@@ -136,7 +147,13 @@ public class TagRESTService extends UpdateRESTServices {
                     allowMultiple = false,
                     defaultValue = "false",
                     required=false)
-            @QueryParam(value="pretty") Boolean pretty
+            @QueryParam(value="pretty") Boolean pretty,
+
+            @ApiParam(name ="async", value=Documentation.TAG_ASYNC,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required=false)
+            @QueryParam(value="async") Boolean async
     ) throws InterruptedException, ExecutionException, IOException, NotFoundException, ArlasException {
         CollectionReference collectionReference = updateServices.getDaoCollectionReference()
                 .getCollectionReference(collection);
@@ -148,10 +165,60 @@ public class TagRESTService extends UpdateRESTServices {
         MixedRequest request = new MixedRequest();
         request.basicRequest = tagRequest.search;
         request.headerRequest = searchHeader;
+        if (BooleanUtils.isTrue(async)) {
+            if(tagRequest.tag.value!=null){
+                return Response.accepted(updateServices.unTagAsync(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
+            }else{
+                return Response.accepted(updateServices.removeAllAsync(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
+            }
+        }
         if(tagRequest.tag.value!=null){
             return Response.ok(updateServices.unTag(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
         }else{
             return Response.ok(updateServices.removeAll(collectionReference, request, tagRequest.tag, Integer.MAX_VALUE)).build();
         }
     }
+
+    @Timed
+    @Path("/{collection}/_tag/{taskId}")
+    @GET
+    @Produces(UTF8JSON)
+    @Consumes(UTF8JSON)
+    @ApiOperation(value = "Tag task", produces = UTF8JSON, notes = Documentation.TAG_TASK_OPERATION, consumes = UTF8JSON, response = UpdateTask.class)
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "Successful operation", response = UpdateTask.class),
+            @ApiResponse(code = 500, message = "Arlas Server Error.", response = Error.class), @ApiResponse(code = 404, message = "Not Found Error.", response = Error.class) })
+    public Response tagTask(
+            // --------------------------------------------------------
+            // ----------------------- PATH     -----------------------
+            // --------------------------------------------------------
+            @ApiParam(
+                    name = "collection",
+                    value = "collection",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "collection") String collection,
+
+            @ApiParam(
+                    name = "taskId",
+                    value = "taskId",
+                    allowMultiple = false,
+                    required = true)
+            @PathParam(value = "taskId") String taskId,
+
+            // --------------------------------------------------------
+            // ----------------------- FORM     -----------------------
+            // --------------------------------------------------------
+            @ApiParam(name ="pretty", value=Documentation.FORM_PRETTY,
+                    allowMultiple = false,
+                    defaultValue = "false",
+                    required=false)
+            @QueryParam(value="pretty") Boolean pretty
+    ) throws ArlasException {
+        CollectionReference collectionReference = updateServices.getDaoCollectionReference()
+                .getCollectionReference(collection);
+        if (collectionReference == null) {
+            throw new NotFoundException(collection);
+        }
+        return Response.ok(updateServices.getTask(collectionReference, taskId)).build();
+    }
 }
@@ -25,6 +25,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.smoketurner.dropwizard.zipkin.ZipkinBundle;
 import com.smoketurner.dropwizard.zipkin.ZipkinFactory;
+import io.arlas.server.dao.CollectionCatalog;
+import io.arlas.server.dao.CollectionReferenceRegistry;
 import io.arlas.server.exceptions.*;
 import io.arlas.server.health.ElasticsearchHealthCheck;
 import io.arlas.server.ogc.csw.CSWHandler;
@@ -45,13 +47,25 @@ import io.arlas.server.rest.explore.describe.DescribeCollectionRESTService;
 import io.arlas.server.rest.explore.describe.DescribeRESTService;
 import io.arlas.server.rest.explore.opensearch.AtomHitsMessageBodyWriter;
 import io.arlas.server.rest.explore.opensearch.OpenSearchDescriptorService;
+import io.arlas.server.rest.explore.protobuf.ProtobufAggregationResponseMessageBodyWriter;
+import io.arlas.server.rest.explore.protobuf.ProtobufHitsMessageBodyWriter;
 import io.arlas.server.rest.explore.range.RangeRESTService;
+import io.arlas.server.rest.explore.stats.StatsRESTService;
+import io.arlas.server.rest.explore.batch.BatchRESTService;
+import io.arlas.server.rest.explore.etag.ETagFeature;
+import io.arlas.server.rest.explore.export.ExportRESTService;
 import io.arlas.server.rest.explore.raw.RawRESTService;
 import io.arlas.server.rest.explore.search.GeoSearchRESTService;
 import io.arlas.server.rest.explore.search.SearchRESTService;
 import io.arlas.server.rest.explore.suggest.SuggestRESTService;
+import io.arlas.server.rest.plugins.eo.RasterTileCache;
+import io.arlas.server.rest.plugins.eo.RasterTileEncoder;
+import io.arlas.server.rest.plugins.eo.RasterTileFetcher;
 import io.arlas.server.rest.plugins.eo.TileRESTService;
 import io.arlas.server.rest.tag.TagRESTService;
+import io.arlas.server.core.DescriptionRegistry;
+import io.arlas.server.core.GeohashCells;
+import io.arlas.server.core.RequestCoalescer;
 import io.arlas.server.services.ExploreServices;
 import io.arlas.server.services.UpdateServices;
 import io.arlas.server.task.CollectionAutoDiscover;
@@ -144,6 +158,12 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
 
         ExploreServices exploration = new ExploreServices(client, configuration);
         UpdateServices updateServices = new UpdateServices(client, configuration);
+        exploration.getResultCache().registerMetrics(environment.metrics());
+        RequestCoalescer.registerMetrics(environment.metrics());
+        GeohashCells.registerMetrics(environment.metrics());
+        CollectionReferenceRegistry.registerMetrics(environment.metrics());
+        CollectionCatalog.registerMetrics(environment.metrics());
+        DescriptionRegistry.registerMetrics(environment.metrics());
         environment.getObjectMapper().setSerializationInclusion(Include.NON_NULL);
         environment.getObjectMapper().configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
         environment.jersey().register(MultiPartFeature.class);
@@ -153,6 +173,8 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
         environment.jersey().register(new ConstraintViolationExceptionMapper());
         environment.jersey().register(new ElasticsearchExceptionMapper());
         environment.jersey().register(new AtomHitsMessageBodyWriter(exploration));
+        environment.jersey().register(new ProtobufHitsMessageBodyWriter());
+        environment.jersey().register(new ProtobufAggregationResponseMessageBodyWriter());
         environment.jersey().register(new AtomGetRecordsMessageBodyWriter(configuration));
         environment.jersey().register(new XmlGetRecordsMessageBodyWriter());
         environment.jersey().register(new XmlMDMetadataMessageBodyWriter());
@@ -160,17 +182,23 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
         environment.jersey().register(new AtomRecordMessageBodyWriter());
 
         if (configuration.arlasServiceExploreEnabled) {
-            environment.jersey().register(new CountRESTService(exploration));
-            environment.jersey().register(new CountDistinctRESTService(exploration));
-            environment.jersey().register(new SearchRESTService(exploration));
-            environment.jersey().register(new AggregateRESTService(exploration));
-            environment.jersey().register(new GeoSearchRESTService(exploration));
-            environment.jersey().register(new GeoAggregateRESTService(exploration));
-            environment.jersey().register(new SuggestRESTService(exploration));
-            environment.jersey().register(new DescribeRESTService(exploration));
-            environment.jersey().register(new RawRESTService(exploration));
-            environment.jersey().register(new DescribeCollectionRESTService(exploration));
-            environment.jersey().register(new RangeRESTService(exploration));
+            environment.jersey().register(new CountRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new CountDistinctRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new SearchRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new AggregateRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new GeoSearchRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new GeoAggregateRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new SuggestRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new DescribeRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new RawRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new DescribeCollectionRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new RangeRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new StatsRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new BatchRESTService(exploration, environment.metrics()));
+            environment.jersey().register(new ExportRESTService(exploration, environment.metrics()));
+            if (configuration.arlasetagenabled) {
+                environment.jersey().register(new ETagFeature(exploration));
+            }
             LOGGER.info("Explore API enabled");
         } else {
             LOGGER.info("Explore API disabled");
@@ -194,7 +222,7 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
         if(configuration.arlasServiceOPENSEARCHEnabled){
             LOGGER.info("OPENSEARCH Service enabled");
             OpensearchConfiguration opensearchConfiguration = configuration.opensearchConfiguration;
-            environment.jersey().register(new OpenSearchDescriptorService(exploration, opensearchConfiguration));
+            environment.jersey().register(new OpenSearchDescriptorService(exploration, opensearchConfiguration, environment.metrics()));
         } else {
             LOGGER.info("OPENSEARCH Service disabled");
         }
@@ -216,7 +244,12 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
 
         if(configuration.arlasServiceRasterTileEnabled){
             LOGGER.info("Raster Tile Service enabled");
-            environment.jersey().register(new TileRESTService(updateServices));
+            RasterTileFetcher.configure(configuration.rasterTileConfiguration);
+            RasterTileFetcher.registerMetrics(environment.metrics());
+            RasterTileCache.configure(configuration.rasterTileConfiguration);
+            RasterTileCache.registerMetrics(environment.metrics());
+            RasterTileEncoder.configure(configuration.rasterTileConfiguration);
+            environment.jersey().register(new TileRESTService(updateServices, environment.metrics()));
         }else{
             LOGGER.info("Raster Tile Service disabled");
         }
@@ -226,13 +259,15 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
         environment.jersey().register(InsensitiveCaseFilter.class);
 
         //tasks
-        environment.admin().addTask(new CollectionAutoDiscover(client, configuration));
+        // the task and the scheduled runs share the fingerprints of the mappings already checked
+        CollectionAutoDiscover autoDiscoverTask = new CollectionAutoDiscover(client, configuration);
+        autoDiscoverTask.registerMetrics(environment.metrics());
+        environment.admin().addTask(autoDiscoverTask);
         int scheduleAutoDiscover = configuration.collectionAutoDiscoverConfiguration.schedule;
         if (scheduleAutoDiscover > 0) {
             String nameFormat = "collection-auto-discover-%d";
             ScheduledExecutorServiceBuilder sesBuilder = environment.lifecycle().scheduledExecutorService(nameFormat);
             ScheduledExecutorService ses = sesBuilder.build();
-            Runnable autoDiscoverTask = new CollectionAutoDiscover(client, configuration);
             ses.scheduleWithFixedDelay(autoDiscoverTask, 10, scheduleAutoDiscover, TimeUnit.SECONDS);
         }
 
@@ -275,11 +310,11 @@ public class ArlasServer extends Application<ArlasServerConfiguration> {
 
         // Configure CORS parameters
         cors.setInitParameter(CrossOriginFilter.ALLOWED_ORIGINS_PARAM, "*");
-        cors.setInitParameter(CrossOriginFilter.ALLOWED_HEADERS_PARAM, "X-Requested-With,Content-Type,Accept,Origin,Authorization");
+        cors.setInitParameter(CrossOriginFilter.ALLOWED_HEADERS_PARAM, "X-Requested-With,Content-Type,Accept,Origin,Authorization,If-None-Match");
         cors.setInitParameter(CrossOriginFilter.ALLOWED_METHODS_PARAM, "OPTIONS,GET,PUT,POST,DELETE,HEAD");
         cors.setInitParameter(CrossOriginFilter.ALLOW_CREDENTIALS_PARAM, "true");
         //cors.setInitParameter(CrossOriginFilter.PREFLIGHT_MAX_AGE_PARAM, "");
-        cors.setInitParameter(CrossOriginFilter.EXPOSED_HEADERS_PARAM, "Content-Type,Authorization,X-Requested-With,Content-Length,Accept,Origin,Location");
+        cors.setInitParameter(CrossOriginFilter.EXPOSED_HEADERS_PARAM, "Content-Type,Authorization,X-Requested-With,Content-Length,Accept,Origin,Location,ETag");
 
         // Add URL mapping
         cors.addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), true, "/*");
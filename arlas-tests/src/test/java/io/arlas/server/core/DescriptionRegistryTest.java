@@ -0,0 +1,78 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class DescriptionRegistryTest {
+
+    private static final MetaData metaData = MetaData.builder()
+            .put(index("geodata-2019.01.01", IndexMetaData.State.OPEN), false)
+            .put(index("geodata-2019.01.02", IndexMetaData.State.OPEN), false)
+            .put(index("geodata-2018.12.31", IndexMetaData.State.CLOSE), false)
+            .put(index("other", IndexMetaData.State.OPEN), false)
+            .build();
+
+    private static IndexMetaData index(String name, IndexMetaData.State state) {
+        return IndexMetaData.builder(name)
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .state(state)
+                .putAlias(AliasMetaData.builder(name.startsWith("geodata") ? "geodata" : name + "-alias"))
+                .build();
+    }
+
+    private static List<String> resolve(String indexName) {
+        List<IndexMetaData> indices = DescriptionRegistry.resolve(metaData, indexName);
+        return indices == null ? null : indices.stream().map(index -> index.getIndex().getName()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testResolveIndexAndAlias() {
+        Assert.assertEquals(1, resolve("other").size());
+        Assert.assertEquals(resolve("other"), resolve("other-alias"));
+        Assert.assertEquals(3, resolve("geodata").size());
+        Assert.assertEquals(4, resolve("geodata,other").size());
+    }
+
+    @Test
+    public void testResolveWildcardSkipsClosedIndices() {
+        List<String> indices = resolve("geodata-*");
+        Assert.assertEquals(2, indices.size());
+        Assert.assertFalse(indices.contains("geodata-2018.12.31"));
+        Assert.assertEquals(3, resolve("_all").size());
+    }
+
+    @Test
+    public void testUnresolved() {
+        Assert.assertNull(resolve("missing"));
+        Assert.assertNull(resolve("geodata-*,-geodata-2019.01.01"));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.response.ElasticType;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class FieldTypeRegistryTest {
+
+    private static final String FIRST_INDEX = "{\"properties\":{" +
+            "\"id\":{\"type\":\"keyword\"}," +
+            "\"params\":{\"properties\":{" +
+            "\"job\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"}}}," +
+            "\"startdate\":{\"type\":\"long\"}," +
+            "\"city\":{\"type\":\"keyword\"}}}," +
+            "\"geo_params\":{\"properties\":{\"centroid\":{\"type\":\"geo_point\"}}}}}";
+
+    private static final String SECOND_INDEX = "{\"properties\":{" +
+            "\"id\":{\"type\":\"keyword\"}," +
+            "\"params\":{\"properties\":{" +
+            "\"job\":{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\"},\"raw\":{\"type\":\"keyword\"}}}," +
+            "\"startdate\":{\"type\":\"date\",\"format\":\"epoch_second\"}," +
+            "\"enddate\":{\"type\":\"date\"}}}," +
+            "\"geo_params\":{\"properties\":{\"geometry\":{\"type\":\"geo_shape\"}}}}}";
+
+    @Test
+    public void testTypesAreMergedAcrossIndices() throws IOException {
+        FieldTypeRegistry.CollectionFieldTypes fieldTypes = FieldTypeRegistry.fromMappings(Arrays.asList(mapping(FIRST_INDEX), mapping(SECOND_INDEX)));
+        // fields of a single index
+        Assert.assertEquals(ElasticType.KEYWORD, fieldTypes.getType("params.city"));
+        Assert.assertEquals(ElasticType.DATE, fieldTypes.getType("params.enddate"));
+        Assert.assertEquals(CollectionReference.DEFAULT_TIMESTAMP_FORMAT, fieldTypes.getFormat("params.enddate"));
+        Assert.assertTrue(fieldTypes.isGeoField("geo_params.centroid"));
+        Assert.assertTrue(fieldTypes.isGeoField("geo_params.geometry"));
+        // a field mapped as a date in one of the indices is a date, with the format of that index
+        Assert.assertTrue(fieldTypes.isDateField("params.startdate"));
+        Assert.assertEquals("epoch_second", fieldTypes.getFormat("params.startdate"));
+        Assert.assertEquals(ElasticType.OBJECT, fieldTypes.getType("params"));
+        Assert.assertNull(fieldTypes.getType("params.unknown"));
+    }
+
+    @Test
+    public void testDateTypeWinsWhateverTheOrderOfTheIndices() throws IOException {
+        FieldTypeRegistry.CollectionFieldTypes fieldTypes = FieldTypeRegistry.fromMappings(Arrays.asList(mapping(SECOND_INDEX), mapping(FIRST_INDEX)));
+        Assert.assertTrue(fieldTypes.isDateField("params.startdate"));
+        Assert.assertEquals("epoch_second", fieldTypes.getFormat("params.startdate"));
+    }
+
+    @Test
+    public void testMultiFields() throws IOException {
+        FieldTypeRegistry.CollectionFieldTypes fieldTypes = FieldTypeRegistry.fromMappings(Arrays.asList(mapping(FIRST_INDEX), mapping(SECOND_INDEX)));
+        Assert.assertEquals(ElasticType.TEXT, fieldTypes.getType("params.job"));
+        Assert.assertEquals(ElasticType.KEYWORD, fieldTypes.getType("params.job.keyword"));
+        Assert.assertEquals(ElasticType.KEYWORD, fieldTypes.getType("params.job.raw"));
+        Assert.assertFalse(fieldTypes.isDateField("params.job.keyword"));
+    }
+
+    private static MappingMetaData mapping(String json) throws IOException {
+        Map<String, Object> source = new ObjectMapper().readValue(json, new TypeReference<Map<String, Object>>(){});
+        return new MappingMetaData("geodata", source);
+    }
+}
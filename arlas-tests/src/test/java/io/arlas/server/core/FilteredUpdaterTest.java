@@ -0,0 +1,74 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.BadRequestException;
+import io.arlas.server.exceptions.NotImplementedException;
+import io.arlas.server.model.enumerations.Action;
+import io.arlas.server.model.request.Tag;
+import org.elasticsearch.script.Script;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class FilteredUpdaterTest {
+
+    private static Tag tag(String path, Object value) {
+        Tag tag = new Tag();
+        tag.path = path;
+        tag.value = value;
+        return tag;
+    }
+
+    @Test
+    public void testTagValuesShareTheScriptSource() throws ArlasException {
+        FilteredUpdater updater = new FilteredUpdater(null);
+        Script v1 = updater.getTagScript(tag("params.tags", "v1"), Action.ADD);
+        Script v2 = updater.getTagScript(tag("params.tags", "it's v2"), Action.ADD);
+        Script other = updater.getTagScript(tag("params.other", 2), Action.ADD);
+        Assert.assertEquals(v1.getIdOrCode(), v2.getIdOrCode());
+        Assert.assertEquals(v1.getIdOrCode(), other.getIdOrCode());
+        Assert.assertEquals(Arrays.asList("params", "tags"), v1.getParams().get("path"));
+        Assert.assertEquals("it's v2", v2.getParams().get("value"));
+        Assert.assertEquals(2, other.getParams().get("value"));
+    }
+
+    @Test
+    public void testUntagScripts() throws ArlasException {
+        FilteredUpdater updater = new FilteredUpdater(null);
+        Script remove = updater.getTagScript(tag("params.tags", "v1"), Action.REMOVE);
+        Script removeAll = updater.getTagScript(tag("params.tags", null), Action.REMOVEALL);
+        Assert.assertEquals("v1", remove.getParams().get("value"));
+        Assert.assertFalse(removeAll.getParams().containsKey("value"));
+        Assert.assertNotEquals(remove.getIdOrCode(), removeAll.getIdOrCode());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testMissingValue() throws ArlasException {
+        new FilteredUpdater(null).getTagScript(tag("params.tags", null), Action.ADD);
+    }
+
+    @Test(expected = NotImplementedException.class)
+    public void testRemoveNumber() throws ArlasException {
+        new FilteredUpdater(null).getTagScript(tag("params.tags", 1), Action.REMOVE);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import org.apache.lucene.geo.Rectangle;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.geojson.LngLatAlt;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class GeohashCellsTest {
+
+    @Test
+    public void testCell() {
+        Rectangle bbox = GeoHashUtils.bbox("u0");
+        GeohashCells.Cell cell = GeohashCells.get("u0");
+        Assert.assertEquals((bbox.minLat + bbox.maxLat) / 2, cell.centre.getLat(), 0);
+        Assert.assertEquals((bbox.minLon + bbox.maxLon) / 2, cell.centre.getLon(), 0);
+        Assert.assertEquals(cell.centre.getLon(), cell.centroid.getCoordinates().getLongitude(), 0);
+        Assert.assertEquals(cell.centre.getLat(), cell.centroid.getCoordinates().getLatitude(), 0);
+        List<LngLatAlt> ring = cell.extent.getExteriorRing();
+        Assert.assertEquals(new LngLatAlt(bbox.minLon, bbox.maxLat), ring.get(0));
+        Assert.assertEquals(new LngLatAlt(bbox.maxLon, bbox.minLat), ring.get(2));
+    }
+
+    @Test
+    public void testCellsAreShared() {
+        Assert.assertSame(GeohashCells.get("u0v9"), GeohashCells.get("u0v9"));
+        Assert.assertNotSame(GeohashCells.get("u0v9"), GeohashCells.get("u0v"));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IndexGenerationsTest {
+
+    @Test
+    public void testInvalidateStartsANewGeneration() {
+        // the generations are never polled during the test
+        IndexGenerations generations = new IndexGenerations(null, 3600);
+        List<String> invalidated = new ArrayList<>();
+        generations.addListener(invalidated::add);
+        long generation = generations.getGeneration("dataset");
+        Assert.assertEquals(generation, generations.getGeneration("dataset"));
+        generations.invalidate("dataset");
+        Assert.assertEquals(generation + 1, generations.getGeneration("dataset"));
+        Assert.assertEquals(0, generations.getGeneration("other"));
+        Assert.assertEquals(1, invalidated.size());
+        Assert.assertEquals("dataset", invalidated.get(0));
+    }
+
+    @Test
+    public void testUnknownSignature() {
+        Assert.assertNull(new IndexGenerations(null, 3600).getSignature("dataset"));
+    }
+}
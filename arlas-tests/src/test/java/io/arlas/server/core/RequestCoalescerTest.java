@@ -0,0 +1,108 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.*;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class RequestCoalescerTest {
+
+    // the listeners of the requests sent to Elasticsearch, completed by the tests
+    private List<ActionListener<SearchResponse>> sent;
+    private ElasticsearchClient client;
+
+    @Before
+    public void setUp() {
+        sent = new CopyOnWriteArrayList<>();
+        client = (ElasticsearchClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ElasticsearchClient.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("execute") && args.length == 3) {
+                        sent.add((ActionListener<SearchResponse>) args[2]);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    public void testIdenticalRequestsShareOneExecution() throws Exception {
+        CompletableFuture<SearchResponse> first = RequestCoalescer.execute(request(r -> {}));
+        CompletableFuture<SearchResponse> second = RequestCoalescer.execute(request(r -> {}));
+        Assert.assertEquals(1, sent.size());
+        CompletableFuture<String> completionThread = second.thenApply(response -> Thread.currentThread().getName());
+
+        SearchResponse response = emptyResponse();
+        sent.get(0).onResponse(response);
+        Assert.assertSame(response, first.get());
+        Assert.assertSame(response, second.get());
+        // completed on the pool of the application, not on the thread of the Elasticsearch client
+        Assert.assertTrue(completionThread.get().startsWith("search-response-"));
+
+        // a request sent once the response arrived is executed again
+        RequestCoalescer.execute(request(r -> {}));
+        Assert.assertEquals(2, sent.size());
+        sent.get(1).onResponse(response);
+    }
+
+    @Test
+    public void testDifferentRequestsAreExecutedSeparately() {
+        RequestCoalescer.execute(request(r -> {}));
+        RequestCoalescer.execute(request(r -> r.source(new SearchSourceBuilder().size(1))));
+        RequestCoalescer.execute(request(r -> r.searchType(SearchType.DFS_QUERY_THEN_FETCH)));
+        RequestCoalescer.execute(request(r -> r.scroll("1m")));
+        RequestCoalescer.execute(request(r -> r.indicesOptions(IndicesOptions.strictExpand())));
+        RequestCoalescer.execute(request(r -> r.allowPartialSearchResults(false)));
+        RequestCoalescer.execute(request(r -> r.preference("_local")));
+        Assert.assertEquals(7, sent.size());
+        sent.forEach(listener -> listener.onResponse(emptyResponse()));
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        CompletableFuture<SearchResponse> first = RequestCoalescer.execute(request(r -> {}));
+        CompletableFuture<SearchResponse> second = RequestCoalescer.execute(request(r -> {}));
+        sent.get(0).onFailure(new IllegalStateException("failed"));
+        Assert.assertEquals(IllegalStateException.class, first.handle((response, e) -> e).get().getClass());
+        Assert.assertEquals(IllegalStateException.class, second.handle((response, e) -> e).get().getClass());
+    }
+
+    private SearchRequestBuilder request(Consumer<SearchRequest> options) {
+        SearchRequestBuilder builder = new SearchRequestBuilder(client, SearchAction.INSTANCE).setIndices("dataset");
+        options.accept(builder.request());
+        return builder;
+    }
+
+    private static SearchResponse emptyResponse() {
+        return new SearchResponse(InternalSearchResponse.empty(), null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.core;
+
+import io.arlas.server.app.ResultCacheConfiguration;
+import io.arlas.server.model.CollectionReference;
+import io.arlas.server.model.CollectionReferenceParameters;
+import io.arlas.server.model.enumerations.AggregationTypeEnum;
+import io.arlas.server.model.enumerations.OperatorEnum;
+import io.arlas.server.model.request.*;
+import org.elasticsearch.action.search.SearchResponse;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultCacheTest {
+
+    private ResultCache resultCache;
+    private CollectionReference collectionReference;
+
+    @Before
+    public void setUp() {
+        ResultCacheConfiguration configuration = new ResultCacheConfiguration();
+        configuration.enabled = true;
+        configuration.maxWeight = 1024 * 1024;
+        configuration.timeout = 60;
+        // the generations are never polled during the tests
+        resultCache = new ResultCache(new IndexGenerations(null, 3600), configuration);
+        collectionReference = new CollectionReference("geodata", new CollectionReferenceParameters());
+        collectionReference.params.indexName = "dataset";
+    }
+
+    @Test
+    public void testSameRequestsShareTheirResult() {
+        SearchResponse response = emptyResponse();
+        resultCache.put(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference), response);
+        Assert.assertSame(response, resultCache.get(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference)));
+    }
+
+    @Test
+    public void testDifferentRequestsDoNotShareTheirResult() {
+        resultCache.put(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference), emptyResponse());
+        Assert.assertNull(resultCache.get(resultCache.key("count", countRequest("params.job:eq:Dancer"), collectionReference)));
+        Assert.assertNull(resultCache.get(resultCache.key("aggregate", countRequest("params.job:eq:Architect"), collectionReference)));
+
+        MixedRequest partitionedRequest = countRequest("params.job:eq:Architect");
+        partitionedRequest.headerRequest.filter = filter("params.startdate:gte:0");
+        Assert.assertNull(resultCache.get(resultCache.key("count", partitionedRequest, collectionReference)));
+
+        collectionReference.params.filter = filter("params.startdate:gte:0");
+        Assert.assertNull(resultCache.get(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference)));
+    }
+
+    @Test
+    public void testDifferentAggregationsDoNotShareTheirResult() {
+        resultCache.put(resultCache.key("aggregate", aggregationRequest("params.job"), collectionReference), emptyResponse());
+        Assert.assertNull(resultCache.get(resultCache.key("aggregate", aggregationRequest("params.city"), collectionReference)));
+        Assert.assertNotNull(resultCache.get(resultCache.key("aggregate", aggregationRequest("params.job"), collectionReference)));
+    }
+
+    @Test
+    public void testOutputFormIsNotPartOfTheKey() {
+        SearchResponse response = emptyResponse();
+        resultCache.put(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference), response);
+        MixedRequest prettyRequest = countRequest("params.job:eq:Architect");
+        prettyRequest.basicRequest.form = new Form();
+        prettyRequest.basicRequest.form.pretty = true;
+        prettyRequest.basicRequest.form.flat = true;
+        Assert.assertSame(response, resultCache.get(resultCache.key("count", prettyRequest, collectionReference)));
+    }
+
+    @Test
+    public void testWeightGrowsWithTheBuckets() {
+        Assert.assertEquals(ResultCache.RESPONSE_WEIGHT, ResultCache.weigh(emptyResponse()));
+        List<StringTerms.Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            buckets.add(new StringTerms.Bucket(new BytesRef("job" + i), 1, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+        }
+        StringTerms terms = new StringTerms("jobs", BucketOrder.count(false), 10, 1, Collections.emptyList(), null,
+                DocValueFormat.RAW, 10, false, 0, buckets, 0);
+        SearchResponse response = new SearchResponse(new InternalSearchResponse(SearchHits.empty(), new InternalAggregations(Arrays.asList(terms)), null, null, false, null, 1),
+                null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+        Assert.assertEquals(ResultCache.RESPONSE_WEIGHT + ResultCache.AGGREGATION_WEIGHT + 10 * ResultCache.BUCKET_WEIGHT, ResultCache.weigh(response));
+    }
+
+    @Test
+    public void testInvalidatedIndexDropsItsResults() {
+        ResultCache.Key key = resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference);
+        resultCache.put(key, emptyResponse());
+        resultCache.invalidate("dataset");
+        Assert.assertNull(resultCache.get(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference)));
+        // a result computed before the invalidation is not kept
+        resultCache.put(key, emptyResponse());
+        Assert.assertNull(resultCache.get(key));
+        Assert.assertNull(resultCache.get(resultCache.key("count", countRequest("params.job:eq:Architect"), collectionReference)));
+    }
+
+    @Test
+    public void testDisabledCache() {
+        ResultCacheConfiguration configuration = new ResultCacheConfiguration();
+        configuration.enabled = false;
+        configuration.maxWeight = 1024 * 1024;
+        configuration.timeout = 60;
+        ResultCache disabledCache = new ResultCache(new IndexGenerations(null, 3600), configuration);
+        ResultCache.Key key = disabledCache.key("count", countRequest("params.job:eq:Architect"), collectionReference);
+        Assert.assertNull(key);
+        disabledCache.put(key, emptyResponse());
+        Assert.assertNull(disabledCache.get(key));
+    }
+
+    private static MixedRequest countRequest(String f) {
+        Count count = new Count();
+        count.filter = filter(f);
+        MixedRequest request = new MixedRequest();
+        request.basicRequest = count;
+        request.headerRequest = new Count();
+        return request;
+    }
+
+    private static MixedRequest aggregationRequest(String field) {
+        Aggregation aggregation = new Aggregation();
+        aggregation.type = AggregationTypeEnum.term;
+        aggregation.field = field;
+        AggregationsRequest aggregationsRequest = new AggregationsRequest();
+        aggregationsRequest.filter = filter("params.job:eq:Architect");
+        aggregationsRequest.aggregations = new ArrayList<>(Arrays.asList(aggregation));
+        MixedRequest request = new MixedRequest();
+        request.basicRequest = aggregationsRequest;
+        request.headerRequest = new AggregationsRequest();
+        return request;
+    }
+
+    private static Filter filter(String f) {
+        String[] expression = f.split(":");
+        Filter filter = new Filter();
+        filter.f = Arrays.asList(new MultiValueFilter<>(new Expression(expression[0], OperatorEnum.valueOf(expression[1]), expression[2])));
+        return filter;
+    }
+
+    private static SearchResponse emptyResponse() {
+        return new SearchResponse(InternalSearchResponse.empty(), null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.dao;
+
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.NotFoundException;
+import io.arlas.server.model.CollectionReference;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CollectionReferenceRegistryTest {
+
+    private static final Map<String, Integer> loads = new ConcurrentHashMap<>();
+    private static final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    @BeforeClass
+    public static void beforeClass() {
+        // the references are never refreshed during the test
+        CollectionReferenceRegistry.configure(ref -> {
+            loads.merge(ref, 1, Integer::sum);
+            if (ref.startsWith("unknown") || deleted.contains(ref)) {
+                throw new NotFoundException("Collection " + ref + " not found.");
+            }
+            CollectionReference collectionReference = new CollectionReference();
+            collectionReference.collectionName = ref;
+            return collectionReference;
+        }, 100, 3600);
+    }
+
+    @Test
+    public void testLoadedOnce() throws ArlasException {
+        Assert.assertEquals("geodata", CollectionReferenceRegistry.get("geodata").collectionName);
+        Assert.assertEquals("geodata", CollectionReferenceRegistry.get("geodata").collectionName);
+        Assert.assertEquals(1, loads.get("geodata").intValue());
+    }
+
+    @Test
+    public void testUnknownCollectionIsNotCached() throws ArlasException {
+        for (int i = 0; i < 2; i++) {
+            try {
+                CollectionReferenceRegistry.get("unknown");
+                Assert.fail("NotFoundException expected");
+            } catch (NotFoundException e) {
+                Assert.assertEquals("Collection unknown not found.", e.getMessage());
+            }
+        }
+        Assert.assertEquals(2, loads.get("unknown").intValue());
+    }
+
+    @Test
+    public void testDeletedCollectionIsDroppedOnReload() throws ArlasException, InterruptedException {
+        CollectionReferenceRegistry.get("deleted");
+        deleted.add("deleted");
+        CollectionReferenceRegistry.refresh("deleted");
+        for (int i = 0; i < 50 && loads.get("deleted") < 2; i++) {
+            Thread.sleep(100);
+        }
+        // the stale reference is served until the reload fails, then the collection is not found
+        for (int i = 0; i < 50; i++) {
+            try {
+                CollectionReferenceRegistry.get("deleted");
+                Thread.sleep(100);
+            } catch (NotFoundException e) {
+                return;
+            }
+        }
+        Assert.fail("NotFoundException expected");
+    }
+
+    @Test
+    public void testInvalidate() throws ArlasException {
+        CollectionReferenceRegistry.get("invalidated");
+        CollectionReferenceRegistry.invalidate("invalidated");
+        CollectionReferenceRegistry.get("invalidated");
+        Assert.assertEquals(2, loads.get("invalidated").intValue());
+    }
+}
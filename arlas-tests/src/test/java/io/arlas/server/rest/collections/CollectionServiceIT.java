@@ -92,6 +92,31 @@ public class CollectionServiceIT extends AbstractTestWithCollection {
                 .then().statusCode(404);
     }
 
+    @Test
+    public void testListFollowsPutAndDelete() throws Exception {
+        Map<String, Object> jsonAsMap = getJsonAsMap();
+        jsonAsMap.put(CollectionReference.INSPIRE_PATH, getInspireJsonAsMap());
+        jsonAsMap.put(CollectionReference.DUBLIN_CORE_PATH, getDublinJsonAsMap());
+
+        // PUT new collection 2
+        given().contentType("application/json").body(jsonAsMap)
+                .when().put(arlasPath + "collections/collection2")
+                .then().statusCode(200);
+
+        // the list is updated without waiting for the refresh of the ARLAS index
+        when().get(arlasPath + "explore/_list")
+                .then().statusCode(200)
+                .body("collection_name", hasItems(equalTo(COLLECTION_NAME), equalTo("collection2")));
+
+        // DELETE collection 2
+        when().delete(arlasPath + "collections/collection2")
+                .then().statusCode(200);
+
+        when().get(arlasPath + "explore/_list")
+                .then().statusCode(200)
+                .body("collection_name", not(hasItem(equalTo("collection2"))));
+    }
+
     private void getAllCollections(Matcher matcher) throws InterruptedException {
         int cpt = 0;
         while (cpt > 0 && cpt < 5) {
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import io.arlas.server.AbstractTestWithCollection;
+import io.arlas.server.model.request.*;
+import io.restassured.response.ValidatableResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class BatchServiceIT extends AbstractTestWithCollection {
+    protected static BatchRequest batchRequest;
+
+    @Before
+    public void setUpBatchRequest() {
+        batchRequest = new BatchRequest();
+        batchRequest.requests = new ArrayList<>();
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testBatchRequest() throws Exception {
+        Count count = new Count();
+        count.filter = new Filter();
+        add("geodata", count);
+
+        RangeRequest range = new RangeRequest();
+        range.filter = new Filter();
+        range.field = "params.startdate";
+        add("geodata", range);
+
+        Search search = new Search();
+        search.filter = new Filter();
+        search.page = new Page();
+        search.page.size = 5;
+        add("geodata", search);
+
+        post(batchRequest).statusCode(200)
+                .body("responses.size()", equalTo(3))
+                .body("responses[0].result.totalnb", equalTo(595))
+                .body("responses[1].result.min", equalTo(763600f))
+                .body("responses[1].result.max", equalTo(1263600f))
+                .body("responses[2].result.totalnb", equalTo(595))
+                .body("responses[2].result.nbhits", equalTo(5))
+                .body("query_time", notNullValue())
+                .body("total_time", notNullValue());
+    }
+
+    @Test
+    public void testBatchRequestWithErrors() throws Exception {
+        Count count = new Count();
+        count.filter = new Filter();
+        add("unknowncollection", count);
+
+        RangeRequest range = new RangeRequest();
+        range.filter = new Filter();
+        range.field = "params.job";
+        add("geodata", range);
+
+        add("geodata", count);
+
+        post(batchRequest).statusCode(200)
+                .body("responses.size()", equalTo(3))
+                .body("responses[0].error.status", equalTo(404))
+                .body("responses[1].error.status", equalTo(400))
+                .body("responses[2].result.totalnb", equalTo(595));
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- ERROR TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testEmptyBatchRequest() throws Exception {
+        post(batchRequest).statusCode(400);
+    }
+
+    private void add(String collection, Request request) {
+        BatchRequestItem item = new BatchRequestItem();
+        item.collection = collection;
+        item.request = request;
+        batchRequest.requests.add(item);
+    }
+
+    private ValidatableResponse post(BatchRequest request) {
+        return given().contentType("application/json;charset=utf-8").body(request)
+                .when().post(getUrlPath(null))
+                .then();
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        // the collections are given by the items of the batch
+        return arlasPath + "explore/_batch";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import io.arlas.server.AbstractTestWithCollection;
+import org.junit.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ETagServiceIT extends AbstractTestWithCollection {
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testConditionalGet() throws Exception {
+        String etag = given().param("f", "params.job:eq:Architect")
+                .when().get(getUrlPath("geodata") + "/_count")
+                .then().statusCode(200)
+                .extract().header("ETag");
+        assertNotNull(etag);
+
+        given().param("f", "params.job:eq:Architect").header("If-None-Match", etag)
+                .when().get(getUrlPath("geodata") + "/_count")
+                .then().statusCode(304);
+
+        // another request, another representation or another tag gets the whole response
+        String otherEtag = given().param("f", "params.job:eq:Dancer").header("If-None-Match", etag)
+                .when().get(getUrlPath("geodata") + "/_count")
+                .then().statusCode(200)
+                .extract().header("ETag");
+        assertNotEquals(etag, otherEtag);
+        given().param("f", "params.job:eq:Architect").header("If-None-Match", etag)
+                .when().get(getUrlPath("geodata") + "/_search")
+                .then().statusCode(200);
+        given().param("f", "params.job:eq:Architect").header("If-None-Match", "\"unknown\"")
+                .when().get(getUrlPath("geodata") + "/_count")
+                .then().statusCode(200);
+    }
+
+    @Test
+    public void testSameRequestSameTag() throws Exception {
+        String etag = given().param("agg", "term:params.job")
+                .when().get(getUrlPath("geodata") + "/_aggregate")
+                .then().statusCode(200)
+                .extract().header("ETag");
+        assertEquals(etag, given().param("agg", "term:params.job")
+                .when().get(getUrlPath("geodata") + "/_aggregate")
+                .then().statusCode(200)
+                .extract().header("ETag"));
+    }
+
+    @Test
+    public void testUntaggedResponses() throws Exception {
+        // POST requests and errors are not tagged
+        assertNull(given().contentType("application/json;charset=utf-8").body("{}")
+                .when().post(getUrlPath("geodata") + "/_count")
+                .then().statusCode(200)
+                .extract().header("ETag"));
+        assertNull(given().param("f", "params.job:unknownop:Architect")
+                .when().get(getUrlPath("geodata") + "/_count")
+                .then().statusCode(400)
+                .extract().header("ETag"));
+        given().when().get(getUrlPath("unknowncollection") + "/_count")
+                .then().statusCode(404);
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        return arlasPath + "explore/" + collection;
+    }
+}
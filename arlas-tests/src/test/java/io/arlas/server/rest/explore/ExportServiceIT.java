@@ -0,0 +1,97 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import io.arlas.server.AbstractTestWithCollection;
+import io.arlas.server.DataSetTool;
+import io.arlas.server.model.enumerations.OperatorEnum;
+import io.arlas.server.model.request.Expression;
+import io.arlas.server.model.request.Filter;
+import io.arlas.server.model.request.MultiValueFilter;
+import io.arlas.server.model.request.Search;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExportServiceIT extends AbstractTestWithCollection {
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testNdjsonExport() throws Exception {
+        // more hits than in a page of the export
+        String[] lines = given().when().get(getUrlPath("geodata"))
+                .then().statusCode(200).contentType("application/x-ndjson")
+                .extract().asString().split("\n");
+        assertEquals(595, lines.length);
+        assertTrue(Arrays.stream(lines).allMatch(line -> line.startsWith("{") && line.contains("\"md\"")));
+
+        lines = given().param("f", "params.job:eq:" + DataSetTool.jobs[0]).param("include", "params.job")
+                .when().get(getUrlPath("geodata"))
+                .then().statusCode(200)
+                .extract().asString().split("\n");
+        assertTrue(lines.length > 0);
+        assertTrue(Arrays.stream(lines).allMatch(line -> line.contains("\"job\":\"" + DataSetTool.jobs[0] + "\"")));
+    }
+
+    @Test
+    public void testGeojsonSeqExport() throws Exception {
+        Search search = new Search();
+        search.filter = new Filter();
+        search.filter.f = Arrays.asList(new MultiValueFilter<>(new Expression("params.startdate", OperatorEnum.range, "[763600<1013700]")));
+        String[] texts = given().contentType("application/json;charset=utf-8").body(search).param("format", "geojsonseq")
+                .when().post(getUrlPath("geodata"))
+                .then().statusCode(200).contentType("application/geo+json-seq")
+                .extract().asString().split("\n");
+        assertEquals(1, texts.length);
+        assertTrue(texts[0].startsWith("\u001e{\"type\":\"Feature\""));
+    }
+
+    @Test
+    public void testEmptyExport() throws Exception {
+        String export = given().param("f", "params.startdate:lt:0")
+                .when().get(getUrlPath("geodata"))
+                .then().statusCode(200)
+                .extract().asString();
+        assertTrue(export.isEmpty());
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- ERROR TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testInvalidExport() throws Exception {
+        given().param("f", "params.job:unknownop:" + DataSetTool.jobs[0])
+                .when().get(getUrlPath("geodata"))
+                .then().statusCode(400);
+        given().when().get(getUrlPath("unknowncollection"))
+                .then().statusCode(404);
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        return arlasPath + "explore/" + collection + "/_export";
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.arlas.server.AbstractTestWithCollection;
+import io.arlas.server.DataSetTool;
+import io.arlas.server.model.request.AggregationsRequest;
+import io.arlas.server.model.request.Search;
+import io.arlas.server.utils.ParamsParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+
+public class ProtobufServiceIT extends AbstractTestWithCollection {
+
+    private static final String PROTOBUF = "application/x-protobuf";
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testSearch() throws Exception {
+        byte[] hits = given().accept(PROTOBUF).param("size", 5)
+                .when().get(getUrlPath("geodata") + "/_search")
+                .then().statusCode(200).contentType(PROTOBUF)
+                .extract().asByteArray();
+        CodedInputStream in = CodedInputStream.newInstance(hits);
+        List<Integer> fields = new ArrayList<>();
+        String collection = null;
+        long totalnb = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            fields.add(WireFormat.getTagFieldNumber(tag));
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1: collection = in.readString(); break;
+                case 4: totalnb = in.readInt64(); break;
+                default: in.skipField(tag);
+            }
+        }
+        assertEquals("geodata", collection);
+        assertEquals(595, totalnb);
+        assertEquals(5, Collections.frequency(fields, 2));
+
+        Search search = new Search();
+        given().accept(PROTOBUF).contentType("application/json;charset=utf-8").body(search)
+                .when().post(getUrlPath("geodata") + "/_search")
+                .then().statusCode(200).contentType(PROTOBUF);
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        byte[] aggregation = given().accept(PROTOBUF).param("agg", "term:params.job")
+                .when().get(getUrlPath("geodata") + "/_aggregate")
+                .then().statusCode(200).contentType(PROTOBUF)
+                .extract().asByteArray();
+        CodedInputStream in = CodedInputStream.newInstance(aggregation);
+        int elements = 0;
+        long totalnb = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 6: elements++; in.skipField(tag); break;
+                case 13: totalnb = in.readInt64(); break;
+                default: in.skipField(tag);
+            }
+        }
+        assertEquals(595, totalnb);
+        assertEquals(DataSetTool.jobs.length - 1, elements);
+
+        AggregationsRequest aggregationsRequest = new AggregationsRequest();
+        aggregationsRequest.aggregations = ParamsParser.getAggregations(Collections.singletonList("term:params.job"));
+        given().accept(PROTOBUF).contentType("application/json;charset=utf-8").body(aggregationsRequest)
+                .when().post(getUrlPath("geodata") + "/_aggregate")
+                .then().statusCode(200).contentType(PROTOBUF);
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- ERROR TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testInvalidRequest() throws Exception {
+        // errors stay in JSON
+        given().accept(PROTOBUF).param("f", "params.job:unknownop:Actor")
+                .when().get(getUrlPath("geodata") + "/_search")
+                .then().statusCode(400).contentType("application/json");
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        return arlasPath + "explore/" + collection;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import io.arlas.server.AbstractTestWithCollection;
+import io.arlas.server.model.enumerations.OperatorEnum;
+import io.arlas.server.model.request.*;
+import io.restassured.response.ValidatableResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+public class StatsServiceIT extends AbstractTestWithCollection {
+    protected static StatsRequest statsRequest;
+
+    @Before
+    public void setUpStatsRequest() {
+        statsRequest = new StatsRequest();
+        statsRequest.filter = new Filter();
+        statsRequest.fields = Arrays.asList("params.startdate", "params.weight");
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testStatsRequest() throws Exception {
+        handleStatsRequest(post(statsRequest), 595);
+        handleStatsRequest(get("params.startdate,params.weight"), 595);
+        handleStatsRequest(get(Arrays.asList("params.startdate", "params.weight")), 595);
+
+        statsRequest.filter.f = Arrays.asList(new MultiValueFilter<>(new Expression("params.startdate", OperatorEnum.range, "[763600<1013700]")));
+        handleFilteredStatsRequest(post(statsRequest));
+        handleFilteredStatsRequest(get("params.startdate,params.weight", "f", statsRequest.filter.f.get(0).get(0).toString()));
+
+        statsRequest.filter.f = Arrays.asList(new MultiValueFilter<>(new Expression("params.startdate", OperatorEnum.lt, "0")));
+        handleEmptyStatsRequest(post(statsRequest));
+        handleEmptyStatsRequest(get("params.startdate,params.weight", "f", statsRequest.filter.f.get(0).get(0).toString()));
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- ERROR TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testInvalidStatsRequest() throws Exception {
+        statsRequest.fields = Arrays.asList("params.startdate", "params.job");
+        handleInvalidStatsRequest(post(statsRequest));
+        handleInvalidStatsRequest(get("params.startdate,params.job"));
+
+        statsRequest.fields = null;
+        handleInvalidStatsRequest(post(statsRequest));
+        handleInvalidStatsRequest(given().when().get(getUrlPath("geodata")).then());
+    }
+
+    private void handleStatsRequest(ValidatableResponse then, int count) {
+        then.statusCode(200)
+                .body("totalnb", equalTo(count))
+                .body("stats[0].field", equalTo("params.startdate"))
+                .body("stats[0].count", equalTo(count))
+                .body("stats[0].min", equalTo(763600f))
+                .body("stats[0].max", equalTo(1263600f))
+                .body("stats[1].field", equalTo("params.weight"));
+    }
+
+    private void handleFilteredStatsRequest(ValidatableResponse then) {
+        then.statusCode(200)
+                .body("totalnb", equalTo(1))
+                .body("stats[0].count", equalTo(1))
+                .body("stats[0].cardinality", equalTo(1))
+                .body("stats[1].min", equalTo(-6000f))
+                .body("stats[1].max", equalTo(-6000f));
+    }
+
+    private void handleEmptyStatsRequest(ValidatableResponse then) {
+        then.statusCode(200)
+                .body("totalnb", equalTo(0))
+                .body("stats[0].count", equalTo(0))
+                .body("stats[0].min", equalTo(null))
+                .body("stats[0].max", equalTo(null))
+                .body("stats[0].avg", equalTo(null));
+    }
+
+    private void handleInvalidStatsRequest(ValidatableResponse then) {
+        then.statusCode(400);
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        return arlasPath + "explore/" + collection + "/_stats";
+    }
+
+    private ValidatableResponse post(Request request) {
+        return given().contentType("application/json;charset=utf-8").body(request)
+                .when().post(getUrlPath("geodata"))
+                .then();
+    }
+
+    private ValidatableResponse get(Object paramValue) {
+        return given().param("field", paramValue)
+                .when().get(getUrlPath("geodata"))
+                .then();
+    }
+
+    private ValidatableResponse get(String field, String param, Object paramValue) {
+        return given().param("field", field).param(param, paramValue)
+                .when().get(getUrlPath("geodata"))
+                .then();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.explore;
+
+import io.arlas.server.AbstractTestWithCollection;
+import org.junit.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VectorTileServiceIT extends AbstractTestWithCollection {
+
+    private static final String MVT = "application/vnd.mapbox-vector-tile";
+
+    //----------------------------------------------------------------
+    //----------------------- SUCCESS TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testGeosearchTile() throws Exception {
+        byte[] tile = given().param("size", 100)
+                .when().get(getUrlPath("geodata", "_geosearch", 0, 0, 0))
+                .then().statusCode(200).contentType(MVT)
+                .extract().asByteArray();
+        assertTrue(tile.length > 0);
+
+        // same filter pipeline as the GeoJSON tiles
+        tile = given().param("f", "params.startdate:lt:0")
+                .when().get(getUrlPath("geodata", "_geosearch", 0, 0, 0))
+                .then().statusCode(200).contentType(MVT)
+                .extract().asByteArray();
+        assertEquals(0, tile.length);
+
+        tile = given().param("pwithin", "170,80,175,85")
+                .when().get(getUrlPath("geodata", "_geosearch", 2, 0, 0))
+                .then().statusCode(200)
+                .extract().asByteArray();
+        assertEquals(0, tile.length);
+    }
+
+    @Test
+    public void testGeoaggregateTile() throws Exception {
+        byte[] tile = given()
+                .when().get(getUrlPath("geodata", "_geoaggregate", 0, 0, 0))
+                .then().statusCode(200).contentType(MVT)
+                .extract().asByteArray();
+        assertTrue(tile.length > 0);
+
+        tile = given().param("agg", "geohash:geo_params.centroid:interval-3")
+                .when().get(getUrlPath("geodata", "_geoaggregate", 1, 1, 1))
+                .then().statusCode(200).contentType(MVT)
+                .extract().asByteArray();
+        assertTrue(tile.length > 0);
+    }
+
+    //----------------------------------------------------------------
+    //----------------------- ERROR TESTS --------------------------
+    //----------------------------------------------------------------
+    @Test
+    public void testInvalidTile() throws Exception {
+        given().param("f", "params.job:unknownop:Actor")
+                .when().get(getUrlPath("geodata", "_geosearch", 0, 0, 0))
+                .then().statusCode(400);
+        given().when().get(getUrlPath("unknowncollection", "_geoaggregate", 0, 0, 0))
+                .then().statusCode(404);
+    }
+
+    @Override
+    protected String getUrlPath(String collection) {
+        return arlasPath + "explore/" + collection;
+    }
+
+    private String getUrlPath(String collection, String service, int z, int x, int y) {
+        return getUrlPath(collection) + "/" + service + "/" + z + "/" + x + "/" + y + ".mvt";
+    }
+}
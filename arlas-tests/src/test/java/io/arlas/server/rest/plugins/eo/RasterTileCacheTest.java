@@ -0,0 +1,203 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import com.sun.net.httpserver.HttpServer;
+import io.arlas.server.app.RasterTileConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RasterTileCacheTest {
+
+    private static final String URL = "http://localhost/tiles/1/0/0.png";
+
+    private Path directory;
+    private AtomicInteger loaded;
+    private byte[] png;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("raster-tile-cache");
+        loaded = new AtomicInteger();
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 8, 16);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        png = out.toByteArray();
+        configure(directory.toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        configure(null);
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testMemoryHit() throws IOException {
+        BufferedImage first = RasterTileCache.get(URL, this::load);
+        BufferedImage second = RasterTileCache.get(URL, this::load);
+        Assert.assertEquals(1, loaded.get());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(Color.RED.getRGB(), second.getRGB(0, 0));
+        Assert.assertEquals(0, second.getRGB(15, 0));
+    }
+
+    @Test
+    public void testDiskHit() throws IOException {
+        RasterTileCache.get(URL, this::load);
+        RasterTileCache.invalidateAll();
+        BufferedImage image = RasterTileCache.get(URL, this::load);
+        Assert.assertEquals(1, loaded.get());
+        Assert.assertEquals(Color.RED.getRGB(), image.getRGB(0, 0));
+        Assert.assertEquals(0, image.getRGB(15, 0));
+    }
+
+    @Test
+    public void testDiskExpiry() throws IOException {
+        RasterTileCache.get(URL, this::load);
+        RasterTileCache.invalidateAll();
+        for (File file : directory.toFile().listFiles()) {
+            Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        }
+        RasterTileCache.get(URL, this::load);
+        Assert.assertEquals(2, loaded.get());
+    }
+
+    @Test
+    public void testNoDiskTier() throws IOException {
+        configure(null);
+        RasterTileCache.get(URL, this::load);
+        RasterTileCache.invalidateAll();
+        RasterTileCache.get(URL, this::load);
+        Assert.assertEquals(2, loaded.get());
+        Assert.assertEquals(0, directory.toFile().listFiles().length);
+    }
+
+    @Test
+    public void testFetchStoreAndReread() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/tiles", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(200, png.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(png);
+            }
+        });
+        server.start();
+        try {
+            URL url = new URL("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/tiles/1/0/0.png");
+            BufferedImage fetched = RasterTileFetcher.read(url);
+            Assert.assertEquals(1, requests.get());
+            Assert.assertEquals(Color.RED.getRGB(), fetched.getRGB(0, 0));
+            // stored encoded on disk
+            File[] files = directory.toFile().listFiles();
+            Assert.assertEquals(1, files.length);
+            Assert.assertArrayEquals(png, Files.readAllBytes(files[0].toPath()));
+            // read back memory-mapped once evicted from memory, without fetching it again
+            RasterTileCache.invalidateAll();
+            BufferedImage reread = RasterTileFetcher.read(url);
+            Assert.assertEquals(1, requests.get());
+            Assert.assertNotSame(fetched, reread);
+            Assert.assertEquals(Color.RED.getRGB(), reread.getRGB(0, 0));
+            Assert.assertEquals(0, reread.getRGB(15, 0));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testSweepDeletesExpiredTiles() throws IOException {
+        RasterTileCache.get(URL, this::load);
+        RasterTileCache.get(URL + "?recent", this::load);
+        Path expired = directory.toFile().listFiles()[0].toPath();
+        Files.setLastModifiedTime(expired, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        RasterTileCache.sweep();
+        Assert.assertFalse(Files.exists(expired));
+        Assert.assertEquals(1, directory.toFile().listFiles().length);
+    }
+
+    @Test
+    public void testSweepBoundsTheDirectory() throws IOException {
+        configure(directory.toString(), 2L * png.length);
+        for (int i = 0; i < 4; i++) {
+            RasterTileCache.get(URL + "?" + i, this::load);
+        }
+        File[] files = directory.toFile().listFiles();
+        Assert.assertEquals(4, files.length);
+        for (int i = 0; i < files.length; i++) {
+            Files.setLastModifiedTime(files[i].toPath(), FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(files.length - i)));
+        }
+        RasterTileCache.sweep();
+        // the oldest tiles are deleted first
+        Assert.assertFalse(files[0].exists());
+        Assert.assertFalse(files[1].exists());
+        Assert.assertTrue(files[2].exists());
+        Assert.assertTrue(files[3].exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnImage() throws IOException {
+        RasterTileCache.get(URL, () -> new byte[]{1, 2, 3});
+    }
+
+    private byte[] load() {
+        loaded.incrementAndGet();
+        return png;
+    }
+
+    private static void configure(String cacheDirectory) throws IOException {
+        configure(cacheDirectory, 1024L * 1024L);
+    }
+
+    private static void configure(String cacheDirectory, long cacheDirectoryMaxWeight) throws IOException {
+        RasterTileConfiguration configuration = new RasterTileConfiguration();
+        configuration.cacheMaxWeight = 1024L * 1024L;
+        configuration.cacheTimeout = 60;
+        configuration.cacheDirectory = cacheDirectory;
+        configuration.cacheDirectoryMaxWeight = cacheDirectoryMaxWeight;
+        RasterTileCache.configure(configuration);
+    }
+}
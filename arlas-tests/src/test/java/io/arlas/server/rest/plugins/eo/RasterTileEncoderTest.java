@@ -0,0 +1,136 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import io.arlas.server.app.RasterTileConfiguration;
+import io.arlas.server.model.enumerations.PngFilterEnum;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class RasterTileEncoderTest {
+
+    private static final int SIZE = 256;
+
+    @After
+    public void tearDown() {
+        configure(1, PngFilterEnum.up);
+    }
+
+    @Test
+    public void testAllFilters() throws IOException {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setRGB(x, y, new Color(x, y, (x * y) % 256, (x + y) % 256).getRGB());
+            }
+        }
+        for (PngFilterEnum filter : PngFilterEnum.values()) {
+            for (int level : new int[]{0, 1, 9}) {
+                configure(level, filter);
+                assertSameImage(image, decode(RasterTileEncoder.encode(image)));
+            }
+        }
+    }
+
+    @Test
+    public void testOtherImageTypes() throws IOException {
+        for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage image = new BufferedImage(SIZE, SIZE / 2, type);
+            Graphics g = image.getGraphics();
+            g.setColor(Color.RED);
+            g.fillRect(0, 0, SIZE / 3, SIZE / 4);
+            g.dispose();
+            assertSameImage(image, decode(RasterTileEncoder.encode(image)));
+        }
+    }
+
+    @Test
+    public void testBuffersOfLargeTilesAreDropped() throws IOException {
+        // noise does not compress: the output grows above the size retained by the threads
+        BufferedImage large = new BufferedImage(4 * SIZE, 4 * SIZE, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < large.getHeight(); y++) {
+            for (int x = 0; x < large.getWidth(); x++) {
+                large.setRGB(x, y, random.nextInt());
+            }
+        }
+        configure(0, PngFilterEnum.none);
+        assertSameImage(large, decode(RasterTileEncoder.encode(large)));
+        // the next tiles of the thread are encoded with new buffers
+        BufferedImage small = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        small.setRGB(1, 1, Color.RED.getRGB());
+        assertSameImage(small, decode(RasterTileEncoder.encode(small)));
+    }
+
+    @Test
+    public void testSingleColorTiles() throws IOException {
+        BufferedImage transparent = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        byte[] png = RasterTileEncoder.encode(transparent);
+        Assert.assertSame(png, RasterTileEncoder.encode(new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_4BYTE_ABGR)));
+        assertSameImage(transparent, decode(png));
+
+        BufferedImage blue = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = blue.getGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, SIZE, SIZE);
+        g.dispose();
+        png = RasterTileEncoder.encode(blue);
+        Assert.assertSame(png, RasterTileEncoder.encode(blue));
+        Assert.assertNotSame(png, RasterTileEncoder.encode(transparent));
+        assertSameImage(blue, decode(png));
+
+        blue.setRGB(SIZE - 1, SIZE - 1, Color.RED.getRGB());
+        Assert.assertNotSame(png, RasterTileEncoder.encode(blue));
+        assertSameImage(blue, decode(RasterTileEncoder.encode(blue)));
+    }
+
+    private static BufferedImage decode(byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        Assert.assertNotNull(image);
+        return image;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int argb = expected.getRGB(x, y);
+                // the color of the fully transparent pixels does not matter
+                Assert.assertEquals("pixel " + x + "," + y, (argb >>> 24) == 0 ? 0 : argb, (actual.getRGB(x, y) >>> 24) == 0 ? 0 : actual.getRGB(x, y));
+            }
+        }
+    }
+
+    private static void configure(int level, PngFilterEnum filter) {
+        RasterTileConfiguration configuration = new RasterTileConfiguration();
+        configuration.pngCompressionLevel = level;
+        configuration.pngFilter = filter;
+        RasterTileEncoder.configure(configuration);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.rest.plugins.eo;
+
+import cyclops.control.Try;
+import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.InternalServerErrorException;
+import io.arlas.server.utils.Tile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedList;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RasterTileStackerTest {
+
+    private static final int SIZE = 16;
+
+    @Test
+    public void testStackInPriorityOrder() throws ArlasException {
+        AtomicInteger fetched = new AtomicInteger();
+        Queue<TileProvider<RasterTile>> providers = new LinkedList<>();
+        // left half in red, then the left three quarters in blue, then the left half in green
+        providers.add(provider(fetched, Color.RED, SIZE / 2));
+        providers.add(provider(fetched, Color.BLUE, 3 * SIZE / 4));
+        providers.add(provider(fetched, Color.GREEN, SIZE / 2));
+        RasterTile tile = new RasterTileStacker().stack(providers).prefetch(2).upTo(new RasterTileStacker.Percentage(100))
+                .on(new Tile(0, 0, 1)).orElse(Optional.empty()).get();
+        Assert.assertEquals(3, fetched.get());
+        Assert.assertEquals(Color.GREEN.getRGB(), tile.getImg().getRGB(0, 0));
+        Assert.assertEquals(Color.BLUE.getRGB(), tile.getImg().getRGB(3 * SIZE / 4 - 1, 0));
+        Assert.assertEquals(0, tile.getImg().getRGB(SIZE - 1, 0));
+    }
+
+    @Test
+    public void testStopWhenCovered() throws ArlasException {
+        AtomicInteger fetched = new AtomicInteger();
+        Queue<TileProvider<RasterTile>> providers = new LinkedList<>();
+        providers.add(provider(fetched, Color.RED, SIZE));
+        for (int i = 0; i < 10; i++) {
+            providers.add(provider(fetched, Color.BLUE, SIZE));
+        }
+        RasterTile tile = new RasterTileStacker().stack(providers).prefetch(0).upTo(new RasterTileStacker.Percentage(70))
+                .on(new Tile(0, 0, 1)).orElse(Optional.empty()).get();
+        Assert.assertEquals(1, fetched.get());
+        Assert.assertEquals(10, providers.size());
+        Assert.assertEquals(Color.RED.getRGB(), tile.getImg().getRGB(0, 0));
+    }
+
+    @Test
+    public void testFailure() throws ArlasException {
+        Queue<TileProvider<RasterTile>> providers = new LinkedList<>();
+        providers.add(provider(new AtomicInteger(), Color.RED, SIZE / 2));
+        providers.add(where -> Try.failure(new InternalServerErrorException("unreachable")));
+        providers.add(provider(new AtomicInteger(), Color.RED, SIZE / 2));
+        Assert.assertTrue(new RasterTileStacker().stack(providers).on(new Tile(0, 0, 1)).isFailure());
+    }
+
+    private static TileProvider<RasterTile> provider(AtomicInteger fetched, Color color, int width) {
+        return where -> {
+            fetched.incrementAndGet();
+            BufferedImage img = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics g = img.getGraphics();
+            g.setColor(color);
+            g.fillRect(0, 0, width, SIZE);
+            g.dispose();
+            return Try.withCatch(() -> Optional.of(new RasterTile(where.getxTile(), where.getyTile(), where.getzTile(), img)), ArlasException.class);
+        };
+    }
+}
@@ -22,6 +22,8 @@ package io.arlas.server.rest.tag;
 import io.arlas.server.AbstractTestContext;
 import io.arlas.server.AbstractTestWithCollection;
 import io.arlas.server.CollectionTool;
+import io.arlas.server.DataSetTool;
+import io.arlas.server.model.CollectionReferenceParameters;
 import io.arlas.server.model.request.Tag;
 import io.arlas.server.model.request.TagRequest;
 import io.arlas.server.rest.explore.SearchServiceIT;
@@ -39,13 +41,16 @@ import java.io.IOException;
 import java.util.function.Function;
 
 import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.nullValue;
 
 public class TagIT extends AbstractTestContext {
     private static final String TAG_SUFFIX = "/_tag";
     private static final String UNTAG_SUFFIX = "/_untag";
+    private static final String BOUNDED_COLLECTION_NAME = "geodata_bounded";
 
     Logger LOGGER = LoggerFactory.getLogger(TagIT.class);
 
@@ -235,6 +240,101 @@ public class TagIT extends AbstractTestContext {
         ;
     }
 
+    @Test
+    public void testAsyncTag() throws InterruptedException {
+        TagRequest tr = new TagRequest();
+        tr.tag = new Tag();
+        tr.tag.path = "params.tags";
+        tr.tag.value = "async";
+
+        String taskId = given().contentType("application/json")
+                .body(tr)
+                .when()
+                .post(getUrlPath(CollectionTool.COLLECTION_NAME) + TAG_SUFFIX + "?async=true")
+                .then()
+                .statusCode(202)
+                .body("completed", equalTo(false))
+                .body("action", equalTo("ADD"))
+                .extract().path("id");
+
+        boolean completed = doUntil(o ->
+                        given()
+                                .get(getUrlPath(CollectionTool.COLLECTION_NAME) + TAG_SUFFIX + "/" + taskId)
+                                .then()
+                                .statusCode(200)
+                                .extract().path("completed")
+                , equalTo(true), 10, 1);
+        Assert.assertTrue("the tag task is not completed", completed);
+
+        given()
+                .get(getUrlPath(CollectionTool.COLLECTION_NAME) + TAG_SUFFIX + "/" + taskId)
+                .then()
+                .statusCode(200)
+                .body("response.failed", equalTo(0))
+                .body("response.updated", greaterThan(0));
+
+        boolean success = doUntil(o ->
+                        given()
+                                .get(new SearchServiceIT().getUrlPath(CollectionTool.COLLECTION_NAME))
+                                .then()
+                                .extract().path("hits.data.params.tags[0]")
+                , everyItem(equalTo("async")), 10, 5);
+        Assert.assertTrue("hits.data.params.tags are not tagged", success);
+
+        // unknown task
+        given()
+                .get(getUrlPath(CollectionTool.COLLECTION_NAME) + TAG_SUFFIX + "/unknown")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    public void testAsyncTagWithBoundedUpdates() throws InterruptedException {
+        // a collection of the same data set whose updates are limited
+        CollectionReferenceParameters params = new CollectionReferenceParameters();
+        params.indexName = DataSetTool.DATASET_INDEX_NAME;
+        params.typeName = DataSetTool.DATASET_TYPE_NAME;
+        params.idPath = DataSetTool.DATASET_ID_PATH;
+        params.geometryPath = DataSetTool.DATASET_GEOMETRY_PATH;
+        params.centroidPath = DataSetTool.DATASET_CENTROID_PATH;
+        params.timestampPath = DataSetTool.DATASET_TIMESTAMP_PATH;
+        params.taggableFields = DataSetTool.DATASET_TAGGABLE_FIELDS;
+        params.update_max_hits = 10;
+        given().contentType("application/json").body(params).when().put(arlasPath + "collections/" + BOUNDED_COLLECTION_NAME).then().statusCode(200);
+
+        TagRequest tr = new TagRequest();
+        tr.tag = new Tag();
+        tr.tag.path = "params.tags";
+        tr.tag.value = "bounded";
+
+        String taskId = given().contentType("application/json")
+                .body(tr)
+                .when()
+                .post(getUrlPath(BOUNDED_COLLECTION_NAME) + TAG_SUFFIX + "?async=true")
+                .then()
+                .statusCode(202)
+                .extract().path("id");
+
+        boolean completed = doUntil(o ->
+                        given()
+                                .get(getUrlPath(BOUNDED_COLLECTION_NAME) + TAG_SUFFIX + "/" + taskId)
+                                .then()
+                                .statusCode(200)
+                                .extract().path("completed")
+                , equalTo(true), 10, 1);
+        Assert.assertTrue("the tag task is not completed", completed);
+
+        // the limit is not split between slices: exactly update_max_hits documents are updated
+        given()
+                .get(getUrlPath(BOUNDED_COLLECTION_NAME) + TAG_SUFFIX + "/" + taskId)
+                .then()
+                .statusCode(200)
+                .body("response.failed", equalTo(0))
+                .body("response.updated", equalTo(10));
+
+        when().delete(arlasPath + "collections/" + BOUNDED_COLLECTION_NAME).then().statusCode(200);
+    }
+
     public <R> boolean doUntil(Function<R, Object> function, Matcher matcher, int tries, int waitseconds) throws InterruptedException {
         for (int i = 0; i < tries; i++) {
             Thread.sleep(waitseconds * 1000);
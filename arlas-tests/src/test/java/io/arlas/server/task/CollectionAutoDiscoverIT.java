@@ -26,6 +26,7 @@ import org.junit.Test;
 
 import static io.restassured.RestAssured.when;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 
 public class CollectionAutoDiscoverIT extends AbstractTestWithDataSet {
@@ -61,6 +62,12 @@ public class CollectionAutoDiscoverIT extends AbstractTestWithDataSet {
             // GET all collections
             getAllCollections(hasSize(1));
 
+            // run time and discovered collections are reported
+            when().get("/admin/metrics")
+                    .then().statusCode(200)
+                    .body("timers.'io.arlas.server.task.CollectionAutoDiscover.runs'.count", greaterThanOrEqualTo(2))
+                    .body("counters.'io.arlas.server.task.CollectionAutoDiscover.discovered'.count", greaterThanOrEqualTo(1));
+
             // DELETE collection
             when().delete(arlasPath + "collections/" + DataSetTool.DATASET_INDEX_NAME + "-" + DataSetTool.DATASET_TYPE_NAME)
                     .then().statusCode(200);
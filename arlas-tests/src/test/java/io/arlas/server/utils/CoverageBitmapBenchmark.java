@@ -0,0 +1,92 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the coverage of a stack of raster tiles computed by scanning the merged image with getRGB after each merge,
+ * as the stacker used to, with the CoverageBitmap of the layers. Not a test: run its main method, e.g. from the IDE.
+ */
+public class CoverageBitmapBenchmark {
+
+    private static final int SIZE = 256;
+    private static final int LAYERS = 4;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) {
+        BufferedImage[] layers = new BufferedImage[LAYERS];
+        for (int i = 0; i < LAYERS; i++) {
+            // quarters of the tile, with an overlap
+            layers[i] = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+            CoverageBitmapTest.fill(layers[i], new Color(255, 0, 0, 200), i * SIZE / LAYERS, 0, SIZE / LAYERS + 16, SIZE);
+        }
+        long sink = 0;
+        for (int sampling : new int[]{1, 10}) {
+            for (int round = 0; round < 2; round++) {
+                boolean warmup = round == 0;
+                int iterations = warmup ? WARMUP : ITERATIONS;
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += rgbStack(layers, sampling);
+                }
+                long rgb = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    sink += bitmapStack(layers, sampling);
+                }
+                long bitmap = System.nanoTime() - start;
+                if (!warmup) {
+                    System.out.printf("%d layers of %dx%d, sampling %d: getRGB scan %.3f ms per stack, bitmap %.3f ms per stack%n",
+                            LAYERS, SIZE, SIZE, sampling, rgb / 1e6 / iterations, bitmap / 1e6 / iterations);
+                }
+            }
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static int rgbStack(BufferedImage[] layers, int sampling) {
+        BufferedImage merged = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        int coverage = 0;
+        for (BufferedImage layer : layers) {
+            Graphics g = merged.getGraphics();
+            g.drawImage(layer, 0, 0, null);
+            g.dispose();
+            coverage = CoverageBitmapTest.rgbCoverage(merged, sampling);
+        }
+        return coverage;
+    }
+
+    private static int bitmapStack(BufferedImage[] layers, int sampling) {
+        BufferedImage merged = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, sampling);
+        int coverage = 0;
+        for (BufferedImage layer : layers) {
+            Rectangle r = bitmap.add(layer).getBounds();
+            Graphics g = merged.getGraphics();
+            g.drawImage(layer.getSubimage(r.x, r.y, r.width, r.height), r.x, r.y, null);
+            g.dispose();
+            coverage = bitmap.coverage();
+        }
+        return coverage;
+    }
+}
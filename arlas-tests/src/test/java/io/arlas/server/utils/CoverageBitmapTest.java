@@ -0,0 +1,127 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+public class CoverageBitmapTest {
+
+    private static final int SIZE = 256;
+
+    @Test
+    public void testSameCoverageAsRgbScan() {
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_GRAY};
+        for (int type : types) {
+            for (int sampling : new int[]{1, 3, 10}) {
+                BufferedImage image = new BufferedImage(SIZE, SIZE, type);
+                fill(image, new Color(255, 0, 0, 128), 10, 20, 100, 50);
+                CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, sampling);
+                bitmap.add(image);
+                Assert.assertEquals("type " + type + ", sampling " + sampling, rgbCoverage(image, sampling), bitmap.coverage());
+                Assert.assertEquals(rgbCoverage(image, sampling), ImageUtil.coverage(image, sampling));
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedImage() {
+        byte[] levels = {0, (byte) 255};
+        IndexColorModel palette = new IndexColorModel(8, 2, levels, levels, levels, new byte[]{0, (byte) 255});
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        for (int y = 0; y < SIZE / 2; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.getRaster().setSample(x, y, 0, 1);
+            }
+        }
+        CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, 1);
+        CoverageBitmap.Layer layer = bitmap.add(image);
+        Assert.assertEquals(50, bitmap.coverage());
+        Assert.assertEquals(new Rectangle(0, 0, SIZE, SIZE / 2), layer.getBounds());
+    }
+
+    @Test
+    public void testSubImage() {
+        BufferedImage image = new BufferedImage(2 * SIZE, 2 * SIZE, BufferedImage.TYPE_INT_ARGB);
+        fill(image, Color.RED, SIZE, SIZE, SIZE / 2, SIZE);
+        BufferedImage sub = image.getSubimage(SIZE, SIZE, SIZE, SIZE);
+        CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, 1);
+        CoverageBitmap.Layer layer = bitmap.add(sub);
+        Assert.assertEquals(rgbCoverage(sub, 1), bitmap.coverage());
+        Assert.assertEquals(new Rectangle(0, 0, SIZE / 2, SIZE), layer.getBounds());
+    }
+
+    @Test
+    public void testStackedLayers() {
+        BufferedImage left = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        fill(left, Color.RED, 0, 0, SIZE / 2, SIZE);
+        BufferedImage middle = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_4BYTE_ABGR);
+        fill(middle, Color.BLUE, SIZE / 4, 0, SIZE / 2, SIZE);
+        CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, 2);
+        CoverageBitmap.Layer layer = bitmap.add(left);
+        Assert.assertEquals(50, bitmap.coverage());
+        Assert.assertFalse(layer.isOpaque());
+        layer = bitmap.add(middle);
+        Assert.assertEquals(75, bitmap.coverage());
+        Assert.assertEquals(new Rectangle(SIZE / 4, 0, SIZE / 2, SIZE), layer.getBounds());
+    }
+
+    @Test
+    public void testOpaqueAndEmptyLayers() {
+        CoverageBitmap bitmap = new CoverageBitmap(SIZE, SIZE, 1);
+        CoverageBitmap.Layer layer = bitmap.add(new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB));
+        Assert.assertTrue(layer.isEmpty());
+        Assert.assertFalse(layer.isOpaque());
+        Assert.assertEquals(0, bitmap.coverage());
+        layer = bitmap.add(new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB));
+        Assert.assertTrue(layer.isOpaque());
+        Assert.assertEquals(100, bitmap.coverage());
+        BufferedImage translucent = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        fill(translucent, new Color(0, 0, 255, 128), 0, 0, SIZE, SIZE);
+        Assert.assertFalse(bitmap.add(translucent).isOpaque());
+    }
+
+    /**
+     * The coverage of the image scanned with getRGB, as the stacker used to compute it.
+     */
+    static int rgbCoverage(BufferedImage img, int sampling) {
+        int count = 0;
+        for (int y = 0; y < img.getHeight(); y += sampling) {
+            for (int x = 0; x < img.getWidth(); x += sampling) {
+                if ((img.getRGB(x, y) >> 24) != 0x00) {
+                    count++;
+                }
+            }
+        }
+        return (100 * count) / ((img.getHeight() / sampling) * (img.getWidth() / sampling));
+    }
+
+    static void fill(BufferedImage image, Color color, int x, int y, int width, int height) {
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(color);
+        g.fillRect(x, y, width, height);
+        g.dispose();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.arlas.server.model.CollectionReferenceParameters;
+import io.arlas.server.model.RasterTileURL;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class FieldPathTest {
+
+    private static final String SOURCE = "{\"id\":\"A1\",\"params\":{\"job\":\"Coder\",\"nothing\":null,\"tags\":[{\"id\":1}]},\"geo\":{\"geometry\":{\"type\":\"Point\"}}}";
+
+    @Test
+    public void testGet() throws IOException {
+        Map<String, Object> source = read();
+        for (String path : new String[]{"id", "params.job", "params.nothing", "params.nothing.below", "params.tags", "params.tags.id",
+                "geo.geometry", "geo.geometry.type", "unknown", "params.unknown.below", "", "params."}) {
+            Assert.assertEquals(path, MapExplorer.getObjectFromPath(path, source), FieldPath.of(path).get(source));
+        }
+        Assert.assertEquals("Coder", FieldPath.of("params.job").get(source));
+        Assert.assertSame(source, FieldPath.of(null).get(source));
+    }
+
+    @Test
+    public void testWithout() throws IOException {
+        Map<String, Object> source = read();
+        Map<String, Object> withoutGeometry = FieldPath.of("geo.geometry").without(source);
+        Assert.assertFalse(((Map) withoutGeometry.get("geo")).containsKey("geometry"));
+        Assert.assertFalse(FieldPath.of("id").without(source).containsKey("id"));
+        Assert.assertSame(source.get("params"), withoutGeometry.get("params"));
+        Assert.assertSame(source, FieldPath.of("params.tags.id").without(source));
+        Assert.assertSame(source, FieldPath.of("unknown.field").without(source));
+        // the source is left untouched
+        Assert.assertEquals(read(), source);
+    }
+
+    @Test
+    public void testCompiledPathIsReused() {
+        FieldPath compiled = FieldPath.of("params.job");
+        Assert.assertSame(compiled, FieldPath.of("params.job", compiled));
+        Assert.assertEquals("params.city", FieldPath.of("params.city", compiled).path);
+        Assert.assertNull(FieldPath.of(null, compiled));
+    }
+
+    @Test
+    public void testCollectionPathsAreCompiledOnce() {
+        CollectionReferenceParameters params = new CollectionReferenceParameters();
+        Assert.assertNull(params.getRasterTileIdFieldPath());
+        params.rasterTileURL = new RasterTileURL("http://tiles/{id}/{z}/{x}/{y}.png", 0, 18, false);
+        Assert.assertSame(params.getRasterTileIdFieldPath(), params.getRasterTileIdFieldPath());
+        Assert.assertEquals("id", params.getRasterTileIdFieldPath().path);
+
+        List<FieldPath> sortPaths = params.getSortFieldPaths("params.job,id");
+        Assert.assertSame(sortPaths, params.getSortFieldPaths("params.job,id"));
+        Assert.assertEquals(Arrays.asList("params.job", "id"), sortPaths.stream().map(fieldPath -> fieldPath.path).collect(Collectors.toList()));
+        Assert.assertEquals("params.city", params.getSortFieldPaths("params.city").get(0).path);
+    }
+
+    private Map<String, Object> read() throws IOException {
+        return new ObjectMapper().readValue(SOURCE, new TypeReference<Map<String, Object>>(){});
+    }
+}
@@ -20,13 +20,20 @@
 package io.arlas.server.utils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.arlas.server.exceptions.ArlasException;
+import io.arlas.server.exceptions.NotImplementedException;
+import org.geojson.GeoJsonObject;
+import org.geojson.LngLatAlt;
 import org.geojson.Point;
+import org.geojson.Polygon;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class GeoTypeMapperTest {
@@ -50,4 +57,31 @@ public class GeoTypeMapperTest {
         assertTrue(GeoTypeMapper.getGeoJsonObject(pointMap).equals(refPoint));
     }
 
+    @Test
+    public void testGetGeoJsonShape() throws ArlasException, IOException {
+        String[] shapes = {
+                "{\"type\":\"Point\",\"coordinates\":[-71.34,41.12]}",
+                "{\"type\":\"Point\",\"coordinates\":[-71.34,41.12,10.5]}",
+                "{\"type\":\"MultiPoint\",\"coordinates\":[[-71.34,41.12],[-71,41]]}",
+                "{\"type\":\"LineString\",\"coordinates\":[[-71.34,41.12],[-71,41]]}",
+                "{\"type\":\"MultiLineString\",\"coordinates\":[[[-71.34,41.12],[-71,41]],[[10,20],[11,21]]]}",
+                "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,10],[0,0]],[[2,2],[4,2],[4,4],[2,2]]]}",
+                "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[10,0],[10,10],[0,0]]],[[[20,20],[30,20],[30,30],[20,20]]]]}",
+                "{\"type\":\"GeometryCollection\",\"geometries\":[{\"type\":\"Point\",\"coordinates\":[1,2]},{\"type\":\"LineString\",\"coordinates\":[[1,2],[3,4]]}]}"
+        };
+        ObjectMapper mapper = new ObjectMapper();
+        for (String shape : shapes) {
+            assertEquals(shape, mapper.readValue(shape, GeoJsonObject.class), GeoTypeMapper.getGeoJsonObject(mapper.readValue(shape, HashMap.class)));
+        }
+        // types as accepted by Elasticsearch
+        assertEquals(new Point(-71.34, 41.12), GeoTypeMapper.getGeoJsonObject(mapper.readValue("{\"type\":\"point\",\"coordinates\":[-71.34,41.12]}", HashMap.class)));
+        Polygon envelope = new Polygon(new LngLatAlt(-10, 20), new LngLatAlt(-10, 5), new LngLatAlt(15, 5), new LngLatAlt(15, 20), new LngLatAlt(-10, 20));
+        assertEquals(envelope, GeoTypeMapper.getGeoJsonObject(mapper.readValue("{\"type\":\"envelope\",\"coordinates\":[[-10,20],[15,5]]}", HashMap.class)));
+    }
+
+    @Test(expected = NotImplementedException.class)
+    public void testGetGeoJsonShapeWithUnsupportedType() throws ArlasException, IOException {
+        GeoTypeMapper.getGeoJsonObject(new ObjectMapper().readValue("{\"type\":\"circle\",\"coordinates\":[-71.34,41.12],\"radius\":\"100m\"}", HashMap.class));
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+public class JsonSourceFilterTest {
+
+    private static final String SOURCE = "{\"id\":\"A1\",\"params\":{\"job\":\"Coder\",\"date\":1009800,\"tags\":[{\"id\":1},{\"id\":2}]}," +
+            "\"geo\":{\"centroid\":\"20,10\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[10,20]}}}";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testCapture() throws IOException {
+        Map<String, Object> captured = new HashMap<>();
+        JsonSourceFilter.filter(new BytesArray(SOURCE), Collections.emptySet(),
+                new HashSet<>(Arrays.asList("id", "params.date", "geo.centroid", "geo.geometry", "params.tags.id", "unknown")),
+                captured);
+        Assert.assertEquals("A1", captured.get("id"));
+        Assert.assertEquals(1009800, captured.get("params.date"));
+        Assert.assertEquals("20,10", captured.get("geo.centroid"));
+        Assert.assertEquals("Point", ((Map) captured.get("geo.geometry")).get("type"));
+        // paths do not go through arrays
+        Assert.assertFalse(captured.containsKey("params.tags.id"));
+        Assert.assertFalse(captured.containsKey("unknown"));
+    }
+
+    @Test
+    public void testCaptureWithinCapturedValue() throws IOException {
+        Map<String, Object> captured = new HashMap<>();
+        JsonSourceFilter.filter(new BytesArray(SOURCE), Collections.emptySet(), new HashSet<>(Arrays.asList("params", "params.job")), captured);
+        Assert.assertEquals("Coder", captured.get("params.job"));
+        Assert.assertEquals("Coder", ((Map) captured.get("params")).get("job"));
+    }
+
+    @Test
+    public void testCaptureWithinExcludedValue() throws IOException {
+        Map<String, Object> captured = new HashMap<>();
+        Map<String, Object> data = mapper.readValue(filter(Collections.singleton("geo"),
+                new HashSet<>(Arrays.asList("geo.centroid", "id")), captured, false), new TypeReference<Map<String, Object>>(){});
+        Assert.assertEquals("20,10", captured.get("geo.centroid"));
+        Assert.assertEquals("A1", captured.get("id"));
+        Assert.assertFalse(data.containsKey("geo"));
+        Assert.assertEquals("A1", data.get("id"));
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        Map<String, Object> data = mapper.readValue(filter(Collections.singleton("geo.geometry"), Collections.emptySet(), new HashMap<>(), false),
+                new TypeReference<Map<String, Object>>(){});
+        Assert.assertEquals("A1", data.get("id"));
+        Assert.assertEquals("Coder", MapExplorer.getObjectFromPath("params.job", data));
+        Assert.assertEquals(2, ((List) MapExplorer.getObjectFromPath("params.tags", data)).size());
+        Assert.assertEquals("20,10", MapExplorer.getObjectFromPath("geo.centroid", data));
+        Assert.assertFalse(((Map) data.get("geo")).containsKey("geometry"));
+
+        Assert.assertEquals(mapper.readTree(SOURCE), mapper.readTree(filter(Collections.emptySet(), Collections.emptySet(), new HashMap<>(), false)));
+    }
+
+    @Test
+    public void testFilterIsPrettyPrintedByTheGenerator() throws IOException {
+        String json = filter(Collections.emptySet(), new HashSet<>(Arrays.asList("params", "id")), new HashMap<>(), true);
+        Assert.assertTrue(json.contains("\n"));
+        Assert.assertEquals(mapper.readTree(SOURCE), mapper.readTree(json));
+    }
+
+    private static String filter(Set<String> excludedPaths, Set<String> capturedPaths, Map<String, Object> captured, boolean pretty) throws IOException {
+        TokenBuffer tokens = JsonSourceFilter.filter(new BytesArray(SOURCE), excludedPaths, capturedPaths, captured);
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+            if (pretty) {
+                generator.useDefaultPrettyPrinter();
+            }
+            tokens.serialize(generator);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.google.protobuf.WireFormat;
+import io.arlas.server.model.response.*;
+import org.geojson.Point;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class ProtobufEncoderTest {
+
+    @Test
+    public void testHits() throws IOException {
+        Hit hit = new Hit();
+        hit.md = new MD();
+        hit.md.id = "ID_1";
+        hit.md.timestamp = 1000L;
+        hit.md.centroid = new Point(2.5, 45);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("job", "Actor");
+        data.put("age", 42);
+        data.put("tags", Arrays.asList("a", "b"));
+        hit.data = data;
+        Hits hits = new Hits("geodata", Collections.singletonList(hit), 595, null);
+
+        Map<Integer, List<Object>> fields = decode(ProtobufEncoder.message(out -> ProtobufEncoder.writeHits(out, hits)));
+        Assert.assertEquals(Collections.singletonList("geodata"), strings(fields.get(1)));
+        Assert.assertEquals(1L, fields.get(3).get(0));
+        Assert.assertEquals(595L, fields.get(4).get(0));
+        Assert.assertEquals(1, fields.get(2).size());
+
+        Map<Integer, List<Object>> hitFields = decode((byte[]) fields.get(2).get(0));
+        Map<Integer, List<Object>> mdFields = decode((byte[]) hitFields.get(1).get(0));
+        Assert.assertEquals(Collections.singletonList("ID_1"), strings(mdFields.get(1)));
+        Assert.assertEquals(1000L, mdFields.get(2).get(0));
+        Assert.assertNull(mdFields.get(3));
+        Struct centroid = Struct.parseFrom((byte[]) mdFields.get(4).get(0));
+        Assert.assertEquals("Point", centroid.getFieldsOrThrow("type").getStringValue());
+        Assert.assertEquals(45, centroid.getFieldsOrThrow("coordinates").getListValue().getValues(1).getNumberValue(), 0);
+
+        Struct struct = Struct.parseFrom((byte[]) hitFields.get(2).get(0));
+        Assert.assertEquals("Actor", struct.getFieldsOrThrow("job").getStringValue());
+        Assert.assertEquals(42, struct.getFieldsOrThrow("age").getNumberValue(), 0);
+        Assert.assertEquals("b", struct.getFieldsOrThrow("tags").getListValue().getValues(1).getStringValue());
+    }
+
+    @Test
+    public void testAggregationResponse() throws IOException {
+        AggregationResponse aggregation = new AggregationResponse();
+        aggregation.totalnb = 595L;
+        AggregationResponse element = new AggregationResponse();
+        element.count = 12L;
+        element.key = 1000;
+        element.keyAsString = "1000";
+        AggregationMetric metric = new AggregationMetric();
+        metric.type = "max";
+        metric.field = "params.age";
+        metric.value = 37.5;
+        element.metrics = Collections.singletonList(metric);
+        aggregation.elements = Arrays.asList(element, new AggregationResponse());
+
+        Map<Integer, List<Object>> fields = decode(ProtobufEncoder.message(out -> ProtobufEncoder.writeAggregationResponse(out, aggregation)));
+        Assert.assertEquals(595L, fields.get(13).get(0));
+        Assert.assertEquals(2, fields.get(6).size());
+        Assert.assertEquals(0, ((byte[]) fields.get(6).get(1)).length);
+
+        Map<Integer, List<Object>> elementFields = decode((byte[]) fields.get(6).get(0));
+        Assert.assertEquals(12L, elementFields.get(2).get(0));
+        Assert.assertEquals(1000, Value.parseFrom((byte[]) elementFields.get(4).get(0)).getNumberValue(), 0);
+        Assert.assertEquals("1000", Value.parseFrom((byte[]) elementFields.get(5).get(0)).getStringValue());
+
+        Map<Integer, List<Object>> metricFields = decode((byte[]) elementFields.get(7).get(0));
+        Assert.assertEquals(Arrays.asList("max"), strings(metricFields.get(1)));
+        Assert.assertEquals(Arrays.asList("params.age"), strings(metricFields.get(2)));
+        Assert.assertEquals(37.5, Value.parseFrom((byte[]) metricFields.get(3).get(0)).getNumberValue(), 0);
+    }
+
+    @Test
+    public void testNullValue() {
+        Value value = ProtobufEncoder.toValue(Collections.singletonMap("empty", null));
+        Assert.assertEquals(Value.KindCase.NULL_VALUE, value.getStructValue().getFieldsOrThrow("empty").getKindCase());
+    }
+
+    /**
+     * Decodes the fields of a message: the varints as longs, the length delimited fields as byte arrays.
+     */
+    private static Map<Integer, List<Object>> decode(byte[] message) throws IOException {
+        Map<Integer, List<Object>> fields = new HashMap<>();
+        CodedInputStream in = CodedInputStream.newInstance(message);
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            Object value;
+            switch (WireFormat.getTagWireType(tag)) {
+                case WireFormat.WIRETYPE_VARINT: value = in.readInt64(); break;
+                case WireFormat.WIRETYPE_LENGTH_DELIMITED: value = in.readByteArray(); break;
+                default: throw new AssertionError("Unexpected wire type " + tag);
+            }
+            fields.computeIfAbsent(WireFormat.getTagFieldNumber(tag), k -> new ArrayList<>()).add(value);
+        }
+        return fields;
+    }
+
+    private static List<String> strings(List<Object> values) {
+        List<String> strings = new ArrayList<>();
+        values.forEach(value -> strings.add(new String((byte[]) value, StandardCharsets.UTF_8)));
+        return strings;
+    }
+}
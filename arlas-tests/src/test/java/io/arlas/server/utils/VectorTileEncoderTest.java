@@ -0,0 +1,217 @@
+/*
+ * Licensed to Gisaïa under one or more contributor
+ * license agreements. See the NOTICE.txt file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Gisaïa licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.arlas.server.utils;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.geojson.LngLatAlt;
+import org.geojson.Point;
+import org.geojson.Polygon;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+public class VectorTileEncoderTest {
+
+    private static final BoundingBox WORLD = GeoTileUtil.getBoundingBox(0, 0, 0);
+
+    @Test
+    public void testPoint() throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(WORLD);
+        encoder.addFeature("hit", Collections.singletonMap("job", "Actor"), new Point(0, 0));
+        Layer layer = decode(encoder.encode()).get(0);
+        Assert.assertEquals("hit", layer.name);
+        Assert.assertEquals(2, layer.version);
+        Assert.assertEquals(VectorTileEncoder.DEFAULT_EXTENT, layer.extent);
+        Assert.assertEquals(Collections.singletonList("job"), layer.keys);
+        Assert.assertEquals(Collections.singletonList("Actor"), layer.values);
+        Assert.assertEquals(1, layer.features.size());
+        Assert.assertEquals(1, layer.features.get(0).type);
+        Assert.assertEquals(Arrays.asList(0, 0), layer.features.get(0).tags);
+        // MoveTo(1), then the zigzag encoded centre of the tile
+        Assert.assertEquals(Arrays.asList(9, 4096, 4096), layer.features.get(0).geometry);
+    }
+
+    @Test
+    public void testOutOfTile() throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(GeoTileUtil.getBoundingBox(1, 1, 2));
+        encoder.addFeature("hit", Collections.emptyMap(), new Point(170, 80));
+        encoder.addFeature("hit", Collections.emptyMap(), null);
+        Assert.assertTrue(encoder.isEmpty());
+        Assert.assertEquals(0, encoder.encode().length);
+    }
+
+    @Test
+    public void testClippedPolygon() throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(GeoTileUtil.getBoundingBox(2, 1, 2));
+        encoder.addFeature("aggregation", Collections.emptyMap(), new Polygon(Arrays.asList(
+                new LngLatAlt(-10, -10), new LngLatAlt(100, -10), new LngLatAlt(100, 70), new LngLatAlt(-10, 70), new LngLatAlt(-10, -10))));
+        Feature feature = decode(encoder.encode()).get(0).features.get(0);
+        Assert.assertEquals(3, feature.type);
+        List<int[]> ring = feature.vertices();
+        Assert.assertEquals(4, ring.size());
+        long area = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            int[] vertex = ring.get(i);
+            int[] next = ring.get((i + 1) % ring.size());
+            Assert.assertTrue(vertex[0] >= -VectorTileEncoder.DEFAULT_BUFFER && vertex[0] <= VectorTileEncoder.DEFAULT_EXTENT + VectorTileEncoder.DEFAULT_BUFFER);
+            Assert.assertTrue(vertex[1] >= -VectorTileEncoder.DEFAULT_BUFFER && vertex[1] <= VectorTileEncoder.DEFAULT_EXTENT + VectorTileEncoder.DEFAULT_BUFFER);
+            area += (long) vertex[0] * next[1] - (long) next[0] * vertex[1];
+        }
+        // exterior rings have a positive area in tile coordinates
+        Assert.assertTrue(area > 0);
+    }
+
+    @Test
+    public void testUnclosedPolygon() throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(WORLD);
+        // a geohash cell extent: four points, the first one is not repeated
+        encoder.addFeature("aggregation", Collections.emptyMap(), new Polygon(Arrays.asList(
+                new LngLatAlt(0, 0), new LngLatAlt(0, 45), new LngLatAlt(45, 45), new LngLatAlt(45, 0))));
+        Feature feature = decode(encoder.encode()).get(0).features.get(0);
+        Assert.assertEquals(3, feature.type);
+        Assert.assertEquals(4, feature.vertices().size());
+    }
+
+    @Test
+    public void testDictionary() throws IOException {
+        VectorTileEncoder encoder = new VectorTileEncoder(WORLD);
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("job", "Actor");
+        first.put("count", 12);
+        first.put("ratio", 0.5);
+        first.put("list", Arrays.asList(1, 2));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("count", 12L);
+        second.put("job", "Actor");
+        second.put("active", true);
+        encoder.addFeature("hit", first, new Point(1, 1));
+        encoder.addFeature("hit", second, new Point(2, 2));
+        Layer layer = decode(encoder.encode()).get(0);
+        Assert.assertEquals(Arrays.asList("job", "count", "ratio", "active"), layer.keys);
+        Assert.assertEquals(Arrays.asList("Actor", 12L, 0.5, true), layer.values);
+        Assert.assertEquals(Arrays.asList(0, 0, 1, 1, 2, 2), layer.features.get(0).tags);
+        Assert.assertEquals(Arrays.asList(1, 1, 0, 0, 3, 3), layer.features.get(1).tags);
+    }
+
+    private static List<Layer> decode(byte[] tile) throws IOException {
+        List<Layer> layers = new ArrayList<>();
+        CodedInputStream in = CodedInputStream.newInstance(tile);
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            Assert.assertEquals(3, WireFormat.getTagFieldNumber(tag));
+            layers.add(new Layer(in.readByteArray()));
+        }
+        return layers;
+    }
+
+    private static List<Integer> readPacked(CodedInputStream in) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        int limit = in.pushLimit(in.readRawVarint32());
+        while (!in.isAtEnd()) {
+            values.add(in.readUInt32());
+        }
+        in.popLimit(limit);
+        return values;
+    }
+
+    private static class Layer {
+        private String name;
+        private int version;
+        private int extent;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        private final List<Feature> features = new ArrayList<>();
+
+        private Layer(byte[] bytes) throws IOException {
+            CodedInputStream in = CodedInputStream.newInstance(bytes);
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1: name = in.readString(); break;
+                    case 2: features.add(new Feature(in.readByteArray())); break;
+                    case 3: keys.add(in.readString()); break;
+                    case 4: values.add(readValue(in.readByteArray())); break;
+                    case 5: extent = in.readUInt32(); break;
+                    case 15: version = in.readUInt32(); break;
+                    default: Assert.fail("Unexpected layer field " + tag);
+                }
+            }
+        }
+
+        private static Object readValue(byte[] bytes) throws IOException {
+            CodedInputStream in = CodedInputStream.newInstance(bytes);
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1: return in.readString();
+                case 3: return in.readDouble();
+                case 5: return in.readUInt64();
+                case 6: return in.readSInt64();
+                case 7: return in.readBool();
+                default: throw new AssertionError("Unexpected value field " + tag);
+            }
+        }
+    }
+
+    private static class Feature {
+        private int type;
+        private List<Integer> tags = new ArrayList<>();
+        private List<Integer> geometry = new ArrayList<>();
+
+        private Feature(byte[] bytes) throws IOException {
+            CodedInputStream in = CodedInputStream.newInstance(bytes);
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 2: tags = readPacked(in); break;
+                    case 3: type = in.readEnum(); break;
+                    case 4: geometry = readPacked(in); break;
+                    default: Assert.fail("Unexpected feature field " + tag);
+                }
+            }
+        }
+
+        /**
+         * Absolute vertices of a single path geometry.
+         */
+        private List<int[]> vertices() {
+            List<int[]> vertices = new ArrayList<>();
+            int x = 0;
+            int y = 0;
+            int i = 0;
+            while (i < geometry.size()) {
+                int command = geometry.get(i++);
+                int count = command >> 3;
+                if ((command & 0x7) == 7) {
+                    continue;
+                }
+                for (int c = 0; c < count; c++) {
+                    x += zigZag(geometry.get(i++));
+                    y += zigZag(geometry.get(i++));
+                    vertices.add(new int[]{x, y});
+                }
+            }
+            return vertices;
+        }
+
+        private static int zigZag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -27,7 +27,6 @@ import io.arlas.server.ogc.wfs.WFSHandler;
 import io.arlas.server.ogc.wfs.utils.WFSConstant;
 import io.arlas.server.ogc.common.utils.XmlUtils;
 import io.arlas.server.utils.GeoTypeMapper;
-import io.arlas.server.utils.MapExplorer;
 import org.elasticsearch.search.SearchHit;
 import org.geojson.GeoJsonObject;
 
@@ -181,10 +180,10 @@ public class GetFeatureHandler {
         Object source = ((SearchHit) member).getSourceAsMap();
         String id = null;
         if (idPath != null) {
-            id = "" + MapExplorer.getObjectFromPath(idPath, source);
+            id = "" + collectionReference.params.getIdFieldPath().get(source);
         }
         if (geometryPath != null) {
-            Object m = MapExplorer.getObjectFromPath(geometryPath, source);
+            Object m = collectionReference.params.getGeometryFieldPath().get(source);
             if (m != null) {
                 geometry = GeoTypeMapper.getGeoJsonObject(m);
 
@@ -33,6 +33,7 @@ import io.arlas.server.ogc.common.utils.GeoFormat;
 import io.arlas.server.ogc.wfs.utils.WFSConstant;
 import io.arlas.server.ogc.wfs.utils.WFSRequestType;
 import io.arlas.server.services.ExploreServices;
+import io.arlas.server.utils.FieldPath;
 import io.arlas.server.utils.MapExplorer;
 import io.arlas.server.utils.ParamsParser;
 import net.opengis.wfs._2.MemberPropertyType;
@@ -132,9 +133,10 @@ public class ElasticWFSToolServiceImpl implements WFSToolService {
                     .execute()
                     .get()
                     .getHits();
+            FieldPath includePath = FieldPath.of(include);
             for (int i = 0; i < hitsGetPropertyValue.getHits().length; i++) {
                 MemberPropertyType e = new MemberPropertyType();
-                e.getContent().add(MapExplorer.getObjectFromPath(include, hitsGetPropertyValue.getAt(i).getSourceAsMap()));
+                e.getContent().add(MapExplorer.getObjectFromPath(includePath, hitsGetPropertyValue.getAt(i).getSourceAsMap()));
                 valueCollectionType.getMember().add(e);
             }
         }catch (InterruptedException e) {
@@ -65,6 +65,7 @@ function test_rest() {
     export ARLAS_SERVICE_WFS_ENABLE=true
     export ARLAS_INSPIRE_ENABLED=true
     export ARLAS_SERVICE_RASTER_TILES_ENABLE=true
+    export ARLAS_ETAG_ENABLED=true
     export ARLAS_TILE_URL="jar:file:///opt/app/arlas-server.jar!/{id}/{z}/{x}/{y}.png"
     start_stack
     docker run --rm \